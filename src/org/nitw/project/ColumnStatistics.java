@@ -0,0 +1,264 @@
+/**
+ *
+ * Title:        ColumnStatistics.java - Statistics of one attribute of a data set.
+ *
+ * Description:  Statistics of the values of an attribute (header) of a data set,
+ *               gathered in one pass while the data set is imported: number of
+ *               values and missing values, minimum and maximum, approximate
+ *               distinct count (HyperLogLog) and approximate quantiles (KLL
+ *               QuantileSketch) of the numeric values.
+ *
+ *               Memory is bounded by the sketches, not by the size of the data
+ *               set, and the statistics of parts of a data set can be merged.
+ *               The selectivity estimate tells what fraction of the values
+ *               match a comparison without a scan of the data set.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+//standard Java new input-output
+import java.nio.ByteBuffer;
+
+//standard Java data structures/collections
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ColumnStatistics {
+
+    private final String name;
+
+    private long count = 0L;         //values present
+    private long missingCount = 0L;  //values null, empty or no datum
+    private long numericCount = 0L;  //values that are numbers
+
+    private final HyperLogLog distinct;
+    private final QuantileSketch quantiles;
+
+    public ColumnStatistics(final String name) {
+        this(name, new HyperLogLog(), new QuantileSketch());
+    }//end constructor
+
+    private ColumnStatistics(String name, HyperLogLog distinct, QuantileSketch quantiles) {
+        this.name = name;
+        this.distinct = distinct;
+        this.quantiles = quantiles;
+    }//end constructor
+
+    /**
+     * add value of one row to the statistics
+     *
+     * @param val the String value, may be null
+     */
+    public void update(final String val) {
+
+        if (DataSetColumn.isMissing(val)) {
+            this.missingCount++;
+            return;
+        }//end if
+
+        String trimmed = val.trim();
+
+        this.count++;
+        this.distinct.add(trimmed);
+
+        if (DataSetColumn.numberKind(trimmed) != 0) {
+            this.numericCount++;
+            this.quantiles.update(DataSetColumn.parseDouble(trimmed));
+        }//end if
+
+    }//end update
+
+    /**
+     * merge statistics of other part of the same attribute
+     *
+     * @param other the statistics to merge
+     * @return this statistics
+     */
+    public ColumnStatistics merge(final ColumnStatistics other) {
+        this.count += other.count;
+        this.missingCount += other.missingCount;
+        this.numericCount += other.numericCount;
+        this.distinct.merge(other.distinct);
+        this.quantiles.merge(other.quantiles);
+        return this;
+    }//end merge
+
+    /**
+     * gather statistics of each attribute of the map/records of a data set
+     *
+     * @param dataSet list of map/records
+     * @return map of attribute name to statistics
+     */
+    public static Map<String, ColumnStatistics> fromDataSet(final List<Map<String, String>> dataSet) {
+
+        Map<String, ColumnStatistics> statistics = new HashMap<>();
+
+        for (Map<String, String> record : dataSet) {
+            ColumnStatistics.update(statistics, record);
+        }//end for
+
+        return statistics;
+
+    }//end fromDataSet
+
+    /**
+     * add each attribute value of one map/record to the statistics
+     *
+     * @param statistics map of attribute name to statistics
+     * @param record the map/record
+     */
+    public static void update(final Map<String, ColumnStatistics> statistics, final Map<String, String> record) {
+
+        for (Map.Entry<String, String> entry : record.entrySet()) {
+            statistics.computeIfAbsent(entry.getKey(), ColumnStatistics::new).update(entry.getValue());
+        }//end for
+
+    }//end update
+
+    public String getName() {
+        return this.name;
+    }//end getName
+
+    public long getCount() {
+        return this.count;
+    }//end getCount
+
+    public long getMissingCount() {
+        return this.missingCount;
+    }//end getMissingCount
+
+    public long getNumericCount() {
+        return this.numericCount;
+    }//end getNumericCount
+
+    //true if every value present is a number
+    public boolean isNumeric() {
+        return this.count > 0 && this.numericCount == this.count;
+    }//end isNumeric
+
+    public long getDistinctCount() {
+        return Math.min(this.distinct.estimate(), this.count);
+    }//end getDistinctCount
+
+    public double getMin() {
+        return this.quantiles.getMin();
+    }//end getMin
+
+    public double getMax() {
+        return this.quantiles.getMax();
+    }//end getMax
+
+    /**
+     * get approximate value at quantile of the numeric values
+     *
+     * @param quantile the quantile from 0.0 to 1.0, 0.5 for median
+     * @return approximate value, NaN if no numeric values
+     */
+    public double getQuantile(final double quantile) {
+        return this.quantiles.getQuantile(quantile);
+    }//end getQuantile
+
+    public double getMedian() {
+        return this.quantiles.getQuantile(0.5);
+    }//end getMedian
+
+    /**
+     * estimate fraction of the numeric values that match a comparison
+     *
+     * @param op the comparison operator
+     * @param value the value compared against
+     * @return estimated fraction from 0.0 to 1.0
+     */
+    public double estimateSelectivity(final QueryOperator op, final double value) {
+
+        if (this.numericCount == 0) {
+            return 0.0;
+        }//end if
+
+        double equal = 1.0 / Math.max(1L, this.getDistinctCount());
+
+        switch (op) {
+            case EQ:
+                return equal;
+            case NE:
+                return 1.0 - equal;
+            case LE:
+                return this.quantiles.getRank(value);
+            case LT:
+                return this.quantiles.getRank(Math.nextDown(value));
+            case GT:
+                return 1.0 - this.quantiles.getRank(value);
+            default:
+                return 1.0 - this.quantiles.getRank(Math.nextDown(value));
+        }//end switch
+
+    }//end estimateSelectivity
+
+    /**
+     * write statistics to a snapshot
+     *
+     * @param out the snapshot output
+     * @throws IOException if the statistics cannot be written
+     */
+    void writeTo(final DataOutputStream out) throws IOException {
+        out.writeLong(this.count);
+        out.writeLong(this.missingCount);
+        out.writeLong(this.numericCount);
+        this.distinct.writeTo(out);
+        this.quantiles.writeTo(out);
+    }//end writeTo
+
+    /**
+     * read statistics written by writeTo
+     *
+     * @param buffer the snapshot buffer at the statistics
+     * @param name the attribute name
+     * @return the statistics
+     */
+    static ColumnStatistics readFrom(final ByteBuffer buffer, final String name) {
+
+        long count = buffer.getLong(), missingCount = buffer.getLong(), numericCount = buffer.getLong();
+
+        ColumnStatistics statistics = new ColumnStatistics(name, HyperLogLog.readFrom(buffer), QuantileSketch.readFrom(buffer));
+        statistics.count = count;
+        statistics.missingCount = missingCount;
+        statistics.numericCount = numericCount;
+
+        return statistics;
+
+    }//end readFrom
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d missing=%d distinct~%d min=%s median~%s max=%s",
+                this.name, this.count, this.missingCount, this.getDistinctCount(), this.getMin(), this.getMedian(), this.getMax());
+    }//end toString
+
+}//end class ColumnStatistics
@@ -0,0 +1,228 @@
+/**
+ *
+ * Title:        CompressedInput.java - Streaming decompression of data files.
+ *
+ * Description:  Detect a compressed external data file by the magic bytes at
+ *               its start, and decompress it as a stream while it is read, so
+ *               an archived file such as "usa_county_list.csv.gz" is read by
+ *               every reader without a temporary file.
+ *
+ *               1. gzip - 1F 8B, decompressed by java.util.zip
+ *               2. zstd - 28 B5 2F FD, decompressed by Apache Commons Compress
+ *                         with zstd-jni, or by zstd-jni alone
+ *               3. xz   - FD 37 7A 58 5A 00, decompressed by Apache Commons
+ *                         Compress with XZ for Java, or by XZ for Java alone
+ *
+ *               The zstd and xz libraries are optional; they are loaded by
+ *               reflection when a file needs them, and a file of a codec whose
+ *               library is not on the class path fails with an error naming
+ *               the library. The data file readers decompress on the reader
+ *               thread of the import pipeline, so decompression overlaps
+ *               parsing, and fewer bytes are read from the disk.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+//standard Java reflection
+import java.lang.reflect.InvocationTargetException;
+
+//standard Java new input-output
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//standard Java compression
+import java.util.zip.GZIPInputStream;
+
+final class CompressedInput {
+
+    static final int BUFFER_BYTES = 64 * 1024;  //bytes of compressed input read at once
+
+    /**
+     * compression of a file, by the magic bytes at its start
+     */
+    enum Codec {
+
+        NONE("", new int[0]),
+        GZIP("gz", new int[]{0x1F, 0x8B}),
+        ZSTD("zst", new int[]{0x28, 0xB5, 0x2F, 0xFD},
+                "org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream", "com.github.luben.zstd.ZstdInputStream"),
+        XZ("xz", new int[]{0xFD, 0x37, 0x7A, 0x58, 0x5A, 0x00},
+                "org.apache.commons.compress.compressors.xz.XZCompressorInputStream", "org.tukaani.xz.XZInputStream");
+
+        private final String extension;
+        private final int[] magic;
+        private final String[] streamClassNames;  //decompressing streams in order of preference
+
+        Codec(String extension, int[] magic, String... streamClassNames) {
+            this.extension = extension;
+            this.magic = magic;
+            this.streamClassNames = streamClassNames;
+        }//end constructor
+
+        //file name extension of the codec, without the dot
+        String getExtension() {
+            return this.extension;
+        }//end getExtension
+
+        private boolean matches(final byte[] head, final int length) {
+
+            if (this.magic.length == 0 || length < this.magic.length) {
+                return false;
+            }//end if
+
+            for (int idx = 0; idx < this.magic.length; idx++) {
+                if ((head[idx] & 0xFF) != this.magic[idx]) {
+                    return false;
+                }//end if
+            }//end for
+
+            return true;
+
+        }//end matches
+
+    }//end enum Codec
+
+    private static final int MAGIC_BYTES = 6;  //longest magic, xz
+
+    private CompressedInput() {
+    }//end constructor
+
+    /**
+     * detect compression from the first bytes of a file
+     *
+     * @param head the first bytes of the file
+     * @param length number of bytes in head
+     * @return codec of the file, NONE if not compressed
+     */
+    static Codec detect(final byte[] head, final int length) {
+
+        for (Codec codec : Codec.values()) {
+            if (codec.matches(head, length)) {
+                return codec;
+            }//end if
+        }//end for
+
+        return Codec.NONE;
+
+    }//end detect
+
+    /**
+     * detect compression of a file from its magic bytes
+     *
+     * @param file the external file
+     * @return codec of the file, NONE if not compressed
+     * @throws IOException if the file cannot be read
+     */
+    static Codec detect(final Path file) throws IOException {
+
+        byte[] head = new byte[MAGIC_BYTES];
+
+        try (InputStream input = Files.newInputStream(file)) {
+            return CompressedInput.detect(head, input.readNBytes(head, 0, head.length));
+        }//end try
+
+    }//end detect
+
+    /**
+     * open file as a stream of its content, decompressed if compressed
+     *
+     * @param file the external file
+     * @return input stream of the content
+     * @throws IOException if the file cannot be read, or its codec is not on the class path
+     */
+    static InputStream open(final Path file) throws IOException {
+        return CompressedInput.decompress(Files.newInputStream(file), file);
+    }//end open
+
+    /**
+     * stream of the content of a file, decompressed if its first bytes are
+     * the magic of a codec
+     *
+     * @param input stream of the bytes of the file, closed with the stream returned
+     * @param file the external file, for the error of a codec not on the class path
+     * @return input stream of the content
+     * @throws IOException if the file cannot be read, or its codec is not on the class path
+     */
+    static InputStream decompress(final InputStream input, final Path file) throws IOException {
+
+        //peek at the magic bytes, then push them back; an uncompressed file is read as it is
+        PushbackInputStream peeked = new PushbackInputStream(input, MAGIC_BYTES);
+
+        try {
+
+            byte[] head = new byte[MAGIC_BYTES];
+            int length = peeked.readNBytes(head, 0, head.length);
+            peeked.unread(head, 0, length);
+
+            Codec codec = CompressedInput.detect(head, length);
+
+            switch (codec) {
+                case NONE:
+                    return peeked;
+                case GZIP:
+                    return new GZIPInputStream(peeked, BUFFER_BYTES);
+                default:
+                    return CompressedInput.newStream(codec, new BufferedInputStream(peeked, BUFFER_BYTES), file);
+            }//end switch
+
+        } catch (IOException | RuntimeException ex) {
+            peeked.close();
+            throw ex;
+        }//end try
+
+    }//end decompress
+
+    //decompressing stream of an optional library, the first one on the class path
+    private static InputStream newStream(final Codec codec, final InputStream input, final Path file) throws IOException {
+
+        for (String className : codec.streamClassNames) {
+
+            try {
+                return (InputStream) Class.forName(className).getConstructor(InputStream.class).newInstance(input);
+            } catch (InvocationTargetException ex) {
+                if (ex.getCause() instanceof IOException) {
+                    throw (IOException) ex.getCause();
+                }//end if
+                if (!(ex.getCause() instanceof LinkageError)) {
+                    throw new IOException(ex.getCause());
+                }//end if
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                //library or its codec not on the class path, try the next
+            }//end try
+
+        }//end for
+
+        throw new IOException(String.format("file '%s' is compressed with %s, add %s to the class path to read it", file, codec,
+                (codec == Codec.ZSTD) ? "zstd-jni (com.github.luben:zstd-jni)" : "XZ for Java (org.tukaani:xz)"));
+
+    }//end newStream
+
+}//end class CompressedInput
@@ -0,0 +1,641 @@
+/**
+ *
+ * Title:        CsvColumnDecoder.java - Decode CSV bytes into typed columns.
+ *
+ * Description:  Decode a CSV file byte by byte straight into the typed columns
+ *               of each attribute, without a String for each field and without
+ *               map/records. Whole numbers, decimals and percent values such as
+ *               "Avg Income" 55200 or "State Avg Tax Rate" 4.91% are parsed from
+ *               the bytes into int or double arrays; a String is made only for
+ *               the values of text columns, once for each distinct value.
+ *
+ *               The type of each column is found the same way as
+ *               DataSetColumn.fromDataSet: a column is INT until a decimal or
+ *               percent value is seen, DOUBLE until a value that is not a
+ *               number is seen, then TEXT. A column found to be text after it
+ *               had numbers is decoded again as text in a second pass of the
+ *               file, since the bytes of its numbers are not kept.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.IOException;
+import java.io.InputStream;
+
+//standard Java new input-output
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class CsvColumnDecoder {
+
+    static final int BUFFER_BYTES = 64 * 1024;  //bytes decoded at once
+
+    private static final int INITIAL_ROWS = 1024;
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    //markers of no datum, as DataSetColumn.isMissing
+    private static final byte[][] MISSING = {
+        "".getBytes(StandardCharsets.US_ASCII), "None".getBytes(StandardCharsets.US_ASCII),
+        "X".getBytes(StandardCharsets.US_ASCII), "(X)".getBytes(StandardCharsets.US_ASCII),
+        "N/A".getBytes(StandardCharsets.US_ASCII), "S".getBytes(StandardCharsets.US_ASCII),
+        "(S)".getBytes(StandardCharsets.US_ASCII), "D".getBytes(StandardCharsets.US_ASCII),
+        "(D)".getBytes(StandardCharsets.US_ASCII), "-".getBytes(StandardCharsets.US_ASCII)};
+
+    private static final int MISSING_MAX_LENGTH = 4;
+
+    //powers of ten exact as double
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1.0;
+        for (int idx = 1; idx < POW10.length; idx++) {
+            POW10[idx] = POW10[idx - 1] * 10.0;
+        }//end for
+    }//end static
+
+    private final Set<Integer> textColumns;  //columns decoded as text from the start
+    private final ImportProgress progress;   //null on a second pass
+
+    private final List<String> headers = new ArrayList<>();
+    private ColumnBuilder[] columns = null;
+    private int rows = 0;
+
+    //field being decoded
+    private byte[] field = new byte[256];
+    private int fieldLen = 0;
+    private int col = 0;
+    private boolean quoted = false;       //field started with a quote
+    private boolean inQuotes = false;     //inside the quotes of the field
+    private boolean quoteClosed = false;  //last byte closed the quotes, or is the first of a doubled quote
+    private boolean blank = true;         //no byte but whitespace in the field yet
+
+    private CsvColumnDecoder(Set<Integer> textColumns, ImportProgress progress) {
+        this.textColumns = textColumns;
+        this.progress = progress;
+    }//end constructor
+
+    /**
+     * read CSV file into typed columns, in order of the header
+     *
+     * @param file the CSV file
+     * @param progress progress of the import
+     * @return attribute name to typed column
+     * @throws IOException if the file cannot be read
+     */
+    static Map<String, DataSetColumn> read(final Path file, final ImportProgress progress) throws IOException {
+
+        Set<Integer> textColumns = new HashSet<>();
+        CsvColumnDecoder decoder = new CsvColumnDecoder(textColumns, progress);
+
+        //a file of one chunk is decoded as it is read, a thread to read ahead has nothing to overlap
+        boolean readAhead = Files.size(file) > ImportPipeline.CHUNK_BYTES;
+
+        try (InputStream input = CsvColumnDecoder.open(progress.open(file), readAhead)) {
+            decoder.decode(input);
+        }//end try
+
+        //columns found to be text after numbers, decode all of them again as text
+        if (decoder.findTextColumns()) {
+
+            decoder = new CsvColumnDecoder(textColumns, null);
+
+            try (InputStream input = CsvColumnDecoder.open(CompressedInput.open(file), readAhead)) {
+                decoder.decode(input);
+            }//end try
+
+        }//end if
+
+        return decoder.toColumns();
+
+    }//end read
+
+    private static InputStream open(final InputStream input, final boolean readAhead) {
+        return readAhead ? ImportPipeline.readAhead(input) : input;
+    }//end open
+
+    private void decode(final InputStream input) throws IOException {
+
+        byte[] buf = new byte[BUFFER_BYTES];
+
+        for (int count = input.read(buf); count >= 0; count = input.read(buf)) {
+
+            for (int idx = 0; idx < count; idx++) {
+
+                byte val = buf[idx];
+
+                if (this.inQuotes) {
+                    if (val == QUOTE) {
+                        this.inQuotes = false;
+                        this.quoteClosed = true;
+                    } else {
+                        this.append(val);
+                    }//end if
+                    continue;
+                }//end if
+
+                if (this.quoteClosed) {
+                    this.quoteClosed = false;
+                    if (val == QUOTE) {
+                        this.append(QUOTE);  //doubled quote is one quote in the value
+                        this.inQuotes = true;
+                        continue;
+                    }//end if
+                }//end if
+
+                switch (val) {
+                    case QUOTE:
+                        if (!this.quoted && this.blank) {
+                            this.quoted = true;
+                            this.inQuotes = true;
+                            this.fieldLen = 0;  //whitespace before the quote is not in the value
+                        } else {
+                            this.append(val);
+                        }//end if
+                        break;
+                    case COMMA:
+                        this.endField();
+                        break;
+                    case LF:
+                        this.endRecord();
+                        break;
+                    case CR:
+                        break;
+                    default:
+                        this.append(val);
+                }//end switch
+
+            }//end for
+
+        }//end for
+
+        this.endRecord();  //last record without a newline
+
+    }//end decode
+
+    private void append(final byte val) {
+
+        if (this.fieldLen == this.field.length) {
+            this.field = Arrays.copyOf(this.field, this.field.length * 2);
+        }//end if
+
+        this.field[this.fieldLen++] = val;
+
+        if ((val & 0xFF) > ' ') {
+            this.blank = false;
+        }//end if
+
+    }//end append
+
+    private void endField() {
+
+        if (this.columns == null) {
+            this.headers.add(new String(this.field, 0, this.fieldLen, StandardCharsets.UTF_8).trim());
+        } else if (this.col < this.columns.length) {
+            this.columns[this.col].add(this.rows, this.field, this.fieldLen);
+        }//end if
+
+        this.col++;
+        this.fieldLen = 0;
+        this.quoted = false;
+        this.quoteClosed = false;
+        this.blank = true;
+
+    }//end endField
+
+    private void endRecord() {
+
+        //skip empty lines
+        if (this.col == 0 && this.fieldLen == 0 && !this.quoted) {
+            return;
+        }//end if
+
+        this.endField();
+
+        if (this.columns == null) {
+
+            this.columns = new ColumnBuilder[this.headers.size()];
+            for (int idx = 0; idx < this.columns.length; idx++) {
+                this.columns[idx] = new ColumnBuilder(this.headers.get(idx), this.textColumns.contains(idx));
+            }//end for
+
+        } else {
+
+            //fields not in the record have no value
+            for (; this.col < this.columns.length; this.col++) {
+                this.columns[this.col].add(this.rows, this.field, 0);
+            }//end for
+
+            this.rows++;
+
+            if (this.progress != null) {
+                this.progress.recordDecoded();
+            }//end if
+
+        }//end if
+
+        this.col = 0;
+
+    }//end endRecord
+
+    //add columns to decode again as text, true if any
+    private boolean findTextColumns() {
+
+        boolean found = false;
+
+        for (int idx = 0; this.columns != null && idx < this.columns.length; idx++) {
+            if (this.columns[idx].textAfterNumbers) {
+                this.textColumns.add(idx);
+                found = true;
+            }//end if
+        }//end for
+
+        return found;
+
+    }//end findTextColumns
+
+    private Map<String, DataSetColumn> toColumns() {
+
+        Map<String, DataSetColumn> columnMap = new LinkedHashMap<>();
+
+        for (int idx = 0; this.columns != null && idx < this.columns.length; idx++) {
+            columnMap.put(this.columns[idx].name, this.columns[idx].toColumn(this.rows));
+        }//end for
+
+        return columnMap;
+
+    }//end toColumns
+
+    //check if bytes [from, to) are a marker of no datum
+    private static boolean isMissing(final byte[] buf, final int from, final int to) {
+
+        if (to - from > MISSING_MAX_LENGTH) {
+            return false;  //longer than every marker
+        }//end if
+
+        for (byte[] marker : MISSING) {
+            if (Arrays.equals(buf, from, to, marker, 0, marker.length)) {
+                return true;
+            }//end if
+        }//end for
+
+        return false;
+
+    }//end isMissing
+
+    //values of one attribute, typed as they are decoded
+    private static final class ColumnBuilder {
+
+        private final String name;
+        private DataSetColumn.ColumnType type;
+        private boolean hasNumbers = false;         //a number was stored
+        private boolean textAfterNumbers = false;  //text seen after numbers, decode again
+
+        private int[] intValues;     //INT values, or TEXT codes
+        private double[] doubleValues;
+        private long[] validBits = new long[DataSetColumn.bitmapLength(INITIAL_ROWS)];
+
+        private Map<String, Integer> codeMap = null;
+        private List<String> dictionary = null;
+
+        //distinct bytes of text values, open addressing of entry + 1, so a value seen
+        //before is coded from its bytes without a String; bytes that are not valid UTF-8
+        //may decode to the same String as other bytes, and then share its code, found
+        //in codeMap which has the values that are not ASCII
+        private int[] entryTable = null;
+        private int[] entryHashes = null;
+        private int[] entryCodes = null;
+        private List<byte[]> entryBytes = null;
+
+        //rows of INT value "-0", which is -0.0 if the column becomes DOUBLE
+        private final List<Integer> negativeZeroRows = new ArrayList<>();
+
+        //number parsed by parseNumber
+        private int kind;
+        private long intValue;
+        private double doubleValue;
+
+        ColumnBuilder(String name, boolean text) {
+            this.name = name;
+            this.intValues = new int[INITIAL_ROWS];
+            if (text) {
+                this.toText(0);
+            } else {
+                this.type = DataSetColumn.ColumnType.INT;
+            }//end if
+        }//end constructor
+
+        //add value of a row from bytes [0, len) of the field, trimmed
+        void add(final int row, final byte[] buf, final int len) {
+
+            if (this.textAfterNumbers) {
+                return;  //decoded again as text
+            }//end if
+
+            this.ensureRows(row + 1);
+
+            int from = 0, to = len;
+            while (from < to && (buf[from] & 0xFF) <= ' ') {
+                from++;
+            }//end while
+            while (to > from && (buf[to - 1] & 0xFF) <= ' ') {
+                to--;
+            }//end while
+
+            if (CsvColumnDecoder.isMissing(buf, from, to)) {
+                if (this.type == DataSetColumn.ColumnType.TEXT) {
+                    this.intValues[row] = -1;
+                }//end if
+                return;
+            }//end if
+
+            this.validBits[row >>> 6] |= 1L << row;
+
+            if (this.type != DataSetColumn.ColumnType.TEXT && !this.parseNumber(buf, from, to)) {
+                if (this.hasNumbers) {
+                    this.textAfterNumbers = true;
+                    return;
+                }//end if
+                this.toText(row);
+            }//end if
+
+            switch (this.type) {
+                case TEXT:
+                    this.intValues[row] = this.codeOf(buf, from, to);
+                    break;
+                case INT:
+                    if (this.kind == 1) {
+                        this.intValues[row] = (int) this.intValue;
+                        if (this.intValue == 0L && Double.doubleToRawLongBits(this.doubleValue) < 0L) {
+                            this.negativeZeroRows.add(row);
+                        }//end if
+                        break;
+                    }//end if
+                    this.toDouble(row);
+                    this.doubleValues[row] = this.doubleValue;
+                    break;
+                default:
+                    this.doubleValues[row] = this.doubleValue;
+            }//end switch
+
+            this.hasNumbers |= this.type != DataSetColumn.ColumnType.TEXT;
+
+        }//end add
+
+        /**
+         * parse number from bytes [from, to), not empty, with the rules of
+         * DataSetColumn.numberKind; sets kind 1 and intValue for a whole
+         * number in int range, kind 2 and doubleValue for a decimal number
+         *
+         * @return false if not a number
+         */
+        private boolean parseNumber(final byte[] buf, final int from, final int to) {
+
+            int start = (buf[from] == '-' || buf[from] == '+') ? from + 1 : from;
+            boolean negative = buf[from] == '-';
+            boolean percent = buf[to - 1] == '%';
+            int end = percent ? to - 1 : to;
+
+            if (start >= end) {
+                return false;
+            }//end if
+
+            //keep codes with leading zeros like FIPS "01" or "003" as text
+            if (buf[start] == '0' && end - start > 1 && buf[start + 1] != '.') {
+                return false;
+            }//end if
+
+            long mantissa = 0L;
+            int digits = 0, fraction = -1;
+            boolean hasDigit = false;
+
+            for (int idx = start; idx < end; idx++) {
+                byte val = buf[idx];
+                if (val >= '0' && val <= '9') {
+                    hasDigit = true;
+                    if (mantissa > 0L || val != '0') {
+                        digits++;  //significant digits
+                    }//end if
+                    if (digits <= 18) {
+                        mantissa = mantissa * 10L + (val - '0');
+                    }//end if
+                    if (fraction >= 0) {
+                        fraction++;
+                    }//end if
+                } else if (val == '.' && fraction < 0) {
+                    fraction = 0;
+                } else {
+                    return false;
+                }//end if
+            }//end for
+
+            if (!hasDigit) {
+                return false;
+            }//end if
+
+            if (fraction < 0 && !percent && end - start <= 9) {
+                this.kind = 1;
+                this.intValue = negative ? -mantissa : mantissa;
+                this.doubleValue = negative ? -(double) mantissa : mantissa;
+                return true;
+            }//end if
+
+            this.kind = 2;
+
+            //exact mantissa and power of ten, one correctly rounded division
+            if (digits <= 15 && Math.max(fraction, 0) < POW10.length) {
+                double val = mantissa / POW10[Math.max(fraction, 0)];
+                this.doubleValue = negative ? -val : val;
+            } else {
+                this.doubleValue = Double.parseDouble(new String(buf, from, end - from, StandardCharsets.US_ASCII));
+            }//end if
+
+            return true;
+
+        }//end parseNumber
+
+        private void ensureRows(final int size) {
+
+            int capacity = (this.intValues != null) ? this.intValues.length : this.doubleValues.length;
+
+            if (size <= capacity) {
+                return;
+            }//end if
+
+            capacity = Math.max(size, capacity * 2);
+
+            if (this.intValues != null) {
+                this.intValues = Arrays.copyOf(this.intValues, capacity);
+            } else {
+                this.doubleValues = Arrays.copyOf(this.doubleValues, capacity);
+            }//end if
+
+            this.validBits = Arrays.copyOf(this.validBits, DataSetColumn.bitmapLength(capacity));
+
+        }//end ensureRows
+
+        //code of text value of bytes [from, to), a String made only for bytes not seen before
+        private int codeOf(final byte[] buf, final int from, final int to) {
+
+            int hash = 1;
+            for (int idx = from; idx < to; idx++) {
+                hash = 31 * hash + buf[idx];
+            }//end for
+            hash ^= hash >>> 16;
+
+            int mask = this.entryTable.length - 1;
+
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+
+                int entry = this.entryTable[slot] - 1;
+
+                if (entry < 0) {
+                    int code = this.addEntry(buf, from, to, hash);
+                    this.entryTable[slot] = this.entryBytes.size();
+                    if (2 * this.entryBytes.size() > this.entryTable.length) {
+                        this.growEntries();
+                    }//end if
+                    return code;
+                }//end if
+
+                byte[] bytes = this.entryBytes.get(entry);
+                if (this.entryHashes[entry] == hash && Arrays.equals(bytes, 0, bytes.length, buf, from, to)) {
+                    return this.entryCodes[entry];
+                }//end if
+
+            }//end for
+
+        }//end codeOf
+
+        //entry of bytes not seen before, with the code of its String
+        private int addEntry(final byte[] buf, final int from, final int to, final int hash) {
+
+            boolean ascii = true;
+            for (int idx = from; ascii && idx < to; idx++) {
+                ascii = buf[idx] >= 0;
+            }//end for
+
+            //other bytes of ASCII never decode to the same String
+            String val = new String(buf, from, to - from, StandardCharsets.UTF_8);
+            Integer code = ascii ? null : this.codeMap.get(val);
+
+            if (code == null) {
+                code = this.dictionary.size();
+                if (!ascii) {
+                    this.codeMap.put(val, code);
+                }//end if
+                this.dictionary.add(val);
+            }//end if
+
+            int entry = this.entryBytes.size();
+            if (entry == this.entryCodes.length) {
+                this.entryCodes = Arrays.copyOf(this.entryCodes, entry * 2);
+                this.entryHashes = Arrays.copyOf(this.entryHashes, entry * 2);
+            }//end if
+
+            this.entryBytes.add(Arrays.copyOfRange(buf, from, to));
+            this.entryCodes[entry] = code;
+            this.entryHashes[entry] = hash;
+
+            return code;
+
+        }//end addEntry
+
+        //double the table of entries, over half full
+        private void growEntries() {
+
+            this.entryTable = new int[this.entryTable.length * 2];
+            int mask = this.entryTable.length - 1;
+
+            for (int entry = 0; entry < this.entryBytes.size(); entry++) {
+                int slot = this.entryHashes[entry] & mask;
+                while (this.entryTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }//end while
+                this.entryTable[slot] = entry + 1;
+            }//end for
+
+        }//end growEntries
+
+        //rows before have no value, code -1
+        private void toText(final int rows) {
+            this.type = DataSetColumn.ColumnType.TEXT;
+            this.codeMap = new HashMap<>();
+            this.dictionary = new ArrayList<>();
+            this.entryTable = new int[64];
+            this.entryHashes = new int[32];
+            this.entryCodes = new int[32];
+            this.entryBytes = new ArrayList<>();
+            Arrays.fill(this.intValues, 0, rows, -1);
+        }//end toText
+
+        //decimal number seen, whole numbers before become doubles
+        private void toDouble(final int rows) {
+            this.type = DataSetColumn.ColumnType.DOUBLE;
+            this.doubleValues = new double[this.intValues.length];
+            for (int row = 0; row < rows; row++) {
+                this.doubleValues[row] = this.intValues[row];
+            }//end for
+            for (int row : this.negativeZeroRows) {
+                this.doubleValues[row] = -0.0;
+            }//end for
+            this.intValues = null;
+        }//end toDouble
+
+        DataSetColumn toColumn(final int size) {
+
+            this.ensureRows(size);
+            long[] valid = Arrays.copyOf(this.validBits, DataSetColumn.bitmapLength(size));
+
+            switch (this.type) {
+                case TEXT:
+                    return DataSetColumn.of(this.name, this.type, size, Arrays.copyOf(this.intValues, size), null,
+                            this.dictionary.toArray(new String[0]), valid);
+                case INT:
+                    return DataSetColumn.of(this.name, this.type, size, Arrays.copyOf(this.intValues, size), null, null, valid);
+                default:
+                    return DataSetColumn.of(this.name, this.type, size, null, Arrays.copyOf(this.doubleValues, size), null, valid);
+            }//end switch
+
+        }//end toColumn
+
+    }//end class ColumnBuilder
+
+}//end class CsvColumnDecoder
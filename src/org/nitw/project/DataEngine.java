@@ -43,8 +43,9 @@ import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 //Jackson is a suite of data-processing tools for Java https://github.com/FasterXML/jackson
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.type.TypeFactory;
 
 //XStream is a simple library to serialize objects to XML and back again. https://x-stream.github.io
 import com.thoughtworks.xstream.XStream;
@@ -55,13 +56,15 @@ import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 
 //univocity-parsers is a collection of extremely fast and reliable parsers for Java. https://github.com/uniVocity/univocity-parsers
+import com.univocity.parsers.common.ParsingContext;
 import com.univocity.parsers.csv.*;
 
 //standard Java input-output 
 import java.io.BufferedReader;
 import java.io.Reader;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 
 //standard Java new input-output
 import java.nio.charset.StandardCharsets;
@@ -76,9 +79,33 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+
+//standard Java functions
+import java.util.function.Consumer;
+
+//standard Java streams
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+//standard Java concurrency
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 public class DataEngine {
 
@@ -133,7 +160,18 @@ public class DataEngine {
     public static final String fileNameStateTaxRates 			= "StateTaxRates.xlsx";
 
     private boolean echoImportFlag      = true;   //echo loading, record size, time
-    private boolean dataEngineReadyFlag = false;  //indicate data engine is ready from data import
+    private Path snapshotDirectory      = null;   //directory of data set snapshots, null for none
+    private boolean snapshotMappedFlag  = false;  //read snapshot values in place from mapped files
+    private volatile long parallelCsvMinBytes = ParallelCsvReader.DEFAULT_MIN_BYTES;  //CSV files this large parsed on all cores
+    private volatile LoadSpec loadSpec = LoadSpec.ALL;  //attributes to load of each data set
+    private volatile DataSetCatalog catalog = DataSetCatalog.DEFAULT;  //data sets, their files and load policies
+
+    //data sets stored off the heap
+    private final Set<String> offHeapDataSetNames = ConcurrentHashMap.newKeySet();
+    private volatile boolean dataEngineReadyFlag = false;  //indicate data engine is ready from data import
+
+    //data sets imported on first use, every data set of the catalog in lazy mode
+    private volatile Set<String> lazyDataSetNames = Collections.emptySet();
 
     /**
      * null constructor uses default settings
@@ -151,21 +189,137 @@ public class DataEngine {
         this.echoImportFlag = echoImportFlag;
     }//end constructor
 
-    //data sets for each file 
-    private List< Map<String, String>> dataSetCountyEmploymentWages; 
-    private List< Map<String, String>> dataSetCountyList;
-    private List< Map<String, String>> dataSetCountyMedianIncome;
-    private List< Map<String, String>> dataSetCountyPopulationTax;
-    private List< Map<String, String>> dataSetCountyUnemployment;
-    private List< Map<String, String>> dataSetStateExports;
-    private List< Map<String, String>> dataSetStateTaxRates;
+    /**
+     * set directory of binary snapshots of the data sets; a data set is read
+     * from its snapshot when its external file has the same size, modified
+     * time and checksum, else imported and a new snapshot written
+     *
+     * @param snapshotDirectory directory of the snapshot files, null for no snapshots
+     */
+    public void setSnapshotDirectory(final Path snapshotDirectory) {
+        this.setSnapshotDirectory(snapshotDirectory, false);
+    }//end setSnapshotDirectory
+
+    /**
+     * set directory of binary snapshots of the data sets, and if the values
+     * are read in place from the memory-mapped snapshot files; mapped data
+     * sets and typed columns do not copy the values to the heap, and the
+     * pages are shared by every process that maps the same snapshot
+     *
+     * @param snapshotDirectory directory of the snapshot files, null for no snapshots
+     * @param mapped true to read values in place from mapped files
+     */
+    public void setSnapshotDirectory(final Path snapshotDirectory, final boolean mapped) {
+        this.snapshotDirectory = snapshotDirectory;
+        this.snapshotMappedFlag = mapped;
+    }//end setSnapshotDirectory
+
+    /**
+     * select if a data set is stored off the Java heap when it is loaded; its
+     * records and typed columns are then read from direct buffers
+     *
+     * @param name the data set name
+     * @param offHeap true to store the data set off the heap
+     */
+    public void setOffHeap(final String name, final boolean offHeap) {
+
+        this.catalog.getSource(name);  //check name valid
+
+        if (offHeap) {
+            this.offHeapDataSetNames.add(name);
+        } else {
+            this.offHeapDataSetNames.remove(name);
+        }//end if
+
+    }//end setOffHeap
+
+    /**
+     * set size of a CSV data file from which it is parsed in parallel, in
+     * byte ranges on all cores, instead of in one pass
+     *
+     * @param minBytes size in bytes, Long.MAX_VALUE to always parse in one pass
+     */
+    public void setParallelCsvImport(final long minBytes) {
+        this.parallelCsvMinBytes = minBytes;
+    }//end setParallelCsvImport
+
+    /**
+     * set attributes and records to load of each data set; the readers skip
+     * the fields of other attributes and the records rejected by a filter,
+     * for the data sets loaded or reloaded after
+     *
+     * @param loadSpec the load specification, LoadSpec.ALL for every attribute
+     */
+    public void setLoadSpec(final LoadSpec loadSpec) {
+        this.loadSpec = Objects.requireNonNull(loadSpec);
+    }//end setLoadSpec
+
+    public LoadSpec getLoadSpec() {
+        return this.loadSpec;
+    }//end getLoadSpec
 
-    //data sets stored in list and map for collective access to all data sets
-    private List< List< Map<String, String>>> dataSetList;
-    private Map< String, List< Map<String, String>>> dataSetMap;
+    /**
+     * set catalog of the data sets: the external file, format, column types,
+     * load policy and priority of each, for the data sets loaded or reloaded
+     * after
+     *
+     * @param catalog the catalog, DataSetCatalog.DEFAULT for the data files of the project
+     */
+    public void setDataSetCatalog(final DataSetCatalog catalog) {
+        this.catalog = Objects.requireNonNull(catalog);
+    }//end setDataSetCatalog
 
-    //data set names
-    private Set<String> dataSetNames;
+    public DataSetCatalog getDataSetCatalog() {
+        return this.catalog;
+    }//end getDataSetCatalog
+
+    /**
+     * get off-heap store of a data set selected with setOffHeap, in the
+     * current version; the store stays open after a reload, its memory is
+     * returned once no reader refers to its records
+     *
+     * @param name the data set name
+     * @return the OffHeapColumnStore, or null if the data set is on the heap
+     */
+    public OffHeapColumnStore getOffHeapStore(final String name) {
+        return this.getDataSetVersion(name).getOffHeapStore();
+    }//end getOffHeapStore
+
+    //current immutable version of all data sets with their typed columns and statistics,
+    //replaced by copy-on-write so readers never see a data set half loaded
+    private final AtomicReference<EngineVersion> currentVersion = new AtomicReference<>(new EngineVersion(0L, Collections.emptyMap()));
+
+    //held only to publish a version, never while a data set is imported or waited for, so an
+    //import publishes while another thread holds the engine and waits for that data set
+    private final Object publishLock = new Object();
+
+    //held while a data set is reloaded, so reloads are published in the order they are imported
+    private final Object reloadLock = new Object();
+
+    //cached results of queries, invalidated when a data set is loaded again
+    private final QueryResultCache queryResultCache = new QueryResultCache();
+
+    //counters and latency of queries, disabled by default
+    private final QueryInstrumentation queryInstrumentation = new QueryInstrumentation();
+
+    //queries being computed, key is query and data set generation so a reload is not joined
+    private final SingleFlight<Map.Entry<DataSetQuery, Long>, List<Object[]>> queryFlights = new SingleFlight<>();
+
+    //precomputed county, state, nation rollups of the data sets
+    private volatile GeographyCube geographyCube;
+
+    //reloads data sets when their external files change, null if not watching
+    private DataSetWatcher dataSetWatcher;
+
+    //data sets being imported by loadDataAsync, empty if not loaded asynchronously
+    private volatile Map<String, CompletableFuture<EngineVersion.DataSetVersion>> dataSetFutureMap = Collections.emptyMap();
+
+    //events of data sets being imported, to subscribers at their own pace
+    private final SubmissionPublisher<LoadEvent> loadEventPublisher = new SubmissionPublisher<>();
+    private final LongAdder droppedLoadEventCount = new LongAdder();
+
+    //data sets being imported on first use, so each is imported once
+    private final SingleFlight<String, EngineVersion.DataSetVersion> dataSetLoadFlights = new SingleFlight<>();
 
     /**
      * Method that dumps map/record in each data set to a limit >= 1
@@ -183,7 +337,7 @@ public class DataEngine {
 
         for (String dataSet : dataSets) {
 
-            List<Map<String, String>> list = this.dataSetMap.get(dataSet);
+            List<Map<String, String>> list = this.getDataSetByName(dataSet);
 
             System.out.printf("Data Set: %s%n", dataSet);
 
@@ -212,42 +366,285 @@ public class DataEngine {
     }//end dumpDataSets
 
     public static final List<Map<String, String>> importData(String filePath) {
+        return DataEngine.importData(filePath, null);
+    }//end importData
 
-        if (Files.notExists(Paths.get(filePath))) {
-            System.err.printf("Error: File %s not found!%n%n", filePath);
-            System.exit(1);
+    /**
+     * Import datum from external data file, and gather the statistics of each
+     * attribute while the map/records are imported
+     *
+     * @param filePath the path to the external data file
+     * @param statistics map to put statistics of each attribute in, or null
+     * @return list of map/record read from the external file
+     */
+    public static final List<Map<String, String>> importData(String filePath, Map<String, ColumnStatistics> statistics) {
+        return DataEngine.importData(filePath, statistics, new ImportProgress(filePath, null));
+    }//end importData
+
+    /**
+     * Import datum from external data file, gather the statistics of each
+     * attribute, and count the records and bytes read
+     *
+     * @param filePath the path to the external data file
+     * @param statistics map to put statistics of each attribute in, or null
+     * @param progress progress of the import
+     * @return list of map/record read from the external file
+     * @throws RuntimeException if the file is not found or cannot be read
+     */
+    static List<Map<String, String>> importData(String filePath, Map<String, ColumnStatistics> statistics, ImportProgress progress) {
+        return DataEngine.importData(filePath, statistics, progress, ParallelCsvReader.DEFAULT_MIN_BYTES, LoadSpec.DataSetSpec.ALL);
+    }//end importData
+
+    /**
+     * Import datum from external data file with the reader of its format,
+     * gather the statistics of each attribute, and count the records and bytes
+     * read; a file of at least parallelMinBytes is read in parallel by a
+     * reader that can split it
+     *
+     * @param filePath the path to the external data file
+     * @param statistics map to put statistics of each attribute in, or null
+     * @param progress progress of the import
+     * @param parallelMinBytes size of a file read in parallel
+     * @param spec attributes to load
+     * @return list of map/record read from the external file
+     * @throws RuntimeException if the file is not found, of no known format, or cannot be read
+     */
+    static List<Map<String, String>> importData(String filePath, Map<String, ColumnStatistics> statistics, ImportProgress progress,
+            long parallelMinBytes, LoadSpec.DataSetSpec spec) {
+        return DataEngine.importData(filePath, statistics, progress, parallelMinBytes, spec, null);
+    }//end importData
+
+    /**
+     * Import datum from external data file with the reader of a format, or the
+     * reader picked by the content of the file
+     *
+     * @param filePath the path to the external data file
+     * @param statistics map to put statistics of each attribute in, or null
+     * @param progress progress of the import
+     * @param parallelMinBytes size of a file read in parallel
+     * @param spec attributes to load
+     * @param format the format of the reader, or null to pick by the content
+     * @return list of map/record read from the external file
+     * @throws RuntimeException if the file is not found, of no known format, or cannot be read
+     */
+    static List<Map<String, String>> importData(String filePath, Map<String, ColumnStatistics> statistics, ImportProgress progress,
+            long parallelMinBytes, LoadSpec.DataSetSpec spec, String format) {
+
+        Path file = Paths.get(filePath);
+
+        if (Files.notExists(file)) {
+            throw new RuntimeException(String.format("DateEngine.importData: file '%s' not found!", filePath));
         }//end if
 
-        List<Map<String, String>> list = null;
+        List<Map<String, String>> list;
 
-        String[] filePathExt = filePath.split("\\.");
+        try {
 
-        switch (filePathExt[1]) {
+            DataSourceReader reader = (format != null) ? DataSourceReaders.forFormat(format) : DataSourceReaders.select(file);
 
-            case "csv":
-                list = DataEngine.readCSV(filePath);
-                break;
-            case "json":
-                list = DataEngine.readJSON(filePath);
-                break;
-            case "xlsx":
-                list = DataEngine.readExcel(filePath);
-                break;
-            case "xml":
-                list = DataEngine.readXML(filePath);
-                break;
-            default:
-                System.err.printf("Error: Unknown file extension: %s%n!", filePathExt[1]);
-                System.exit(1);
-        }//end switch
+            if (reader == null) {
+                throw new RuntimeException((format != null)
+                        ? String.format("DateEngine.importData: no reader of format '%s' of file '%s'!", format, filePath)
+                        : String.format("DateEngine.importData: no reader of the format of file '%s'!", filePath));
+            }//end if
+
+            //a compressed file has no byte ranges to split, it is read in one pass
+            boolean parallel = reader.isSplittable() && DataEngine.fileSize(filePath) >= parallelMinBytes
+                    && CompressedInput.detect(file) == CompressedInput.Codec.NONE;
+            DataSourceReader.Request request = new DataSourceReader.Request(file, statistics, progress, spec, parallel);
+
+            list = reader.read(request);
+
+            //statistics not gathered by the reader are gathered from the map/records
+            if (statistics != null && !request.isStatisticsGathered()) {
+                for (Map<String, String> record : list) {
+                    ColumnStatistics.update(statistics, record);
+                }//end for
+            }//end if
+
+        } catch (IOException ex) {
+            throw DataEngine.readFailed("importData", filePath, ex);
+        }//end try
+
+        progress.completed(list.size());
 
         return list;
 
     }//end importData
 
+    /**
+     * Import data set from its external data file with the statistics of each
+     * attribute, or from its snapshot if the external file has not changed
+     *
+     * @param name the data set name
+     * @return data set version of the map/records, typed columns and statistics
+     */
+    private EngineVersion.DataSetVersion importDataSet(final String name) {
+        return this.importDataSet(name, this.newImportProgress(name, null));
+    }//end importDataSet
+
+    /**
+     * Import data set from its external data file with the statistics of each
+     * attribute, or from its snapshot if the external file has not changed,
+     * and report the progress
+     *
+     * @param name the data set name
+     * @param progress progress of the import
+     * @return data set version of the map/records, typed columns and statistics
+     */
+    private EngineVersion.DataSetVersion importDataSet(final String name, final ImportProgress progress) {
+
+        try {
+            return this.readDataSet(name, progress);
+        } catch (RuntimeException ex) {
+            progress.failed(ex);
+            throw ex;
+        }//end try
+
+    }//end importDataSet
+
+    //read data set from its snapshot or external data file
+    private EngineVersion.DataSetVersion readDataSet(final String name, final ImportProgress progress) {
+
+        DataSetCatalog dataSetCatalog = this.catalog;
+        Path sourceFile = Paths.get(dataSetCatalog.getSource(name));
+        boolean snapshotOnly = dataSetCatalog.getPolicy(name) == DataSetCatalog.LoadPolicy.SNAPSHOT_ONLY;
+        LoadSpec.DataSetSpec spec = this.loadSpec.getDataSetSpec(name);
+        String snapshotKey = spec.getKey();  //null if filtered by a predicate, no snapshot
+        Path snapshotFile = (this.snapshotDirectory != null && snapshotKey != null) ? this.snapshotDirectory.resolve(name + snapshotKey + DataSetSnapshot.FILE_EXTENSION) : null;
+
+        if (snapshotFile != null) {
+            try {
+                //snapshot only data set is not checked against its external file, which may be gone
+                DataSetSnapshot snapshot = DataSetSnapshot.read(snapshotFile, snapshotOnly ? null : sourceFile, this.snapshotMappedFlag);
+                if (snapshot != null) {
+                    progress.completed(snapshot.getDataSet().size());
+                    return this.snapshotMappedFlag
+                            ? new EngineVersion.DataSetVersion(name, snapshot.getDataSet(), snapshot.getColumns(), dataSetCatalog.getColumnTypes(name), snapshot.getStatistics(), null)
+                            : this.storeOffHeap(name, snapshot.getDataSet(), snapshot.getColumns(), snapshot.getStatistics());
+                }//end if
+            } catch (IOException | RuntimeException ex) {
+                System.err.printf("Warning: snapshot %s not read, import from %s: %s%n", snapshotFile, sourceFile, ex);
+            }//end try
+        }//end if
+
+        if (snapshotOnly) {
+            throw new RuntimeException(String.format("DateEngine.readDataSet: no snapshot of data set '%s', which is read from its snapshot only!", name));
+        }//end if
+
+        Map<String, ColumnStatistics> statistics = new HashMap<>();
+        List<Map<String, String>> dataSet = DataEngine.importData(sourceFile.toString(), statistics, progress, this.parallelCsvMinBytes, spec,
+                dataSetCatalog.getFormat(name));
+
+        if (snapshotFile != null) {
+            try {
+                DataSetSnapshot.write(snapshotFile, sourceFile, dataSet, statistics);
+            } catch (IOException ex) {
+                System.err.printf("Warning: snapshot %s not written: %s%n", snapshotFile, ex);
+            }//end try
+        }//end if
+
+        return this.storeOffHeap(name, dataSet, Collections.emptyMap(), statistics);
+
+    }//end readDataSet
+
+    //progress of an import, sent as load events only if the publisher has subscribers
+    private ImportProgress newImportProgress(final String name, final LoadProgressListener listener) {
+        return new ImportProgress(name, listener, this.loadEventPublisher.hasSubscribers() ? this::publishLoadEvent : null);
+    }//end newImportProgress
+
+    private void publishLoadEvent(final LoadEvent event) {
+
+        if (event.getType() == LoadEvent.Type.BYTES_READ || event.getType() == LoadEvent.Type.RECORDS_DECODED) {
+            //progress for a subscriber with a full buffer is dropped, so it does not slow the import
+            this.loadEventPublisher.offer(event, (subscriber, dropped) -> {
+                this.droppedLoadEventCount.increment();
+                return false;
+            });
+        } else {
+            //file opened, data set completed and error wait for buffer space
+            this.loadEventPublisher.submit(event);
+        }//end if
+
+    }//end publishLoadEvent
+
+    /**
+     * get publisher of load events of the data sets: file opened, bytes read,
+     * batch of records decoded, data set completed, error; each subscriber
+     * requests events at its own pace, and bytes read or records decoded
+     * events a subscriber has no buffer space for are dropped
+     *
+     * @return Flow.Publisher of LoadEvent
+     */
+    public Flow.Publisher<LoadEvent> getLoadEventPublisher() {
+        return this.loadEventPublisher;
+    }//end getLoadEventPublisher
+
+    //number of progress events dropped for subscribers with a full buffer
+    public long getDroppedLoadEventCount() {
+        return this.droppedLoadEventCount.sum();
+    }//end getDroppedLoadEventCount
+
+    /**
+     * move data set to an off-heap store if selected for the data set
+     *
+     * @param name the data set name
+     * @param dataSet list of map/records on the heap
+     * @param columns typed columns already built
+     * @param statistics statistics of each attribute
+     * @return data set version, read from off-heap memory if selected
+     */
+    private EngineVersion.DataSetVersion storeOffHeap(final String name, final List<Map<String, String>> dataSet,
+            final Map<String, DataSetColumn> columns, final Map<String, ColumnStatistics> statistics) {
+
+        Map<String, DataSetColumn.ColumnType> columnTypes = this.catalog.hasDataSetName(name) ? this.catalog.getColumnTypes(name) : Collections.emptyMap();
+
+        if (!this.offHeapDataSetNames.contains(name)) {
+            return new EngineVersion.DataSetVersion(name, dataSet, columns, columnTypes, statistics, null);
+        }//end if
+
+        //memory returned once no version or reader refers to the records
+        OffHeapColumnStore store = OffHeapColumnStore.of(dataSet);
+
+        return new EngineVersion.DataSetVersion(name, store.getDataSet(), store.getColumns(), columnTypes, statistics, store);
+
+    }//end storeOffHeap
+
+    /**
+     * publish a new version with one data set added or replaced, and retire
+     * the version before; readers that have it pinned keep reading it
+     *
+     * @param dataSet the data set added or replaced
+     */
+    private void publish(final EngineVersion.DataSetVersion dataSet) {
+        synchronized (this.publishLock) {
+            this.swapVersion(this.currentVersion.get().with(dataSet));
+        }//end synchronized
+    }//end publish
+
+    /**
+     * publish a new version of only the given data sets, retire the version
+     * before, and clear the query results of it; a result of the version
+     * before computed while the data sets were imported is not cached
+     *
+     * @param dataSets data set name to data set, in order of the data sets
+     */
+    private void publishAll(final Map<String, EngineVersion.DataSetVersion> dataSets) {
+        synchronized (this.publishLock) {
+            this.swapVersion(new EngineVersion(this.currentVersion.get().getVersion() + 1, dataSets));
+            this.queryResultCache.clear();
+        }//end synchronized
+    }//end publishAll
+
+    private void swapVersion(final EngineVersion next) {
+        EngineVersion previous = this.currentVersion.getAndSet(next);
+        previous.retire();
+    }//end swapVersion
+
     /**
      * Import or load datum from external data files into internal data
-     * structures
+     * structures, each data set of the catalog by its load policy, in order
+     * of priority
      *
      */
     public final void loadData() {
@@ -260,216 +657,881 @@ public class DataEngine {
             System.out.printf("Starting Import Data Sets from Files.%n%n");
         }//end if
 
+        this.dataSetFutureMap = Collections.emptyMap();
+
+        DataSetCatalog dataSetCatalog = this.catalog;
+
+        //data sets of the next version, published once all eager data sets are imported
+        Map<String, EngineVersion.DataSetVersion> loaded = new HashMap<>();
+        Map<String, CompletableFuture<EngineVersion.DataSetVersion>> futureMap = new LinkedHashMap<>();
+        Set<String> lazyNames = new LinkedHashSet<>();
+
         try {
 
-            if (this.echoImportFlag) {
-                System.out.print("  Import County Population Tax CSV...    ");
-            }//end if
+            for (String name : dataSetCatalog.getLoadOrder()) {
+
+                switch (dataSetCatalog.getPolicy(name)) {
+                    case LAZY:
+                        lazyNames.add(name);
+                        continue;
+                    case BACKGROUND:
+                        futureMap.put(name, new CompletableFuture<>());
+                        continue;
+                    default:
+                        break;  //eager or snapshot only, loaded now
+                }//end switch
+
+                if (this.echoImportFlag) {
+                    System.out.printf("  Import %-31s", name + "...");
+                }//end if
 
-            timeStart = System.currentTimeMillis();
-            this.dataSetCountyPopulationTax = DataEngine.importData(DataEngine.fileNameCountyPopulationTax);
-            timeClose = System.currentTimeMillis();
+                timeStart = System.currentTimeMillis();
+                EngineVersion.DataSetVersion dataSet = this.importDataSet(name);
+                timeClose = System.currentTimeMillis();
 
-            if (this.echoImportFlag) {
-                System.out.printf("Done. %6d-records loaded. Time: %6d-mSec.%n%n", this.dataSetCountyPopulationTax.size(), (timeClose - timeStart));
-            }//end if
+                loaded.put(name, dataSet);
 
-            totalTime = totalTime + (timeClose - timeStart);
-            totalSize = totalSize + this.dataSetCountyPopulationTax.size();
+                if (this.echoImportFlag) {
+                    System.out.printf("Done. %6d-records loaded. Time: %6d-mSec.%n%n", dataSet.getDataSet().size(), (timeClose - timeStart));
+                }//end if
+
+                totalTime = totalTime + (timeClose - timeStart);
+                totalSize = totalSize + dataSet.getDataSet().size();
+
+            }//end for
 
             if (this.echoImportFlag) {
-                System.out.print("  Import USA County List CSV...          ");
+                System.out.printf("Finished Import Data Sets from Files.%n%n");
+                System.out.printf("Total %d-records imported in %d-mSec.%n%n", totalSize, totalTime);
             }//end if
 
-            timeStart = System.currentTimeMillis();
+            //publish the data sets as one version, in order of the catalog; query results of the previous are cleared with it
+            Map<String, EngineVersion.DataSetVersion> dataSets = new LinkedHashMap<>();
+            for (String name : dataSetCatalog.getDataSetNames()) {
+                if (loaded.containsKey(name)) {
+                    dataSets.put(name, loaded.get(name));
+                }//end if
+            }//end for
 
-            this.dataSetCountyList = DataEngine.importData(DataEngine.fileNameCountyList);
+            this.publishAll(dataSets);
 
-            timeClose = System.currentTimeMillis();
+            //futures are visible before any background import starts, so no data set is missed
+            this.dataSetFutureMap = futureMap.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(futureMap);
+            this.lazyDataSetNames = Collections.unmodifiableSet(lazyNames);
+            this.dataEngineReadyFlag = true;
 
-            if (this.echoImportFlag) {
-                System.out.printf("Done. %6d-records loaded. Time: %6d-mSec.%n%n", this.dataSetCountyList.size(), (timeClose - timeStart));
-            }//end if
+            this.importInBackground(futureMap, ForkJoinPool.commonPool(), null);
 
-            totalTime = totalTime + (timeClose - timeStart);
-            totalSize = totalSize + this.dataSetCountyList.size();
+            //precompute the county, state, nation rollups, on first use if a data set is not imported yet
+            this.geographyCube = (lazyNames.isEmpty() && futureMap.isEmpty()) ? GeographyCube.build(this, GeographyCube.defaultMeasures()) : null;
 
-            if (this.echoImportFlag) {
-                System.out.print("  Import County Unemployment Excel...    ");
-            }//end if
+        } catch (Exception ex) {
+            System.err.printf("Error: %s%n%n", ex.getMessage());
+            ex.printStackTrace();
+        }//end try
 
-            timeStart = System.currentTimeMillis();
-            this.dataSetCountyUnemployment = DataEngine.importData(DataEngine.fileNameCountyUnemployment);
-            timeClose = System.currentTimeMillis();
+    }//end loadData
 
-            if (this.echoImportFlag) {
-                System.out.printf("Done. %6d-records loaded. Time: %6d-mSec.%n%n", this.dataSetCountyPopulationTax.size(), (timeClose - timeStart));
+    /**
+     * Import data sets from their external data files in the background on
+     * the common pool, with no progress listener
+     *
+     * @return future of the data engine, completed when every data set is imported
+     */
+    public CompletableFuture<DataEngine> loadDataAsync() {
+        return this.loadDataAsync(ForkJoinPool.commonPool(), null);
+    }//end loadDataAsync
+
+    /**
+     * Import data sets from their external data files in the background, each
+     * data set in its own task; the data engine is ready at once, and a data
+     * set got by name waits only until that data set is imported
+     *
+     * @param executor executor to import the data sets on
+     * @param listener listener of records loaded and bytes read, or null
+     * @return future of the data engine, completed when every data set is
+     * imported, or completed exceptionally if a data set cannot be imported
+     */
+    public CompletableFuture<DataEngine> loadDataAsync(final Executor executor, final LoadProgressListener listener) {
+
+        //query results of previous data sets are cleared once no longer published
+        this.publishAll(Collections.emptyMap());
+        this.geographyCube = null;
+
+        //futures are visible before any import starts, so no data set is missed
+        Map<String, CompletableFuture<EngineVersion.DataSetVersion>> futureMap = new LinkedHashMap<>();
+        for (String name : this.catalog.getDataSetNames()) {
+            futureMap.put(name, new CompletableFuture<>());
+        }//end for
+
+        this.dataSetFutureMap = Collections.unmodifiableMap(futureMap);
+        this.lazyDataSetNames = Collections.emptySet();
+        this.dataEngineReadyFlag = true;
+
+        this.importInBackground(futureMap, executor, listener);
+
+        //precompute the county, state, nation rollups once every data set is imported
+        return CompletableFuture.allOf(futureMap.values().toArray(new CompletableFuture<?>[0]))
+                .thenApplyAsync(ignore -> {
+                    this.getGeographyCube();
+                    return this;
+                }, executor);
+
+    }//end loadDataAsync
+
+    /**
+     * import data sets in the background, each in its own task submitted in
+     * order of priority, and complete the future of each
+     *
+     * @param futureMap data set name to future of the data set
+     * @param executor executor to import the data sets on
+     * @param listener listener of records loaded and bytes read, or null
+     */
+    private void importInBackground(final Map<String, CompletableFuture<EngineVersion.DataSetVersion>> futureMap, final Executor executor,
+            final LoadProgressListener listener) {
+
+        for (String name : this.catalog.getLoadOrder()) {
+
+            CompletableFuture<EngineVersion.DataSetVersion> future = futureMap.get(name);
+
+            if (future == null) {
+                continue;
             }//end if
 
-            totalTime = totalTime + (timeClose - timeStart);
-            totalSize = totalSize + this.dataSetCountyUnemployment.size();
+            executor.execute(() -> {
+                try {
+                    future.complete(this.importDataSetAsync(name, listener));
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }//end try
+            });
 
-            if (this.echoImportFlag) {
-                System.out.print("  Import Exports By State Excel...       ");
+        }//end for
+
+    }//end importInBackground
+
+    //import one data set in the background, and publish a version with it
+    private EngineVersion.DataSetVersion importDataSetAsync(final String name, final LoadProgressListener listener) {
+
+        long timeStart = System.currentTimeMillis();
+
+        EngineVersion.DataSetVersion dataSet = this.importDataSet(name, this.newImportProgress(name, listener));
+        this.publish(dataSet);
+
+        if (this.echoImportFlag) {
+            System.out.printf("  Imported %s. %6d-records loaded. Time: %6d-mSec.%n", name, dataSet.getDataSet().size(), System.currentTimeMillis() - timeStart);
+        }//end if
+
+        return dataSet;
+
+    }//end importDataSetAsync
+
+    /**
+     * get future of a data set, completed when the data set is imported; in
+     * lazy mode the data set is imported in the background if not yet
+     *
+     * @param name the data set name
+     * @return future of list of map/records, completed exceptionally if the
+     * data set cannot be imported or the name is not valid
+     */
+    public CompletableFuture<List<Map<String, String>>> getDataSetFuture(final String name) {
+
+        EngineVersion.DataSetVersion dataSet = this.currentVersion.get().getDataSetVersion(name);
+
+        if (dataSet != null) {
+            return CompletableFuture.completedFuture(dataSet.getDataSet());
+        }//end if
+
+        CompletableFuture<EngineVersion.DataSetVersion> future = this.dataSetFutureMap.get(name);
+
+        if (future != null) {
+            return future.thenApply(EngineVersion.DataSetVersion::getDataSet);
+        }//end if
+
+        return CompletableFuture.supplyAsync(() -> this.getDataSetByName(name), ForkJoinPool.commonPool());
+
+    }//end getDataSetFuture
+
+    //wait for data set being imported, its failure thrown as is
+    private static EngineVersion.DataSetVersion await(final CompletableFuture<EngineVersion.DataSetVersion> future) {
+
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
             }//end if
+            throw ex;
+        }//end try
 
-            timeStart = System.currentTimeMillis();
-            this.dataSetStateExports = DataEngine.importData(DataEngine.fileNameStateExports);
-            timeClose = System.currentTimeMillis();
+    }//end await
 
-            if (this.echoImportFlag) {
-                System.out.printf("Done. %6d-records loaded. Time: %6d-mSec.%n%n", this.dataSetStateExports.size(), (timeClose - timeStart));
+    /**
+     * get name of external data file of a data set of the default catalog
+     *
+     * @param name the data set name
+     * @return file name of the external data file
+     */
+    public static String getDataSetFileName(final String name) {
+
+        if (!DataSetCatalog.DEFAULT.hasDataSetName(name)) {
+            throw new RuntimeException(String.format("DateEngine.getDataSetFileName: '%s' is not a valid name for data sets!", name));
+        }//end if
+
+        return DataSetCatalog.DEFAULT.getSource(name);
+
+    }//end getDataSetFileName
+
+    /**
+     * Prepare data engine to import each data set from its external data file
+     * on first use, when the data set is got by name; data sets not used are
+     * not imported
+     *
+     */
+    public final void loadDataLazy() {
+
+        //query results of previous data sets are cleared once no longer published
+        this.publishAll(Collections.emptyMap());
+        this.dataSetFutureMap = Collections.emptyMap();
+        this.geographyCube = null;
+
+        this.lazyDataSetNames = new LinkedHashSet<>(this.catalog.getDataSetNames());
+        this.dataEngineReadyFlag = true;
+
+    }//end loadDataLazy
+
+    /**
+     * Import data set on first use in lazy mode, once, while other callers of
+     * the same data set wait for it, and publish a version with it
+     *
+     * @param name the data set name
+     * @return data set version of the data set
+     */
+    private EngineVersion.DataSetVersion loadDataSetOnce(final String name) {
+
+        EngineVersion.DataSetVersion dataSet = this.currentVersion.get().getDataSetVersion(name);
+
+        if (dataSet != null) {
+            return dataSet;
+        }//end if
+
+        return this.dataSetLoadFlights.execute(name, () -> {
+
+            //check again, loaded by a caller that finished before this one started
+            EngineVersion.DataSetVersion loaded = this.currentVersion.get().getDataSetVersion(name);
+
+            if (loaded == null) {
+
+                if (this.echoImportFlag) {
+                    System.out.printf("  Import %s on first use...%n", name);
+                }//end if
+
+                loaded = this.importDataSet(name);
+                this.publish(loaded);
             }//end if
 
-            totalTime = totalTime + (timeClose - timeStart);
-            totalSize = totalSize + this.dataSetStateExports.size();
+            return loaded;
 
-            if (this.echoImportFlag) {
-                System.out.print("  Import State Tax Rates Excel...        ");
+        });
+
+    }//end loadDataSetOnce
+
+    /**
+     * Import again one data set from its external data file, and publish a
+     * new version with it; readers that pinned a version before, or got the
+     * previous data set by name, keep reading the previous data set. A data
+     * set still imported in the background is imported again once that is
+     * done, and one not used yet in lazy mode is imported once
+     *
+     * @param name the data set name
+     */
+    public final void reloadDataSet(final String name) {
+
+        if (!this.dataEngineReadyFlag) {
+            throw new RuntimeException("Data engine not initialized with imported data from external files!");
+        }//end if
+
+        if (!this.catalog.hasDataSetName(name)) {
+            throw new RuntimeException(String.format("DateEngine.reloadDataSet: '%s' is not a valid name for data sets!", name));
+        }//end if
+
+        //not used yet, imported now from the file as it is
+        if (this.lazyDataSetNames.contains(name) && this.currentVersion.get().getDataSetVersion(name) == null) {
+            this.loadDataSetOnce(name);
+            return;
+        }//end if
+
+        //being imported in the background, wait with no lock held so the reload is published after it
+        CompletableFuture<EngineVersion.DataSetVersion> future = this.dataSetFutureMap.get(name);
+        if (future != null) {
+            future.handle((dataSet, ex) -> dataSet).join();
+        }//end if
+
+        //one reload at a time, imported while the engine is not held
+        synchronized (this.reloadLock) {
+
+            this.publish(this.importDataSet(name));
+
+            //query results of the previous data set are no longer valid
+            this.queryResultCache.invalidate(name);
+
+            synchronized (this) {
+                if (this.geographyCube != null) {
+                    this.geographyCube = this.geographyCube.refresh(this, name);
+                }//end if
+            }//end synchronized
+
+        }//end synchronized
+
+    }//end reloadDataSet
+
+    /**
+     * publish a data set derived from other data sets, e.g. a join or filter
+     * of them, in a new version; readers of earlier versions do not see it
+     *
+     * @param name the name of the derived data set, not a data set of a file
+     * @param dataSet list of map/records of the derived data set, copied
+     */
+    public final void publishDataSet(final String name, final List<Map<String, String>> dataSet) {
+
+        if (!this.dataEngineReadyFlag) {
+            throw new RuntimeException("Data engine not initialized with imported data from external files!");
+        }//end if
+
+        if (this.catalog.hasDataSetName(name)) {
+            throw new RuntimeException(String.format("DateEngine.publishDataSet: '%s' is the name of a data set of a file, reload it instead!", name));
+        }//end if
+
+        List<Map<String, String>> copy = new ArrayList<>(dataSet.size());
+        Map<String, ColumnStatistics> statistics = new HashMap<>();
+
+        for (Map<String, String> record : dataSet) {
+            Map<String, String> recordCopy = new LinkedHashMap<>(record);
+            copy.add(recordCopy);
+            ColumnStatistics.update(statistics, recordCopy);
+        }//end for
+
+        this.publish(new EngineVersion.DataSetVersion(name, copy, Collections.emptyMap(), statistics, null));
+        this.queryResultCache.invalidate(name);
+
+    }//end publishDataSet
+
+    /**
+     * pin the current version of the data sets, to read data sets consistent
+     * with each other while newer versions are published; close the version
+     * to unpin it, e.g. with try-with-resources. In lazy mode the version has
+     * the data sets imported so far
+     *
+     * @return EngineVersion pinned for the caller
+     */
+    public EngineVersion pinVersion() {
+
+        if (!this.dataEngineReadyFlag) {
+            throw new RuntimeException("Data engine not initialized with imported data from external files!");
+        }//end if
+
+        while (true) {
+            EngineVersion version = this.currentVersion.get();
+            if (version.tryPin()) {
+                return version;
             }//end if
+            //retired and reclaimed since read, a newer version is current
+        }//end while
+
+    }//end pinVersion
+
+    /**
+     * watch the external data files, and reload a data set in the background
+     * when its file changes; readers see the previous data set until the
+     * new data set is swapped in
+     *
+     */
+    public synchronized void startWatching() {
+
+        if (this.dataSetWatcher != null) {
+            return;
+        }//end if
+
+        try {
+            this.dataSetWatcher = new DataSetWatcher(this, DataSetWatcher.DEFAULT_QUIET_MILLIS, this.echoImportFlag);
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format("DateEngine.startWatching: cannot watch data files: %s!", ex.getMessage()), ex);
+        }//end try
+
+    }//end startWatching
 
-            timeStart = System.currentTimeMillis();
-            this.dataSetStateTaxRates = DataEngine.importData(DataEngine.fileNameStateTaxRates);
-            timeClose = System.currentTimeMillis();
+    //stop watching the external data files
+    public synchronized void stopWatching() {
+
+        if (this.dataSetWatcher != null) {
+            this.dataSetWatcher.close();
+            this.dataSetWatcher = null;
+        }//end if
+
+    }//end stopWatching
+
+    /**
+     * get all data sets as list
+     *
+     * @return List< List<Map<String,String> > > list of the data sets
+     * containing the data
+     */
+    public List<List<Map<String, String>>> getListDataSets() {
+        if (!this.dataEngineReadyFlag) {
+            throw new RuntimeException("Data engine not initialized with imported data from external files!");
+        }//end if 
+
+        //lazy mode imports every data set not used yet, asynchronous mode waits for each
+        if (!this.lazyDataSetNames.isEmpty() || !this.dataSetFutureMap.isEmpty()) {
+            List<List<Map<String, String>>> list = new ArrayList<>();
+            for (String name : this.getDataSetNames()) {
+                list.add(this.getDataSetByName(name));
+            }//end for
+            return Collections.unmodifiableList(list);
+        }//end if
+
+        //every data set from the same version
+        EngineVersion version = this.currentVersion.get();
+        List<List<Map<String, String>>> list = new ArrayList<>(version.getDataSetNames().size());
+        for (String name : version.getDataSetNames()) {
+            list.add(version.getDataSetByName(name));
+        }//end for
+
+        return Collections.unmodifiableList(list);
+    }//end getListDataSet
+
+    /**
+     * get data set by name
+     *
+     * @return List <Map<String,String>> of data set list of read-only
+     * map/records containing the data, of the current version
+     */
+    public List<Map<String, String>> getDataSetByName(final String name) {
+        return this.getDataSetVersion(name).getDataSet();
+    }//end getDataSetByName
+
+    //data set of the current version, in lazy mode imported if not yet
+    private EngineVersion.DataSetVersion getDataSetVersion(final String name) {
+        if (!this.dataEngineReadyFlag) {
+            throw new RuntimeException("Data engine not initialized with imported data from external files!");
+        }//end if
+
+        if (this.lazyDataSetNames.contains(name)) {
+            return this.loadDataSetOnce(name);
+        }//end if
+
+        EngineVersion.DataSetVersion dataSet = this.currentVersion.get().getDataSetVersion(name);
+        CompletableFuture<EngineVersion.DataSetVersion> future = this.dataSetFutureMap.get(name);
+
+        if (dataSet == null && future != null) {
+            dataSet = DataEngine.await(future);  //being imported, wait for it
+        }//end if
+
+        if (dataSet == null) {
+            throw new RuntimeException(String.format("DateEngine.getDataSetByName: '%s' is not a valid name for data sets!", name));
+        }//end if
+
+        return dataSet;
+    }//end getDataSetVersion
+
+    /**
+     * check if has data set by name
+     *
+     * @return boolean if data set by given name exists in data engine, in
+     * lazy mode the data set is imported if not yet
+     */
+    public boolean hasDataSetName(final String name) {
+        if (!this.dataEngineReadyFlag) {
+            throw new RuntimeException("Data engine not initialized with imported data from external files!");
+        }//end if
+
+        if (this.lazyDataSetNames.contains(name)) {
+            this.loadDataSetOnce(name);
+            return true;
+        }//end if
+
+        if (this.currentVersion.get().hasDataSetName(name)) {
+            return true;
+        }//end if
+
+        //being imported, wait for it
+        CompletableFuture<EngineVersion.DataSetVersion> future = this.dataSetFutureMap.get(name);
+        return future != null && future.handle((dataSet, ex) -> ex == null).join();
+    }//end hasDataSetName
+
+    /**
+     * get names of data sets
+     *
+     * @return Set<String> set of String of data set names
+     */
+    public Set<String> getDataSetNames() {
+        if (!this.dataEngineReadyFlag) {
+            throw new RuntimeException("Data engine not initialized with imported data from external files!");
+        }//end if
+
+        //lazy and asynchronous modes have the data sets not imported yet
+        if (!this.lazyDataSetNames.isEmpty() || !this.dataSetFutureMap.isEmpty()) {
+            Set<String> nameSet = new LinkedHashSet<>(this.catalog.getDataSetNames());
+            nameSet.addAll(this.currentVersion.get().getDataSetNames());
+            return Collections.unmodifiableSet(nameSet);
+        }//end if
+
+        return this.currentVersion.get().getDataSetNames();
+    }//end getDataSetNames
+
+    /**
+     * get typed column of an attribute in a data set, the column is built
+     * from the data set on first use and then reused while the data set is
+     * in the current version
+     *
+     * @param name the data set name
+     * @param attrName the attribute name (header) in the data set
+     * @return DataSetColumn with the attribute values in a primitive array
+     */
+    public DataSetColumn getDataSetColumn(final String name, final String attrName) {
+        return this.getDataSetVersion(name).getColumn(attrName);
+    }//end getDataSetColumn
+
+    /**
+     * aggregate attribute of a data set grouped by key attributes, such as
+     * average median income per state; no key attributes for national total
+     *
+     * @param name the data set name
+     * @param attrName the numeric attribute to aggregate, null to count rows
+     * @param keyAttrNames the attributes to group by
+     * @return GroupByAggregate.Result with COUNT, SUM, MIN, MAX, AVG, VAR of each group
+     */
+    public GroupByAggregate.Result aggregate(final String name, final String attrName, final String... keyAttrNames) {
+
+        List<DataSetColumn> keyColumns = new ArrayList<>(keyAttrNames.length);
+        for (String keyAttrName : keyAttrNames) {
+            keyColumns.add(this.getDataSetColumn(name, keyAttrName));
+        }//end for
+
+        DataSetColumn valueColumn = (attrName != null) ? this.getDataSetColumn(name, attrName) : null;
+
+        return GroupByAggregate.aggregate(valueColumn, keyColumns);
+
+    }//end aggregate
+
+    /**
+     * query attribute of a data set against values, the result is cached so
+     * the same query again is answered without a scan of the data set, and
+     * the same query asked while it is computed waits for that computation;
+     * the result and its rows are shared with every caller of the query, so
+     * a caller that changes them copies them first
+     *
+     * @param query the query of the data set
+     * @return unmodifiable list of Object[]{attribute value, row index}, not to be changed
+     */
+    public List<Object[]> query(final DataSetQuery query) {
+
+        if (!this.queryInstrumentation.isEnabled()) {
+            return this.lookupQuery(query);
+        }//end if
+
+        long start = System.nanoTime();
+
+        try {
+            List<Object[]> result = this.lookupQuery(query);
+            this.recordQuery(query, start, result, null);
+            return result;
+        } catch (RuntimeException ex) {
+            this.recordQuery(query, start, null, ex);
+            throw ex;
+        }//end try
+
+    }//end query
+
+    /**
+     * record latency and rows of a query answered by any of query, queryAsync
+     * and queryBatch, or its error; a query cancelled is not recorded
+     *
+     * @param query the query
+     * @param start time the query was asked, from System.nanoTime
+     * @param result the query result, null if the query failed
+     * @param error the failure of the query, null if answered
+     */
+    private void recordQuery(final DataSetQuery query, final long start, final List<Object[]> result, final Throwable error) {
+
+        if (!this.queryInstrumentation.isEnabled() || error instanceof CancellationException) {
+            return;
+        }//end if
+
+        if (error == null) {
+            this.queryInstrumentation.record(query, System.nanoTime() - start, result.size());
+        } else {
+            this.queryInstrumentation.recordError(query);
+        }//end if
+
+    }//end recordQuery
+
+    //cached result of query, or computed once for callers at the same time
+    private List<Object[]> lookupQuery(final DataSetQuery query) {
+
+        List<Object[]> result = this.queryResultCache.get(query);
+
+        if (result == null) {
+            long generation = this.queryResultCache.getGeneration(query.getDataSetName());
+            result = this.queryFlights.execute(new AbstractMap.SimpleImmutableEntry<>(query, generation),
+                    () -> this.executeQuery(query, generation));
+        }//end if
+
+        return result;
+
+    }//end lookupQuery
+
+    /**
+     * query attribute of a data set against values without waiting, the same
+     * query asked while it is computed attaches to that computation; cancel
+     * of the future does not change the result of other callers
+     *
+     * @param query the query of the data set
+     * @return future of unmodifiable list of Object[]{attribute value, row index}
+     */
+    public CompletableFuture<List<Object[]>> queryAsync(final DataSetQuery query) {
+
+        long start = System.nanoTime();
+        List<Object[]> result = this.queryResultCache.get(query);
+
+        if (result != null) {
+            this.recordQuery(query, start, result, null);
+            return CompletableFuture.completedFuture(result);
+        }//end if
+
+        long generation = this.queryResultCache.getGeneration(query.getDataSetName());
+
+        CompletableFuture<List<Object[]>> future = this.queryFlights.submit(new AbstractMap.SimpleImmutableEntry<>(query, generation),
+                () -> this.executeQuery(query, generation), ForkJoinPool.commonPool());
+
+        //recorded when answered, the future returned is the one of the caller so a cancel is not changed
+        future.whenComplete((list, ex) -> this.recordQuery(query, start, list, ex));
+
+        return future;
+
+    }//end queryAsync
+
+    /**
+     * run many queries of one data set in one shared scan, so the rows are
+     * read once and not once for each query; cached queries are not scanned
+     *
+     * @param name the data set name
+     * @param queries the queries of the data set
+     * @return one unmodifiable list of Object[]{attribute value, row index} for each query, in order
+     */
+    public List<List<Object[]>> queryBatch(final String name, final List<DataSetQuery> queries) {
+
+        long start = System.nanoTime();
+
+        try {
+            //each query of the batch recorded with the time of the shared scan
+            List<List<Object[]>> results = this.lookupBatch(name, queries);
+            for (int idx = 0; idx < queries.size(); idx++) {
+                this.recordQuery(queries.get(idx), start, results.get(idx), null);
+            }//end for
+            return results;
+        } catch (RuntimeException ex) {
+            for (DataSetQuery query : queries) {
+                this.recordQuery(query, start, null, ex);
+            }//end for
+            throw ex;
+        }//end try
 
-            if (this.echoImportFlag) {
-                System.out.printf("Done. %6d-records loaded. Time: %6d-mSec.%n%n", this.dataSetStateTaxRates.size(), (timeClose - timeStart));
-            }//end if
+    }//end queryBatch
 
-            totalTime = totalTime + (timeClose - timeStart);
-            totalSize = totalSize + this.dataSetStateTaxRates.size();
+    //cached results of queries of a data set, the others answered in one shared scan
+    private List<List<Object[]>> lookupBatch(final String name, final List<DataSetQuery> queries) {
 
-            if (this.echoImportFlag) {
-                System.out.print("  Import County Median Income JSON...    ");
+        for (DataSetQuery query : queries) {
+            if (!query.getDataSetName().equals(name)) {
+                throw new RuntimeException(String.format("DateEngine.queryBatch: query '%s' is not of data set '%s'!", query, name));
             }//end if
+        }//end for
 
-            timeStart = System.currentTimeMillis();
-            this.dataSetCountyMedianIncome = DataEngine.importData(DataEngine.fileNameCountyMedianIncome);
-            timeClose = System.currentTimeMillis();
-
-            if (this.echoImportFlag) {
-                System.out.printf("Done. %6d-records loaded. Time: %6d-mSec.%n%n", this.dataSetCountyMedianIncome.size(), (timeClose - timeStart));
-            }//end if
+        //read generation before data set, so a reload in between is not cached
+        long generation = this.queryResultCache.getGeneration(name);
+        List<Map<String, String>> dataSet = this.getDataSetByName(name);
 
-            totalTime = totalTime + (timeClose - timeStart);
-            totalSize = totalSize + this.dataSetCountyMedianIncome.size();
+        List<List<Object[]>> results = new ArrayList<>(Collections.nCopies(queries.size(), (List<Object[]>) null));
+        Map<DataSetQuery, List<Integer>> missMap = new HashMap<>();
 
-            if (this.echoImportFlag) {
-                System.out.print("  Import County Employment Wages XML...  ");
+        for (int idx = 0; idx < queries.size(); idx++) {
+            DataSetQuery query = queries.get(idx);
+            List<Object[]> result = missMap.containsKey(query) ? null : this.queryResultCache.get(query);
+            if (result != null) {
+                results.set(idx, result);
+            } else {
+                missMap.computeIfAbsent(query, key -> new ArrayList<>()).add(idx);
             }//end if
+        }//end for
 
-            timeStart = System.currentTimeMillis();
-            this.dataSetCountyEmploymentWages = DataEngine.importData(DataEngine.fileNameCountyEmploymentWages);
-            timeClose = System.currentTimeMillis();
+        if (!missMap.isEmpty()) {
 
-            if (this.echoImportFlag) {
-                System.out.printf("Done. %6d-records loaded. Time: %6d-mSec.%n%n", this.dataSetCountyEmploymentWages.size(), (timeClose - timeStart));
-            }//end if
+            List<DataSetQuery> misses = new ArrayList<>(missMap.keySet());
+            List<List<Object[]>> scanned = DataSetQuery.executeBatch(dataSet, misses);
 
-            totalTime = totalTime + (timeClose - timeStart);
-            totalSize = totalSize + this.dataSetCountyEmploymentWages.size();
+            for (int idx = 0; idx < misses.size(); idx++) {
+                List<Object[]> result = Collections.unmodifiableList(scanned.get(idx));
+                this.queryResultCache.put(misses.get(idx), result, generation);
+                for (int pos : missMap.get(misses.get(idx))) {
+                    results.set(pos, result);
+                }//end for
+            }//end for
 
-            if (this.echoImportFlag) {
-                System.out.printf("Finished Import Data Sets from Files.%n%n");
-                System.out.printf("Total %d-records imported in %d-mSec.%n%n", totalSize, totalTime);
-            }//end if
+        }//end if
 
-            //create the list and map that allow collective/centralized access to all data sets
-            this.dataSetList = new ArrayList<>(8);
-            this.dataSetMap = new HashMap<>(8);
+        return results;
 
-            this.dataSetList.add(this.dataSetCountyEmploymentWages);
-            this.dataSetMap.put("CountyEmploymentWages", this.dataSetCountyEmploymentWages);
+    }//end lookupBatch
 
-            this.dataSetList.add(this.dataSetCountyList);
-            this.dataSetMap.put("CountyList", this.dataSetCountyList);
+    //scan data set for query and cache result, generation read before data set
+    private List<Object[]> executeQuery(final DataSetQuery query, final long generation) {
 
-            this.dataSetList.add(this.dataSetCountyMedianIncome);
-            this.dataSetMap.put("CountyMedianIncome", this.dataSetCountyMedianIncome);
+        List<Map<String, String>> dataSet = this.getDataSetByName(query.getDataSetName());
 
-            this.dataSetList.add(this.dataSetCountyPopulationTax);
-            this.dataSetMap.put("CountyPopulationTax", this.dataSetCountyPopulationTax);
+        List<Object[]> result = Collections.unmodifiableList(query.execute(dataSet));
+        this.queryResultCache.put(query, result, generation);
 
-            this.dataSetList.add(this.dataSetCountyUnemployment);
-            this.dataSetMap.put("CountyUnemployment", this.dataSetCountyUnemployment);
+        return result;
 
-//            this.dataSetList.add(this.dataSetCountyWorkforceWages);
-//            this.dataSetMap.put("CountyWorkforceWages", this.dataSetCountyWorkforceWages);
-            this.dataSetList.add(this.dataSetStateExports);
-            this.dataSetMap.put("StateExports", this.dataSetStateExports);
+    }//end executeQuery
 
-            this.dataSetList.add(this.dataSetStateTaxRates);
-            this.dataSetMap.put("StateTaxRates", this.dataSetStateTaxRates);
+    /**
+     * query attribute of a data set against values with operator
+     *
+     * @param name the data set name
+     * @param attrName the attribute name (header) in the data set
+     * @param op the comparison operator, null for all values of attribute
+     * @param values the values to compare against
+     * @return unmodifiable list of Object[]{attribute value, row index}, not to be changed
+     */
+    public List<Object[]> query(final String name, final String attrName, final QueryOperator op, final String... values) {
+        return this.query(new DataSetQuery(name, attrName, op, values));
+    }//end query
 
-            //initialize list of each data set name using the map
-            this.dataSetNames = this.dataSetMap.keySet();
+    /**
+     * set memory budget of the query result cache
+     *
+     * @param budgetBytes the memory budget in bytes, 0 to turn off caching
+     */
+    public void setQueryCacheBudget(final long budgetBytes) {
+        this.queryResultCache.setBudgetBytes(budgetBytes);
+    }//end setQueryCacheBudget
 
-            this.dataEngineReadyFlag = true;
+    /**
+     * get hits, misses, evictions and size of the query result cache
+     *
+     * @return QueryResultCache.Statistics snapshot
+     */
+    public QueryResultCache.Statistics getQueryCacheStatistics() {
+        return this.queryResultCache.getStatistics();
+    }//end getQueryCacheStatistics
 
-        } catch (Exception ex) {
-            System.err.printf("Error: %s%n%n", ex.getMessage());
-            ex.printStackTrace();
-        }//end try
+    /**
+     * get counters and latency histograms of queries, enabled with
+     * QueryInstrumentation.setEnabled
+     *
+     * @return QueryInstrumentation of this data engine
+     */
+    public QueryInstrumentation getQueryInstrumentation() {
+        return this.queryInstrumentation;
+    }//end getQueryInstrumentation
 
-    }//end loadData
+    /**
+     * get number of queries that waited for the same query being computed
+     * instead of a scan of their own
+     *
+     * @return number of coalesced queries
+     */
+    public long getCoalescedQueryCount() {
+        return this.queryFlights.getCoalescedCount();
+    }//end getCoalescedQueryCount
 
     /**
-     * get all data sets as list
+     * get statistics of an attribute of a data set gathered on import, for
+     * approximate quantiles and distinct counts without a scan
      *
-     * @return List< List<Map<String,String> > > list of the data sets
-     * containing the data
+     * @param name the data set name
+     * @param attrName the attribute name (header) in the data set
+     * @return ColumnStatistics of the attribute
      */
-    public List<List<Map<String, String>>> getListDataSets() {
-        if (!this.dataEngineReadyFlag) {
-            throw new RuntimeException("Data engine not initialized with imported data from external files!");
-        }//end if 
-        return this.dataSetList;
-    }//end getListDataSet
+    public ColumnStatistics getColumnStatistics(final String name, final String attrName) {
+
+        return this.getDataSetVersion(name).getStatistics(attrName);
+
+    }//end getColumnStatistics
 
     /**
-     * get data set by name
+     * get precomputed county, state, nation rollups of the data sets
      *
-     * @return List <Map<String,String>> of data set list of map/records
-     * containing the data
+     * @return GeographyCube built after the data was loaded, in lazy and
+     * asynchronous modes built on first use
      */
-    public List<Map<String, String>> getDataSetByName(final String name) {
+    public GeographyCube getGeographyCube() {
         if (!this.dataEngineReadyFlag) {
             throw new RuntimeException("Data engine not initialized with imported data from external files!");
         }//end if
 
-        if (this.hasDataSetName(name)) {
-            return this.dataSetMap.get(name);
-        } else {
-            throw new RuntimeException(String.format("DateEngine.getDataSetByName: '%s' is not a valid name for data sets!", name));
+        if (this.geographyCube == null && (!this.lazyDataSetNames.isEmpty() || !this.dataSetFutureMap.isEmpty())) {
+
+            List<GeographyCube.Measure> measures = GeographyCube.defaultMeasures();
+
+            //wait for or import the data sets of the cube before the engine is held, so
+            //the cube is built from data sets published and no import is waited for held
+            Set<String> nameSet = new LinkedHashSet<>();
+            nameSet.add(GeographyCube.GEOGRAPHY_DATA_SET);
+            for (GeographyCube.Measure measure : measures) {
+                nameSet.add(measure.getDataSetName());
+            }//end for
+
+            for (String name : nameSet) {
+                this.hasDataSetName(name);
+            }//end for
+
+            synchronized (this) {
+                if (this.geographyCube == null) {
+                    this.geographyCube = GeographyCube.build(this, measures);
+                }//end if
+            }//end synchronized
+
         }//end if
 
-    }//end getDataSetByName
+        return this.geographyCube;
+    }//end getGeographyCube
 
     /**
-     * check if has data set by name
+     * get spliterator over the row ids of a data set, splits evenly for
+     * parallel streams
      *
-     * @return boolean if data set by given name exists in data engine
+     * @param name the data set name
+     * @return Spliterator.OfInt over row ids [0, size) of the data set
      */
-    public boolean hasDataSetName(final String name) {
-        if (!this.dataEngineReadyFlag) {
-            throw new RuntimeException("Data engine not initialized with imported data from external files!");
-        }//end if
-
-        return this.dataSetNames.contains(name);
-    }//end hasDataSetName
+    public Spliterator.OfInt getDataSetSpliterator(final String name) {
+        return new DataSetSpliterator(this.getDataSetByName(name).size());
+    }//end getDataSetSpliterator
 
     /**
-     * get names of data sets
+     * get stream of the row ids of a data set
      *
-     * @return Set<String> set of String of data set names
+     * @param name the data set name
+     * @param parallel true for a parallel stream
+     * @return IntStream of row ids of the data set
      */
-    public Set<String> getDataSetNames() {
-        if (!this.dataEngineReadyFlag) {
-            throw new RuntimeException("Data engine not initialized with imported data from external files!");
-        }//end if
+    public IntStream getDataSetRowStream(final String name, final boolean parallel) {
+        return StreamSupport.intStream(this.getDataSetSpliterator(name), parallel);
+    }//end getDataSetRowStream
 
-        return this.dataSetNames;
-    }//end getDataSetNames
+    /**
+     * get stream of the map/records of a data set
+     *
+     * @param name the data set name
+     * @param parallel true for a parallel stream
+     * @return Stream of map/records of the data set
+     */
+    public Stream<Map<String, String>> getDataSetRecordStream(final String name, final boolean parallel) {
+        final List<Map<String, String>> dataSet = this.getDataSetByName(name);
+        return this.getDataSetRowStream(name, parallel).mapToObj(dataSet::get);
+    }//end getDataSetRecordStream
 
     /**
      * Returns list of maps/records from reading data from external data file in
@@ -479,52 +1541,173 @@ public class DataEngine {
      * @return list of map/record read from the external file
      */
     public static List<Map<String, String>> readCSV(final String filePath) {
+        return DataEngine.readCSV(filePath, new ImportProgress(filePath, null), LoadSpec.DataSetSpec.ALL);
+    }// end readCSV
 
-        if (Files.notExists(Paths.get(filePath))) {
-            System.err.printf("Error: File %s not found!%n%n", filePath);
-            System.exit(1);
-        }//end if
+    static List<Map<String, String>> readCSV(final String filePath, final ImportProgress progress, final LoadSpec.DataSetSpec spec) {
 
-        List<Map<String, String>> list = null;
+        DataEngine.checkFileExists("readCSV", filePath);
 
-        try {
+        List<Map<String, String>> list = new ArrayList<Map<String, String>>();
+
+        //reader thread reads the file, parser thread parses rows, this thread builds map/records
+        try (InputStream input = ImportPipeline.readAhead(progress.open(Paths.get(filePath)))) {
 
-            Reader reader = Files.newBufferedReader(Paths.get(filePath));
             CsvParserSettings settings = new CsvParserSettings();
 
             settings.setQuoteDetectionEnabled(true);
 
-            CsvParser parser = new CsvParser(settings);
+            //only the fields of the attributes to load or filter are decoded
+            if (!spec.isAll()) {
+                settings.setHeaderExtractionEnabled(true);
+                settings.selectFields(spec.getDecodedColumns().toArray(new String[0]));
+            }//end if
+
+            final String[][] headers = new String[1][];
+
+            ImportPipeline.<String[]>parse(rows -> {
+
+                CsvParser parser = new CsvParser(settings);
+                parser.beginParsing(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+                String[] row = parser.parseNext();
+                String[] rowHeaders = row;
+
+                if (!spec.isAll()) {
+                    rowHeaders = (parser.getContext().headers() != null) ? DataEngine.selectedHeaders(parser.getContext()) : null;
+                } else if (row != null) {
+                    row = parser.parseNext();
+                }//end if
+
+                if (rowHeaders != null) {
+
+                    rows.accept(rowHeaders);
+
+                    //rows rejected by a filter are not passed on to build
+                    int[] filterIndexes = spec.filterIndexes(Arrays.asList(rowHeaders));
 
-            List<String[]> allRows = parser.parseAll(reader);
+                    for (; row != null; row = parser.parseNext()) {
+                        if (spec.accepts(Arrays.asList(row), filterIndexes)) {
+                            rows.accept(row);
+                        }//end if
+                    }//end for
 
-            list = new ArrayList<Map<String, String>>(allRows.size() - 1);
+                }//end if
 
-            String[] headers = allRows.get(0);
+                parser.stopParsing();
 
-            for (int x = 1; x < allRows.size(); x++) {
+            }, row -> {
 
-                String[] row = allRows.get(x);
+                if (headers[0] == null) {
+                    headers[0] = spec.project(Arrays.asList(row));
+                    return;
+                }//end if
 
                 Map<String, String> map = new HashMap<>(row.length);
                 for (int y = 0; y < row.length; y++) {
 
-                    map.put(headers[y], row[y]);
+                    if (headers[0][y] != null) {
+                        map.put(headers[0][y], row[y]);
+                    }//end if
 
                 } // end for
                 list.add(map);
-            }//end for
+                progress.recordDecoded();
 
-            reader.close();
+            });
 
         } catch (Exception ex) {
-            ex.printStackTrace();
+            throw DataEngine.readFailed("readCSV", filePath, ex);
         }//end try
 
         return list;
 
     }// end readCSV
 
+    //headers of the fields selected, in order of the selection, null for a field not in the file
+    private static String[] selectedHeaders(final ParsingContext context) {
+
+        String[] headers = context.headers();
+        int[] indexes = context.extractedFieldIndexes();
+        String[] selected = new String[indexes.length];
+
+        for (int idx = 0; idx < indexes.length; idx++) {
+            selected[idx] = (indexes[idx] >= 0) ? headers[indexes[idx]] : null;
+        }//end for
+
+        return selected;
+
+    }//end selectedHeaders
+
+    /**
+     * Returns list of maps/records from reading data from external data file in
+     * CSV format, with byte ranges of the file parsed on all cores; the
+     * map/records are in the same order as read by readCSV.
+     *
+     * @param filePath the path to the external CSV data file
+     * @return list of map/record read from the external file
+     */
+    public static List<Map<String, String>> readCSVParallel(final String filePath) {
+        return DataEngine.readCSVParallel(filePath, null, new ImportProgress(filePath, null), LoadSpec.DataSetSpec.ALL);
+    }// end readCSVParallel
+
+    static List<Map<String, String>> readCSVParallel(final String filePath, final Map<String, ColumnStatistics> statistics, final ImportProgress progress,
+            final LoadSpec.DataSetSpec spec) {
+
+        DataEngine.checkFileExists("readCSVParallel", filePath);
+
+        try {
+
+            //a compressed file has no byte ranges to split, it is read in one pass
+            if (CompressedInput.detect(Paths.get(filePath)) != CompressedInput.Codec.NONE) {
+
+                List<Map<String, String>> list = DataEngine.readCSV(filePath, progress, spec);
+
+                if (statistics != null) {
+                    for (Map<String, String> record : list) {
+                        ColumnStatistics.update(statistics, record);
+                    }//end for
+                }//end if
+
+                return list;
+
+            }//end if
+
+            return ParallelCsvReader.read(Paths.get(filePath), statistics, progress, spec);
+
+        } catch (IOException | RuntimeException ex) {
+            throw DataEngine.readFailed("readCSVParallel", filePath, ex);
+        }//end try
+
+    }// end readCSVParallel
+
+    /**
+     * Returns typed column of each attribute from reading data from external
+     * data file in CSV format; numbers are decoded from the bytes of the file
+     * into int or double values, and only text values are made into Strings.
+     * The columns are the same as DataSetColumn.fromDataSet of readCSV.
+     *
+     * @param filePath the path to the external CSV data file
+     * @return map of attribute name to typed column, in order of the header
+     */
+    public static Map<String, DataSetColumn> readCSVColumns(final String filePath) {
+        return DataEngine.readCSVColumns(filePath, new ImportProgress(filePath, null));
+    }// end readCSVColumns
+
+    static Map<String, DataSetColumn> readCSVColumns(final String filePath, final ImportProgress progress) {
+
+        DataEngine.checkFileExists("readCSVColumns", filePath);
+
+        try {
+            Map<String, DataSetColumn> columnMap = CsvColumnDecoder.read(Paths.get(filePath), progress);
+            progress.completed(progress.getRecords());
+            return columnMap;
+        } catch (IOException | RuntimeException ex) {
+            throw DataEngine.readFailed("readCSVColumns", filePath, ex);
+        }//end try
+
+    }// end readCSVColumns
+
     /**
      * Returns list of maps/records from reading data from external data file in
      * Excel (Microsoft Excel spreadsheet binary) format.
@@ -533,73 +1716,108 @@ public class DataEngine {
      * @return list of map/record read from the external file
      */
     public static List<Map<String, String>> readExcel(final String filePath) {
+        return DataEngine.readExcel(filePath, new ImportProgress(filePath, null), LoadSpec.DataSetSpec.ALL);
+    }// end readExcel
 
-        if (Files.notExists(Paths.get(filePath))) {
-            System.err.printf("Error: File %s not found!%n%n", filePath);
-            System.exit(1);
-        }//end if
+    //cell with no text, as cell.toString() is empty, without formatting the cell
+    private static boolean isEmptyCell(final Cell cell) {
+        switch (cell.getCellType()) {
+            case BLANK:
+                return true;
+            case STRING:
+                return cell.getStringCellValue().isEmpty();
+            default:
+                return false;
+        }//end switch
+    }//end isEmptyCell
+
+    static List<Map<String, String>> readExcel(final String filePath, final ImportProgress progress, final LoadSpec.DataSetSpec spec) {
+
+        DataEngine.checkFileExists("readExcel", filePath);
 
         List<Map<String, String>> list = new ArrayList<Map<String, String>>();
 
-        try {
+        //reader thread reads the file, parser thread reads cells of each row, this thread builds map/records
+        try (InputStream fis = ImportPipeline.readAhead(progress.open(Paths.get(filePath)))) {
 
-            File excelFile = new File(filePath);
-            FileInputStream fis = new FileInputStream(excelFile);
+            final String[][] headers = new String[1][];
 
-            // we create an XSSF Workbook object for our XLSX Excel File
-            XSSFWorkbook workbook = new XSSFWorkbook(fis);
-            // we get first sheet
-            XSSFSheet sheet = workbook.getSheetAt(0);
+            ImportPipeline.<List<String>>parse(rows -> {
 
-            //read first row - column headers	
-            Iterator<Row> rowIter = sheet.iterator();
-            Row row = rowIter.next();
+                // we create an XSSF Workbook object for our XLSX Excel File
+                try (XSSFWorkbook workbook = new XSSFWorkbook(fis)) {
 
-            // iterate on cells for the current row
-            Iterator<Cell> cellIter = row.cellIterator();
+                    // we get first sheet
+                    XSSFSheet sheet = workbook.getSheetAt(0);
 
-            List<String> headers = new ArrayList<>();
+                    //read first row - column headers	
+                    Iterator<Row> rowIter = sheet.iterator();
+                    Row row = rowIter.next();
 
-            while (cellIter.hasNext()) {
-                Cell cell = cellIter.next();
-                String header = cell.toString().replace('\n', ' '); //change newline \n to space
-                headers.add(header);
-            }//end while
+                    // iterate on cells for the current row
+                    Iterator<Cell> cellIter = row.cellIterator();
 
-            final int rowSize = headers.size();
+                    List<String> cells = new ArrayList<>();
 
-            int idx = 0;
+                    while (cellIter.hasNext()) {
+                        Cell cell = cellIter.next();
+                        cells.add(cell.toString().replace('\n', ' ')); //change newline \n to space
+                    }//end while
 
-            loopRow:
-            while (rowIter.hasNext()) {
-                idx = 0;
-                Map<String, String> map = new HashMap<>(rowSize);
-                row = rowIter.next();
+                    rows.accept(cells);
 
-                // iterate on cells for the current row
-                cellIter = row.cellIterator();
+                    //cells of attributes not loaded or filtered are not formatted
+                    String[] decoded = spec.decode(cells);
+                    int[] filterIndexes = spec.filterIndexes(cells);
 
-                while (cellIter.hasNext()) {
+                    while (rowIter.hasNext()) {
+                        cells = new ArrayList<>(cells.size());
+                        row = rowIter.next();
 
-                    Cell cell = cellIter.next();
-                    if (cell.toString().contentEquals("")) {
-                        break loopRow;
-                    }//end if
-                    map.put(headers.get(idx), cell.toString());
+                        // iterate on cells for the current row
+                        cellIter = row.cellIterator();
 
-                    idx++;
+                        while (cellIter.hasNext()) {
 
-                }//end while
+                            Cell cell = cellIter.next();
+                            boolean wanted = cells.size() >= decoded.length || decoded[cells.size()] != null;
+                            if (wanted ? cell.toString().contentEquals("") : DataEngine.isEmptyCell(cell)) {
+                                return;  //end of the data rows
+                            }//end if
+                            cells.add(wanted ? cell.toString() : null);
 
-                list.add(map);
+                        }//end while
 
-            }//end while
+                        if (spec.accepts(cells, filterIndexes)) {
+                            rows.accept(cells);
+                        }//end if
+
+                    }//end while
+
+                }//end try
+
+            }, cells -> {
+
+                if (headers[0] == null) {
+                    headers[0] = spec.project(cells);
+                    return;
+                }//end if
+
+                Map<String, String> map = new HashMap<>(headers[0].length);
+
+                for (int idx = 0; idx < cells.size(); idx++) {
+                    if (headers[0][idx] != null) {
+                        map.put(headers[0][idx], cells.get(idx));
+                    }//end if
+                }//end for
+
+                list.add(map);
+                progress.recordDecoded();
 
-            workbook.close();
-            fis.close();
+            });
 
         } catch (Exception ex) {
-            ex.printStackTrace();
+            throw DataEngine.readFailed("readExcel", filePath, ex);
         }//end try
 
         return list;
@@ -614,42 +1832,96 @@ public class DataEngine {
      * @return list of map/record read from the external file
      */
     public static List<Map<String, String>> readJSON(final String filePath) {
+        return DataEngine.readJSON(filePath, new ImportProgress(filePath, null), LoadSpec.DataSetSpec.ALL);
+    }//end readJSON
 
-        if (Files.notExists(Paths.get(filePath))) {
-            System.err.printf("Error: File %s not found!%n%n", filePath);
-            System.exit(1);
-        }//end if
+    static List<Map<String, String>> readJSON(final String filePath, final ImportProgress progress, final LoadSpec.DataSetSpec spec) {
 
-        String json = "";
-        List<Map<String, String>> mapList = null;
-        try {
-            json = new String(Files.readAllBytes(Paths.get(filePath)));
+        DataEngine.checkFileExists("readJSON", filePath);
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            TypeFactory typeFactory = objectMapper.getTypeFactory();
-            List<Object> list = objectMapper.readValue(json, typeFactory.constructCollectionType(List.class, Object.class));
+        List<Map<String, String>> mapList = new ArrayList<>();
 
-            @SuppressWarnings("unchecked")
-			List<String> headers = (List<String>) list.get(0);
+        //reader thread reads the file, parser thread parses each row array, this thread builds map/records
+        try (InputStream input = ImportPipeline.readAhead(progress.open(Paths.get(filePath)))) {
 
-            mapList = new ArrayList<>(list.size() - 1);
+            final String[][] headers = new String[1][];
 
-            for (int x = 1; x < list.size(); x++) {
+            ImportPipeline.<List<String>>parse(rows -> {
 
-            	@SuppressWarnings("unchecked")
-                List<String> row = (List<String>) list.get(x);
+                ObjectMapper objectMapper = new ObjectMapper();
 
-                Map<String, String> map = new HashMap<String, String>(headers.size());
+                try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
 
-                for (int y = 0; y < headers.size(); y++) {
-                    map.put(headers.get(y), row.get(y));
+                    if (parser.nextToken() != JsonToken.START_ARRAY) {
+                        throw new IOException("JSON data is not an array of rows");
+                    }//end if
+
+                    String[] decoded = null;
+                    int[] filterIndexes = null;
+
+                    while (parser.nextToken() == JsonToken.START_ARRAY) {
+
+                        if (decoded == null) {
+                            @SuppressWarnings("unchecked")
+                            List<String> header = objectMapper.readValue(parser, List.class);
+                            decoded = spec.decode(header);
+                            filterIndexes = spec.filterIndexes(header);
+                            rows.accept(header);
+                            continue;
+                        }//end if
+
+                        List<String> row;
+
+                        if (spec.isAll()) {
+                            @SuppressWarnings("unchecked")
+                            List<String> values = objectMapper.readValue(parser, List.class);
+                            row = values;
+                        } else {
+                            //values of attributes not loaded or filtered are skipped, not decoded
+                            List<Object> values = new ArrayList<>(decoded.length);
+                            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                if (values.size() < decoded.length && decoded[values.size()] != null) {
+                                    values.add(objectMapper.readValue(parser, Object.class));
+                                } else {
+                                    parser.skipChildren();
+                                    values.add(null);
+                                }//end if
+                            }//end while
+                            @SuppressWarnings("unchecked")
+                            List<String> cast = (List<String>) (List<?>) values;
+                            row = cast;
+                        }//end if
+
+                        if (spec.accepts(row, filterIndexes)) {
+                            rows.accept(row);
+                        }//end if
+
+                    }//end while
+
+                }//end try
+
+            }, row -> {
+
+                if (headers[0] == null) {
+                    headers[0] = spec.project(row);
+                    return;
+                }//end if
+
+                Map<String, String> map = new HashMap<String, String>(headers[0].length);
+
+                for (int y = 0; y < headers[0].length; y++) {
+                    if (headers[0][y] != null) {
+                        map.put(headers[0][y], row.get(y));
+                    }//end if
                 }//end for
 
                 mapList.add(map);
-            }//end for
+                progress.recordDecoded();
+
+            });
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (Exception ex) {
+            throw DataEngine.readFailed("readJSON", filePath, ex);
         }//end try
 
         return mapList;
@@ -664,11 +1936,12 @@ public class DataEngine {
      * @return list of map/record read from the external file
      */
     public static List<Map<String, String>> readXML(final String filePath) {
+        return DataEngine.readXML(filePath, new ImportProgress(filePath, null), LoadSpec.DataSetSpec.ALL);
+    }//end readXML
 
-        if (Files.notExists(Paths.get(filePath))) {
-            System.err.printf("Error: File %s not found!%n%n", filePath);
-            System.exit(1);
-        }//end if
+    static List<Map<String, String>> readXML(final String filePath, final ImportProgress progress, final LoadSpec.DataSetSpec spec) {
+
+        DataEngine.checkFileExists("readXML", filePath);
 
         List<Map<String, String>> list = new ArrayList<>();
 
@@ -683,73 +1956,209 @@ public class DataEngine {
         xstream.alias("record", Map.class);
         xstream.registerConverter(new MapEntryConverter());
 
-        try {
-            BufferedReader reader = Files.newBufferedReader(pathInput, StandardCharsets.UTF_8);
+        //reader thread reads the file, parser thread joins the lines of each record, this thread decodes them
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ImportPipeline.readAhead(progress.open(pathInput)), StandardCharsets.UTF_8))) {
 
-            String line = "";
+            ImportPipeline.<String>parse(records -> DataEngine.readXMLRecords(reader, records, spec), recordXML -> {
 
-            line = reader.readLine();
+                @SuppressWarnings("unchecked")
+                Map<String, String> map = (Map<String, String>) xstream.fromXML(recordXML);
 
-            line = reader.readLine();
+                list.add(map);
+                progress.recordDecoded();
 
-            StringBuilder recString = new StringBuilder(800); //initialize with size?
+            });
 
-            for (;;) {
+        } catch (Exception ex) {
+            throw DataEngine.readFailed("readXML", filePath, ex);
+        }//end try
 
-                recString.setLength(0); //reset stringbuilder for next record
+        return list;
 
-                line = reader.readLine();
-                line = line.trim();
-                if (line.contentEquals("</state-county-wage-data>")) {
-                    break;  //xml file footer
-                }//end if
+    }//end readXML 
 
-                if (line.contentEquals("<record>")) {
+    //parser stage of readXML, emits the XML of each record accepted with the elements of the attributes to load
+    private static void readXMLRecords(final BufferedReader reader, final Consumer<String> records, final LoadSpec.DataSetSpec spec) throws IOException {
 
-                    recString.append(line);
+        String line = "";
 
-                    //read all 19-attributes
-                    for (int x = 0; x < 19; x++) {
-                        line = reader.readLine();
-                        line = line.trim();
-                        recString.append(line);
+        //raw value of each filtered attribute of the record
+        Map<String, String> filterValues = new HashMap<>();
+
+        line = reader.readLine();
+
+        line = reader.readLine();
+
+        StringBuilder recString = new StringBuilder(800); //initialize with size?
+
+        for (;;) {
+
+            recString.setLength(0); //reset stringbuilder for next record
+
+            line = reader.readLine();
+            line = line.trim();
+            if (line.contentEquals("</state-county-wage-data>")) {
+                break;  //xml file footer
+            }//end if
+
+            if (line.contentEquals("<record>")) {
 
-                    }//end for		
+                recString.append(line);
+                filterValues.clear();
 
+                //read all 19-attributes
+                for (int x = 0; x < 19; x++) {
                     line = reader.readLine();
                     line = line.trim();
-                    if (line.contentEquals("</record>")) {
+                    if (spec.isAll() && !spec.hasFilters()) {
                         recString.append(line);
-                    } else {
-                        System.out.printf("Error: Line is not </record> != '%s'%n", line);
-                        break;
+                        continue;
                     }//end if
 
-                    String recordXML = recString.toString().replaceAll("\\s+", "");
-
-                    @SuppressWarnings("unchecked")
-                    Map<String, String> map = (Map<String, String>) xstream.fromXML(recordXML);
+                    String name = DataEngine.elementName(line);
+                    if (spec.wants(name)) {
+                        recString.append(line);
+                    }//end if
+                    if (spec.filters(name)) {
+                        filterValues.put(name, DataEngine.elementValue(line));
+                    }//end if
 
-                    list.add(map);
+                }//end for		
 
+                line = reader.readLine();
+                line = line.trim();
+                if (line.contentEquals("</record>")) {
+                    recString.append(line);
                 } else {
-                    System.out.printf("Error: Line is not <record> != '%s'%n", line);
-                    break;
+                    throw new RuntimeException(String.format("line is not </record> != '%s'", line));
                 }//end if
 
-                reader.readLine();
+                if (spec.accepts(filterValues)) {
+                    records.accept(recString.toString().replaceAll("\\s+", ""));
+                }//end if
 
-            }//end for
+            } else {
+                throw new RuntimeException(String.format("line is not <record> != '%s'", line));
+            }//end if
 
-            reader.close();
+            reader.readLine();
 
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        } // end try
+        }//end for
 
-        return list;
+    }//end readXMLRecords
 
-    }//end readXML 
+    //name of the element that starts a line such as "<area_title>...</area_title>"
+    private static String elementName(final String line) {
 
-}//end class DataEngine
+        int end = 1;
+        while (end < line.length() && " />".indexOf(line.charAt(end)) < 0) {
+            end++;
+        }//end while
+
+        return line.substring(1, end);
+
+    }//end elementName
+
+    //value of the element on a line such as "<state>01</state>" as the record loaded has it, so a
+    //filter tests the same value at parse as after load: white space removed, as from the XML of the
+    //record, then entities and CDATA decoded, as by the XML parser; empty for "<state/>"
+    private static String elementValue(final String line) {
+
+        int start = line.indexOf('>') + 1;
+        int end = line.lastIndexOf("</");
+
+        if (start <= 0 || end < start) {
+            return "";
+        }//end if
+
+        String text = line.substring(start, end).replaceAll("\\s+", "");
+
+        return (text.indexOf('&') < 0 && text.indexOf('<') < 0) ? text : DataEngine.decodeXMLText(text);
+
+    }//end elementValue
+
+    //character data of XML text: the predefined and numeric entities, and CDATA sections
+    private static String decodeXMLText(final String text) {
+
+        StringBuilder value = new StringBuilder(text.length());
+        int idx = 0;
+
+        while (idx < text.length()) {
+
+            char ch = text.charAt(idx);
+
+            if (ch == '<' && text.startsWith("<![CDATA[", idx)) {
+
+                int close = text.indexOf("]]>", idx);
+                if (close < 0) {
+                    throw new RuntimeException(String.format("DateEngine.readXML: CDATA section is not closed in '%s'!", text));
+                }//end if
+                value.append(text, idx + 9, close);
+                idx = close + 3;
+
+            } else if (ch == '&') {
+
+                int semi = text.indexOf(';', idx);
+                if (semi < 0) {
+                    throw new RuntimeException(String.format("DateEngine.readXML: entity is not closed in '%s'!", text));
+                }//end if
+
+                String entity = text.substring(idx + 1, semi);
+                switch (entity) {
+                    case "amp":
+                        value.append('&');
+                        break;
+                    case "lt":
+                        value.append('<');
+                        break;
+                    case "gt":
+                        value.append('>');
+                        break;
+                    case "quot":
+                        value.append('"');
+                        break;
+                    case "apos":
+                        value.append('\'');
+                        break;
+                    default:
+                        if (entity.startsWith("#x")) {
+                            value.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+                        } else if (entity.startsWith("#")) {
+                            value.appendCodePoint(Integer.parseInt(entity.substring(1)));
+                        } else {
+                            throw new RuntimeException(String.format("DateEngine.readXML: entity '&%s;' is not defined in '%s'!", entity, text));
+                        }//end if
+                }//end switch
+                idx = semi + 1;
+
+            } else {
+                value.append(ch);
+                idx++;
+            }//end if
+
+        }//end while
+
+        return value.toString();
+
+    }//end decodeXMLText
 
+    private static long fileSize(final String filePath) {
+        try {
+            return Files.size(Paths.get(filePath));
+        } catch (IOException ex) {
+            throw DataEngine.readFailed("importData", filePath, ex);
+        }//end try
+    }//end fileSize
+
+    private static void checkFileExists(final String method, final String filePath) {
+        if (Files.notExists(Paths.get(filePath))) {
+            throw new RuntimeException(String.format("DateEngine.%s: file '%s' not found!", method, filePath));
+        }//end if
+    }//end checkFileExists
+
+    //reader failed, no partial list of map/records is returned
+    private static RuntimeException readFailed(final String method, final String filePath, final Exception ex) {
+        return new RuntimeException(String.format("DateEngine.%s: file '%s' could not be read: %s!", method, filePath, ex), ex);
+    }//end readFailed
+
+}//end class DataEngine
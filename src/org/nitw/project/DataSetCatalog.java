@@ -0,0 +1,298 @@
+/**
+ *
+ * Title:        DataSetCatalog.java - Catalog of the data sets of the data engine.
+ *
+ * Description:  Declares each data set of the data engine: its name, the
+ *               external data file it is imported from, the format of the file,
+ *               hints of the types of its typed columns, how it is loaded, and
+ *               its priority. DataEngine.loadData loads the data sets of the
+ *               catalog in order of priority, highest first, so the data sets
+ *               used most are ready first; data sets of the same priority are
+ *               loaded in the order they are declared.
+ *
+ *               Load policy of a data set in loadData:
+ *
+ *               1. EAGER         - imported before loadData returns
+ *               2. LAZY          - imported on first use
+ *               3. BACKGROUND    - imported after loadData returns, in the
+ *                                  background; a use waits for it
+ *               4. SNAPSHOT_ONLY - read from its snapshot before loadData
+ *                                  returns, never imported, e.g. an archived
+ *                                  vintage whose external file is gone
+ *
+ *               A catalog is never changed; each with method returns a new
+ *               catalog, so one can be shared by data engines.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+public final class DataSetCatalog {
+
+    /**
+     * how a data set is loaded by DataEngine.loadData
+     */
+    public enum LoadPolicy {
+        EAGER, LAZY, BACKGROUND, SNAPSHOT_ONLY
+    }//end enum LoadPolicy
+
+    //declaration of one data set
+    private static final class Entry {
+
+        private final String source;
+        private final String format;  //null to sniff from the file
+        private final Map<String, DataSetColumn.ColumnType> columnTypes;
+        private final LoadPolicy policy;
+        private final int priority;
+
+        Entry(String source, String format, Map<String, DataSetColumn.ColumnType> columnTypes, LoadPolicy policy, int priority) {
+            this.source = source;
+            this.format = format;
+            this.columnTypes = columnTypes;
+            this.policy = policy;
+            this.priority = priority;
+        }//end constructor
+
+        @Override
+        public String toString() {
+            return String.format("%s %s priority %d%s%s", this.source, this.policy, this.priority, (this.format != null) ? " format " + this.format : "",
+                    this.columnTypes.isEmpty() ? "" : " types " + new TreeMap<>(this.columnTypes));
+        }//end toString
+
+    }//end class Entry
+
+    //catalog with no data sets
+    public static final DataSetCatalog EMPTY = new DataSetCatalog(Collections.emptyMap());
+
+    //the data sets of the external data files of the project, each imported eagerly
+    public static final DataSetCatalog DEFAULT = DataSetCatalog.EMPTY
+            .withDataSet("CountyEmploymentWages", DataEngine.fileNameCountyEmploymentWages)
+            .withDataSet("CountyList", DataEngine.fileNameCountyList)
+            .withDataSet("CountyMedianIncome", DataEngine.fileNameCountyMedianIncome)
+            .withDataSet("CountyPopulationTax", DataEngine.fileNameCountyPopulationTax)
+            .withDataSet("CountyUnemployment", DataEngine.fileNameCountyUnemployment)
+            .withDataSet("StateExports", DataEngine.fileNameStateExports)
+            .withDataSet("StateTaxRates", DataEngine.fileNameStateTaxRates);
+
+    private final Map<String, Entry> entryMap;  //in order of declaration
+
+    private DataSetCatalog(Map<String, Entry> entryMap) {
+        this.entryMap = entryMap;
+    }//end constructor
+
+    /**
+     * new catalog with a data set added, or its external file replaced; a
+     * data set added is loaded eagerly with priority 0 and its format found
+     * from the content of the file
+     *
+     * @param name the data set name
+     * @param source the path to the external data file
+     * @return DataSetCatalog with the data set
+     */
+    public DataSetCatalog withDataSet(final String name, final String source) {
+
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(source, "source");
+
+        Entry entry = this.entryMap.get(name);
+
+        return this.with(name, (entry == null)
+                ? new Entry(source, null, Collections.emptyMap(), LoadPolicy.EAGER, 0)
+                : new Entry(source, entry.format, entry.columnTypes, entry.policy, entry.priority));
+
+    }//end withDataSet
+
+    /**
+     * new catalog without a data set
+     *
+     * @param name the data set name
+     * @return DataSetCatalog without the data set
+     */
+    public DataSetCatalog withoutDataSet(final String name) {
+
+        this.getEntry(name);  //check name valid
+
+        Map<String, Entry> map = new LinkedHashMap<>(this.entryMap);
+        map.remove(name);
+
+        return new DataSetCatalog(Collections.unmodifiableMap(map));
+
+    }//end withoutDataSet
+
+    /**
+     * new catalog with the format of the external file of a data set, read
+     * by the reader of the format whatever the content or extension
+     *
+     * @param name the data set name
+     * @param format the format of a DataSourceReader, e.g. "csv", or null to sniff
+     * @return DataSetCatalog with the format of the data set replaced
+     */
+    public DataSetCatalog withFormat(final String name, final String format) {
+        Entry entry = this.getEntry(name);
+        return this.with(name, new Entry(entry.source, format, entry.columnTypes, entry.policy, entry.priority));
+    }//end withFormat
+
+    /**
+     * new catalog with the type of the typed column of an attribute of a
+     * data set declared, not found from the values, e.g. a numeric code as TEXT
+     *
+     * @param name the data set name
+     * @param attrName the attribute name (header)
+     * @param type the type of the column, or null to find it from the values
+     * @return DataSetCatalog with the type of the column replaced
+     */
+    public DataSetCatalog withColumnType(final String name, final String attrName, final DataSetColumn.ColumnType type) {
+
+        Entry entry = this.getEntry(name);
+
+        Map<String, DataSetColumn.ColumnType> columnTypes = new HashMap<>(entry.columnTypes);
+        if (type == null) {
+            columnTypes.remove(attrName);
+        } else {
+            columnTypes.put(attrName, type);
+        }//end if
+
+        return this.with(name, new Entry(entry.source, entry.format, Collections.unmodifiableMap(columnTypes), entry.policy, entry.priority));
+
+    }//end withColumnType
+
+    /**
+     * new catalog with how a data set is loaded by loadData
+     *
+     * @param name the data set name
+     * @param policy the load policy
+     * @return DataSetCatalog with the load policy of the data set replaced
+     */
+    public DataSetCatalog withPolicy(final String name, final LoadPolicy policy) {
+        Entry entry = this.getEntry(name);
+        return this.with(name, new Entry(entry.source, entry.format, entry.columnTypes, Objects.requireNonNull(policy, "policy"), entry.priority));
+    }//end withPolicy
+
+    /**
+     * new catalog with the priority of a data set, a data set of a higher
+     * priority is loaded first
+     *
+     * @param name the data set name
+     * @param priority the priority, 0 by default
+     * @return DataSetCatalog with the priority of the data set replaced
+     */
+    public DataSetCatalog withPriority(final String name, final int priority) {
+        Entry entry = this.getEntry(name);
+        return this.with(name, new Entry(entry.source, entry.format, entry.columnTypes, entry.policy, priority));
+    }//end withPriority
+
+    private DataSetCatalog with(final String name, final Entry entry) {
+
+        Map<String, Entry> map = new LinkedHashMap<>(this.entryMap);
+        map.put(name, entry);
+
+        return new DataSetCatalog(Collections.unmodifiableMap(map));
+
+    }//end with
+
+    private Entry getEntry(final String name) {
+
+        Entry entry = this.entryMap.get(name);
+
+        if (entry == null) {
+            throw new RuntimeException(String.format("DataSetCatalog: '%s' is not a valid name for data sets!", name));
+        }//end if
+
+        return entry;
+
+    }//end getEntry
+
+    /**
+     * check if a data set is in the catalog
+     *
+     * @param name the data set name
+     * @return true if the data set is declared
+     */
+    public boolean hasDataSetName(final String name) {
+        return this.entryMap.containsKey(name);
+    }//end hasDataSetName
+
+    /**
+     * get names of the data sets, in order of declaration
+     *
+     * @return unmodifiable list of data set names
+     */
+    public List<String> getDataSetNames() {
+        return Collections.unmodifiableList(new ArrayList<>(this.entryMap.keySet()));
+    }//end getDataSetNames
+
+    /**
+     * get names of the data sets in order to load them, highest priority
+     * first, then in order of declaration
+     *
+     * @return unmodifiable list of data set names
+     */
+    public List<String> getLoadOrder() {
+
+        List<String> names = new ArrayList<>(this.entryMap.keySet());
+        names.sort(Comparator.comparingInt((String name) -> this.entryMap.get(name).priority).reversed());  //stable
+
+        return Collections.unmodifiableList(names);
+
+    }//end getLoadOrder
+
+    public String getSource(final String name) {
+        return this.getEntry(name).source;
+    }//end getSource
+
+    //format of the external file, or null to sniff
+    public String getFormat(final String name) {
+        return this.getEntry(name).format;
+    }//end getFormat
+
+    //declared types of typed columns, attribute name to type
+    public Map<String, DataSetColumn.ColumnType> getColumnTypes(final String name) {
+        return this.getEntry(name).columnTypes;
+    }//end getColumnTypes
+
+    public LoadPolicy getPolicy(final String name) {
+        return this.getEntry(name).policy;
+    }//end getPolicy
+
+    public int getPriority(final String name) {
+        return this.getEntry(name).priority;
+    }//end getPriority
+
+    @Override
+    public String toString() {
+        return "DataSetCatalog" + this.entryMap;
+    }//end toString
+
+}//end class DataSetCatalog
@@ -0,0 +1,544 @@
+/**
+ *
+ * Title:        DataSetColumn.java - Typed column of a data set for project.
+ *
+ * Description:  A DataSetColumn holds every value of one attribute (header) of
+ *               a data set in a primitive array instead of a String in each
+ *               map/record. The column type is found from the values:
+ *
+ *               1. INT    - every value is a whole number, stored in int[]
+ *               2. DOUBLE - every value is a number, stored in double[]
+ *                           (percent values like "4.91%" are stored as 4.91)
+ *               3. TEXT   - any other value, stored as dictionary codes in
+ *                           int[] with the distinct Strings in a dictionary
+ *
+ *               Values with a leading zero like "01" (FIPS codes) are kept as
+ *               TEXT so the code is not changed. Missing values (null, empty,
+ *               or a marker for no datum like "None", "(X)" or suppressed "S") are marked in a
+ *               validity bitmap of one bit per row.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java new input-output
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+//standard Java data structures/collections
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+
+//standard Java streams
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+public final class DataSetColumn {
+
+    //type of values stored in the column
+    public enum ColumnType {
+        INT, DOUBLE, TEXT
+    }//end enum ColumnType
+
+    private final String name;
+    private final ColumnType type;
+    private final int size;
+
+    private final int[] intValues;        //INT values, or TEXT dictionary codes
+    private final double[] doubleValues;  //DOUBLE values
+    private final String[] dictionary;    //TEXT distinct values by code
+    private final long[] validBits;       //bit set for each row with a value
+
+    //the same values in direct buffers (mapped snapshot file or off-heap), arrays above are null
+    private final IntBuffer intBuffer;
+    private final DoubleBuffer doubleBuffer;
+    private final LongBuffer validBuffer;
+
+    private DataSetColumn(String name, ColumnType type, int size, int[] intValues, double[] doubleValues, String[] dictionary, long[] validBits) {
+        this.name = name;
+        this.type = type;
+        this.size = size;
+        this.intValues = intValues;
+        this.doubleValues = doubleValues;
+        this.dictionary = dictionary;
+        this.validBits = validBits;
+        this.intBuffer = null;
+        this.doubleBuffer = null;
+        this.validBuffer = null;
+    }//end constructor
+
+    private DataSetColumn(String name, ColumnType type, int size, IntBuffer intBuffer, DoubleBuffer doubleBuffer, String[] dictionary, LongBuffer validBuffer) {
+        this.name = name;
+        this.type = type;
+        this.size = size;
+        this.intValues = null;
+        this.doubleValues = null;
+        this.dictionary = dictionary;
+        this.validBits = null;
+        this.intBuffer = intBuffer;
+        this.doubleBuffer = doubleBuffer;
+        this.validBuffer = validBuffer;
+    }//end constructor
+
+    //create column from arrays read back from a snapshot
+    static DataSetColumn of(String name, ColumnType type, int size, int[] intValues, double[] doubleValues, String[] dictionary, long[] validBits) {
+        return new DataSetColumn(name, type, size, intValues, doubleValues, dictionary, validBits);
+    }//end of
+
+    //create column over direct buffers (mapped snapshot or off-heap), values are not copied
+    static DataSetColumn ofMapped(String name, ColumnType type, int size, IntBuffer intBuffer, DoubleBuffer doubleBuffer, String[] dictionary, LongBuffer validBuffer) {
+        return new DataSetColumn(name, type, size, intBuffer, doubleBuffer, dictionary, validBuffer);
+    }//end ofMapped
+
+    /**
+     * create INT column from array of values, every row has a value
+     *
+     * @param name the attribute name of the column
+     * @param values the int values of the column
+     * @return DataSetColumn of type INT
+     */
+    public static DataSetColumn ofInts(final String name, final int[] values) {
+        return new DataSetColumn(name, ColumnType.INT, values.length, values, null, null, allValid(values.length));
+    }//end ofInts
+
+    /**
+     * create DOUBLE column from array of values, every row has a value
+     *
+     * @param name the attribute name of the column
+     * @param values the double values of the column
+     * @return DataSetColumn of type DOUBLE
+     */
+    public static DataSetColumn ofDoubles(final String name, final double[] values) {
+        return new DataSetColumn(name, ColumnType.DOUBLE, values.length, null, values, null, allValid(values.length));
+    }//end ofDoubles
+
+    /**
+     * create typed column from attribute of each map/record in a data set
+     *
+     * @param dataSet list of map/records of the data set
+     * @param name the attribute name (header) to build column for
+     * @return DataSetColumn with type found from the values
+     */
+    public static DataSetColumn fromDataSet(final List<Map<String, String>> dataSet, final String name) {
+
+        final int size = dataSet.size();
+
+        String[] raw = new String[size];
+        long[] validBits = new long[DataSetColumn.bitmapLength(size)];
+
+        boolean isInt = true, isDouble = true;
+
+        for (int row = 0; row < size; row++) {
+
+            String val = dataSet.get(row).get(name);
+
+            if (DataSetColumn.isMissing(val)) {
+                continue;
+            }//end if
+
+            val = val.trim();
+
+            raw[row] = val;
+            validBits[row >>> 6] |= 1L << row;
+
+            if (isDouble) {
+                int kind = DataSetColumn.numberKind(val);
+                if (kind == 0) {
+                    isInt = isDouble = false;
+                } else if (kind == 2) {
+                    isInt = false;
+                }//end if
+            }//end if
+
+        }//end for
+
+        return DataSetColumn.build(name, size, raw, validBits, isInt ? ColumnType.INT : isDouble ? ColumnType.DOUBLE : ColumnType.TEXT);
+
+    }//end fromDataSet
+
+    /**
+     * create typed column of a declared type from attribute of each
+     * map/record in a data set, the type is not found from the values
+     *
+     * @param dataSet list of map/records of the data set
+     * @param name the attribute name (header) to build column for
+     * @param type the type of the column, e.g. TEXT for numeric codes
+     * @return DataSetColumn of the type
+     * @throws RuntimeException if a value is not a number of an INT or DOUBLE type
+     */
+    public static DataSetColumn fromDataSet(final List<Map<String, String>> dataSet, final String name, final ColumnType type) {
+
+        final int size = dataSet.size();
+
+        String[] raw = new String[size];
+        long[] validBits = new long[DataSetColumn.bitmapLength(size)];
+
+        for (int row = 0; row < size; row++) {
+
+            String val = dataSet.get(row).get(name);
+
+            if (DataSetColumn.isMissing(val)) {
+                continue;
+            }//end if
+
+            val = val.trim();
+
+            raw[row] = val;
+            validBits[row >>> 6] |= 1L << row;
+
+            if (type != ColumnType.TEXT) {
+                int kind = DataSetColumn.numberKind(val);
+                if (kind == 0 || (kind == 2 && type == ColumnType.INT)) {
+                    throw new RuntimeException(String.format("DataSetColumn.fromDataSet: value '%s' of '%s' is not of type %s!", val, name, type));
+                }//end if
+            }//end if
+
+        }//end for
+
+        return DataSetColumn.build(name, size, raw, validBits, type);
+
+    }//end fromDataSet
+
+    //column of a type from the trimmed values, null for missing
+    private static DataSetColumn build(final String name, final int size, final String[] raw, final long[] validBits, final ColumnType type) {
+
+        if (type == ColumnType.INT) {
+
+            int[] values = new int[size];
+            for (int row = 0; row < size; row++) {
+                if (raw[row] != null) {
+                    values[row] = Integer.parseInt(raw[row]);
+                }//end if
+            }//end for
+            return new DataSetColumn(name, ColumnType.INT, size, values, null, null, validBits);
+
+        } else if (type == ColumnType.DOUBLE) {
+
+            double[] values = new double[size];
+            for (int row = 0; row < size; row++) {
+                if (raw[row] != null) {
+                    values[row] = DataSetColumn.parseDouble(raw[row]);
+                }//end if
+            }//end for
+            return new DataSetColumn(name, ColumnType.DOUBLE, size, null, values, null, validBits);
+
+        }//end if
+
+        //dictionary encode the text values, code is order of first appearance
+        Map<String, Integer> codeMap = new HashMap<>();
+        int[] codes = new int[size];
+
+        for (int row = 0; row < size; row++) {
+            if (raw[row] != null) {
+                Integer code = codeMap.get(raw[row]);
+                if (code == null) {
+                    code = codeMap.size();
+                    codeMap.put(raw[row], code);
+                }//end if
+                codes[row] = code;
+            } else {
+                codes[row] = -1;
+            }//end if
+        }//end for
+
+        String[] dictionary = new String[codeMap.size()];
+        for (Map.Entry<String, Integer> entry : codeMap.entrySet()) {
+            dictionary[entry.getValue()] = entry.getKey();
+        }//end for
+
+        return new DataSetColumn(name, ColumnType.TEXT, size, codes, null, dictionary, validBits);
+
+    }//end build
+
+    /**
+     * check if String value is missing, no datum, in the data files
+     *
+     * @param val the String value
+     * @return true if value is null, empty or a marker for no datum
+     */
+    static boolean isMissing(final String val) {
+
+        if (val == null) {
+            return true;
+        }//end if
+
+        switch (val.trim()) {
+            case "":
+            case "None":
+            case "X":
+            case "(X)":
+            case "N/A":
+            case "S":
+            case "(S)":
+            case "D":
+            case "(D)":
+            case "-":
+                return true;
+            default:
+                return false;
+        }//end switch
+
+    }//end isMissing
+
+    /**
+     * kind of number in a String value
+     *
+     * @param val the String value, not empty
+     * @return 0 not a number, 1 whole number in int range, 2 decimal number
+     */
+    static int numberKind(final String val) {
+
+        int len = val.length();
+        int start = (val.charAt(0) == '-' || val.charAt(0) == '+') ? 1 : 0;
+
+        if (val.charAt(len - 1) == '%') {
+            len--;
+        }//end if
+
+        if (start >= len) {
+            return 0;
+        }//end if
+
+        //keep codes with leading zeros like FIPS "01" or "003" as text
+        if (val.charAt(start) == '0' && len - start > 1 && val.charAt(start + 1) != '.') {
+            return 0;
+        }//end if
+
+        boolean hasDot = false, hasDigit = false;
+
+        for (int idx = start; idx < len; idx++) {
+            char ch = val.charAt(idx);
+            if (ch >= '0' && ch <= '9') {
+                hasDigit = true;
+            } else if (ch == '.' && !hasDot) {
+                hasDot = true;
+            } else {
+                return 0;
+            }//end if
+        }//end for
+
+        if (!hasDigit) {
+            return 0;
+        }//end if
+
+        if (hasDot || val.charAt(val.length() - 1) == '%' || len - start > 9) {
+            return 2;
+        }//end if
+
+        return 1;
+
+    }//end numberKind
+
+    /**
+     * parse number value, percent sign is dropped so "4.91%" is 4.91
+     *
+     * @param val the String value of the number
+     * @return double value
+     */
+    static double parseDouble(final String val) {
+        if (val.endsWith("%")) {
+            return Double.parseDouble(val.substring(0, val.length() - 1));
+        }//end if
+        return Double.parseDouble(val);
+    }//end parseDouble
+
+    /**
+     * number of long words to hold bitmap of one bit per row
+     *
+     * @param size number of rows
+     * @return number of long words in bitmap
+     */
+    public static int bitmapLength(final int size) {
+        return (size + 63) >>> 6;
+    }//end bitmapLength
+
+    private static long[] allValid(final int size) {
+        long[] bits = new long[DataSetColumn.bitmapLength(size)];
+        for (int idx = 0; idx < bits.length; idx++) {
+            bits[idx] = -1L;
+        }//end for
+        if ((size & 63) != 0) {
+            bits[bits.length - 1] = (1L << size) - 1;
+        }//end if
+        return bits;
+    }//end allValid
+
+    public String getName() {
+        return this.name;
+    }//end getName
+
+    public ColumnType getType() {
+        return this.type;
+    }//end getType
+
+    public int size() {
+        return this.size;
+    }//end size
+
+    public boolean isNumeric() {
+        return this.type != ColumnType.TEXT;
+    }//end isNumeric
+
+    //true if values are read in place from direct buffers, mapped or off-heap
+    public boolean isMapped() {
+        return this.validBits == null;
+    }//end isMapped
+
+    /**
+     * check if row has a value, not null or empty
+     *
+     * @param row the row index
+     * @return true if row has value
+     */
+    public boolean isValid(final int row) {
+        return (this.validWord(row >>> 6) & (1L << row)) != 0;
+    }//end isValid
+
+    /**
+     * get value at row as double, for INT and DOUBLE columns
+     *
+     * @param row the row index
+     * @return double value at the row
+     */
+    public double getDouble(final int row) {
+        switch (this.type) {
+            case INT:
+                return (this.intValues != null) ? this.intValues[row] : this.intBuffer.get(row);
+            case DOUBLE:
+                return (this.doubleValues != null) ? this.doubleValues[row] : this.doubleBuffer.get(row);
+            default:
+                throw new RuntimeException(String.format("DataSetColumn.getDouble: '%s' is not a numeric column!", this.name));
+        }//end switch
+    }//end getDouble
+
+    /**
+     * get value at row as int, for INT column, or the code for TEXT column
+     *
+     * @param row the row index
+     * @return int value or dictionary code at the row
+     */
+    public int getInt(final int row) {
+        if (this.type == ColumnType.DOUBLE) {
+            throw new RuntimeException(String.format("DataSetColumn.getInt: '%s' is not an int column!", this.name));
+        }//end if
+        return (this.intValues != null) ? this.intValues[row] : this.intBuffer.get(row);
+    }//end getInt
+
+    /**
+     * get value at row as String, null if row has no value
+     *
+     * @param row the row index
+     * @return String value at the row
+     */
+    public String getString(final int row) {
+        if (!this.isValid(row)) {
+            return null;
+        }//end if
+        switch (this.type) {
+            case INT:
+                return Integer.toString(this.getInt(row));
+            case DOUBLE:
+                return Double.toString(this.getDouble(row));
+            default:
+                return this.dictionary[this.getInt(row)];
+        }//end switch
+    }//end getString
+
+    /**
+     * get the code of a text value in the dictionary
+     *
+     * @param value the String value
+     * @return dictionary code, or -1 if value not in the column
+     */
+    public int getCode(final String value) {
+        if (this.type != ColumnType.TEXT) {
+            throw new RuntimeException(String.format("DataSetColumn.getCode: '%s' is not a text column!", this.name));
+        }//end if
+        for (int code = 0; code < this.dictionary.length; code++) {
+            if (this.dictionary[code].equals(value)) {
+                return code;
+            }//end if
+        }//end for
+        return -1;
+    }//end getCode
+
+    /**
+     * get spliterator over the row ids of the column
+     *
+     * @return Spliterator.OfInt over row ids [0, size)
+     */
+    public Spliterator.OfInt spliterator() {
+        return new DataSetSpliterator(this.size);
+    }//end spliterator
+
+    /**
+     * get stream of the values of rows with a value, for numeric column
+     *
+     * @param parallel true for a parallel stream
+     * @return DoubleStream of the values
+     */
+    public DoubleStream doubleStream(final boolean parallel) {
+        return StreamSupport.intStream(this.spliterator(), parallel).filter(this::isValid).mapToDouble(this::getDouble);
+    }//end doubleStream
+
+    //direct access to the arrays for the filter kernels, not to be changed; null if mapped
+    int[] intArray() {
+        return this.intValues;
+    }//end intArray
+
+    double[] doubleArray() {
+        return this.doubleValues;
+    }//end doubleArray
+
+    String[] dictionaryArray() {
+        return this.dictionary;
+    }//end dictionaryArray
+
+    long[] validBitmap() {
+        return this.validBits;
+    }//end validBitmap
+
+    //direct access to the mapped buffers for the filter kernels; null if not mapped
+    IntBuffer intBuffer() {
+        return this.intBuffer;
+    }//end intBuffer
+
+    DoubleBuffer doubleBuffer() {
+        return this.doubleBuffer;
+    }//end doubleBuffer
+
+    /**
+     * get one word of the valid bitmap, of heap array or mapped buffer
+     *
+     * @param word the bitmap word index, row / 64
+     * @return bits of rows with a value
+     */
+    long validWord(final int word) {
+        return (this.validBits != null) ? this.validBits[word] : this.validBuffer.get(word);
+    }//end validWord
+
+}//end class DataSetColumn
@@ -0,0 +1,231 @@
+/**
+ *
+ * Title:        DataSetQuery.java - Description of a query of a data set.
+ *
+ * Description:  A DataSetQuery describes a query of one attribute of a data set
+ *               against one or more values with a comparison operator, or all
+ *               values of the attribute when the operator is null. The values
+ *               are sorted, so the same query written with the values in any
+ *               order is equal and has the same hash code, and can be used as
+ *               a key to cache the query result.
+ *
+ *               The result of a query is a list of Object[] with the attribute
+ *               value as Object[0] (String) and the row index as Object[1]
+ *               (Integer), one for each value a row matches.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public final class DataSetQuery {
+
+    private final String dataSetName;
+    private final String attrName;
+    private final QueryOperator op;  //null for all values
+    private final String[] values;   //sorted
+    private final int hash;
+
+    /**
+     * create query of attribute of data set against values
+     *
+     * @param dataSetName the data set name
+     * @param attrName the attribute name (header) in the data set
+     * @param op the comparison operator, null for all values of attribute
+     * @param values the values to compare against
+     */
+    public DataSetQuery(final String dataSetName, final String attrName, final QueryOperator op, final String... values) {
+
+        this.dataSetName = dataSetName;
+        this.attrName = attrName;
+        this.op = op;
+        this.values = (op == null) ? new String[0] : values.clone();
+
+        Arrays.sort(this.values);
+
+        this.hash = Objects.hash(dataSetName, attrName, op) * 31 + Arrays.hashCode(this.values);
+
+    }//end constructor
+
+    public String getDataSetName() {
+        return this.dataSetName;
+    }//end getDataSetName
+
+    public String getAttrName() {
+        return this.attrName;
+    }//end getAttrName
+
+    public QueryOperator getOperator() {
+        return this.op;
+    }//end getOperator
+
+    public String[] getValues() {
+        return this.values.clone();
+    }//end getValues
+
+    /**
+     * check if attribute value of one row matches, and how many times
+     *
+     * @param attrVal the attribute value of the row
+     * @return number of query values the attribute value matches
+     */
+    int matchCount(final String attrVal) {
+
+        if (this.op == null) {
+            return 1;
+        }//end if
+
+        if (attrVal == null) {
+            return 0;
+        }//end if
+
+        int count = 0;
+        for (String val : this.values) {
+            if (this.op.matches(attrVal.compareTo(val))) {
+                count++;
+            }//end if
+        }//end for
+
+        return count;
+
+    }//end matchCount
+
+    /**
+     * run query by scan of the map/records of the data set
+     *
+     * @param dataSet list of map/records of the data set
+     * @return list of Object[]{attribute value, row index}
+     */
+    List<Object[]> execute(final List<Map<String, String>> dataSet) {
+
+        List<Object[]> list = new ArrayList<>();
+
+        int rowCounter = 0;
+
+        //iterate through attribute in each record/map
+        for (Map<String, String> record : dataSet) {
+
+            String attrVal = record.get(this.attrName);
+
+            for (int count = this.matchCount(attrVal); count > 0; count--) {
+                list.add(new Object[]{attrVal, rowCounter});
+            }//end for
+
+            rowCounter++;
+        }//end for
+
+        return list;
+
+    }//end execute
+
+    /**
+     * run many queries of the same data set in one shared scan of the
+     * map/records, each attribute value read once for the queries of it
+     *
+     * @param dataSet list of map/records of the data set
+     * @param queries the queries of the data set
+     * @return one list of Object[]{attribute value, row index} for each query, in order
+     */
+    static List<List<Object[]>> executeBatch(final List<Map<String, String>> dataSet, final List<DataSetQuery> queries) {
+
+        List<List<Object[]>> results = new ArrayList<>(queries.size());
+
+        //group queries by attribute, so attribute read once for each row
+        Map<String, List<Integer>> attrQueryMap = new LinkedHashMap<>();
+
+        for (int idx = 0; idx < queries.size(); idx++) {
+            results.add(new ArrayList<>());
+            attrQueryMap.computeIfAbsent(queries.get(idx).attrName, key -> new ArrayList<>()).add(idx);
+        }//end for
+
+        String[] attrNames = attrQueryMap.keySet().toArray(new String[0]);
+        int[][] attrQueries = new int[attrNames.length][];
+
+        for (int attr = 0; attr < attrNames.length; attr++) {
+            attrQueries[attr] = attrQueryMap.get(attrNames[attr]).stream().mapToInt(Integer::intValue).toArray();
+        }//end for
+
+        int rowCounter = 0;
+
+        for (Map<String, String> record : dataSet) {
+
+            for (int attr = 0; attr < attrNames.length; attr++) {
+
+                String attrVal = record.get(attrNames[attr]);
+
+                for (int idx : attrQueries[attr]) {
+                    List<Object[]> list = results.get(idx);
+                    for (int count = queries.get(idx).matchCount(attrVal); count > 0; count--) {
+                        list.add(new Object[]{attrVal, rowCounter});
+                    }//end for
+                }//end for
+
+            }//end for
+
+            rowCounter++;
+        }//end for
+
+        return results;
+
+    }//end executeBatch
+
+    @Override
+    public boolean equals(final Object obj) {
+
+        if (this == obj) {
+            return true;
+        }//end if
+
+        if (!(obj instanceof DataSetQuery)) {
+            return false;
+        }//end if
+
+        DataSetQuery other = (DataSetQuery) obj;
+
+        return this.hash == other.hash
+                && this.dataSetName.equals(other.dataSetName)
+                && this.attrName.equals(other.attrName)
+                && this.op == other.op
+                && Arrays.equals(this.values, other.values);
+
+    }//end equals
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }//end hashCode
+
+    @Override
+    public String toString() {
+        return String.format("%s.%s %s %s", this.dataSetName, this.attrName, (this.op == null) ? "ALL" : this.op, Arrays.toString(this.values));
+    }//end toString
+
+}//end class DataSetQuery
@@ -0,0 +1,506 @@
+/**
+ *
+ * Title:        DataSetSnapshot.java - Binary snapshot file of a data set.
+ *
+ * Description:  Write a data set imported from its external file to a binary
+ *               snapshot file, and read it back on a later start instead of
+ *               the CSV, Excel, JSON or XML file is parsed again. The snapshot
+ *               has the fingerprint of the external file (size, last modified
+ *               time and CRC32 checksum), and is only used when the external
+ *               file has the same fingerprint.
+ *
+ *               Snapshot file format, version 1, big-endian:
+ *
+ *                 int     magic "NITW", int version
+ *                 String  external file path, long size, long modified, long crc32
+ *                 int     row count, int attribute count, byte ordered records
+ *                 each attribute:
+ *                   String  attribute name
+ *                   int     dictionary size, String distinct values
+ *                   int[]   code of each row, -1 no attribute, -2 null value
+ *                   byte    typed column type (DataSetColumn.ColumnType ordinal)
+ *                   int[] / double[] / String[] + int[] typed values, long[] valid bitmap
+ *                   byte    has statistics, ColumnStatistics counts and sketches
+ *
+ *               A String is an int byte length and the UTF-8 bytes. Each array
+ *               is an int length then the values, starting at a multiple of 8
+ *               bytes from the start of the file, so the arrays can be mapped
+ *               in place.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+//standard Java new input-output
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class DataSetSnapshot {
+
+    public static final int MAGIC = 0x4E495457;  //"NITW"
+    public static final int VERSION = 1;
+
+    public static final String FILE_EXTENSION = ".snapshot";
+
+    private final List<Map<String, String>> dataSet;
+    private final Map<String, DataSetColumn> columns;
+    private final Map<String, ColumnStatistics> statistics;
+
+    private DataSetSnapshot(List<Map<String, String>> dataSet, Map<String, DataSetColumn> columns, Map<String, ColumnStatistics> statistics) {
+        this.dataSet = dataSet;
+        this.columns = columns;
+        this.statistics = statistics;
+    }//end constructor
+
+    //list of map/records of the data set
+    public List<Map<String, String>> getDataSet() {
+        return this.dataSet;
+    }//end getDataSet
+
+    //typed column of each attribute
+    public Map<String, DataSetColumn> getColumns() {
+        return this.columns;
+    }//end getColumns
+
+    //statistics of each attribute gathered on import
+    public Map<String, ColumnStatistics> getStatistics() {
+        return this.statistics;
+    }//end getStatistics
+
+    /**
+     * fingerprint of an external file: size, last modified time and CRC32
+     *
+     * @param file the external file
+     * @return long[]{size, modified, crc32}
+     * @throws IOException if the file cannot be read
+     */
+    static long[] fingerprint(final Path file) throws IOException {
+
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int len = in.read(buffer); len >= 0; len = in.read(buffer)) {
+                crc.update(buffer, 0, len);
+            }//end for
+        }//end try
+
+        return new long[]{Files.size(file), Files.getLastModifiedTime(file).toMillis(), crc.getValue()};
+
+    }//end fingerprint
+
+    /**
+     * write snapshot of a data set, to a temporary file moved in place so a
+     * reader never sees a part of a snapshot
+     *
+     * @param snapshotFile the snapshot file to write
+     * @param sourceFile the external file the data set was imported from
+     * @param dataSet list of map/records of the data set
+     * @param statistics statistics of each attribute, or null
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(final Path snapshotFile, final Path sourceFile, final List<Map<String, String>> dataSet,
+            final Map<String, ColumnStatistics> statistics) throws IOException {
+
+        long[] fingerprint = DataSetSnapshot.fingerprint(sourceFile);
+
+        //attribute names in order of first appearance
+        Set<String> attrNames = new LinkedHashSet<>();
+        for (Map<String, String> record : dataSet) {
+            attrNames.addAll(record.keySet());
+        }//end for
+
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+
+        try {
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024))) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+
+                DataSetSnapshot.writeString(out, sourceFile.toString());
+                out.writeLong(fingerprint[0]);
+                out.writeLong(fingerprint[1]);
+                out.writeLong(fingerprint[2]);
+
+                out.writeInt(dataSet.size());
+                out.writeInt(attrNames.size());
+                out.writeBoolean(!dataSet.isEmpty() && dataSet.get(0) instanceof LinkedHashMap);
+
+                for (String attrName : attrNames) {
+                    DataSetSnapshot.writeStringColumn(out, dataSet, attrName);
+                    DataSetSnapshot.writeTypedColumn(out, DataSetColumn.fromDataSet(dataSet, attrName));
+                    ColumnStatistics attrStatistics = (statistics != null) ? statistics.get(attrName) : null;
+                    out.writeBoolean(attrStatistics != null);
+                    if (attrStatistics != null) {
+                        attrStatistics.writeTo(out);
+                    }//end if
+                }//end for
+
+            }//end try
+
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }//end try
+
+    }//end write
+
+    //dictionary of distinct values and code of each row
+    private static void writeStringColumn(final DataOutputStream out, final List<Map<String, String>> dataSet, final String attrName) throws IOException {
+
+        int[] codes = new int[dataSet.size()];
+        String[] dictionary = EncodedRecords.encode(dataSet, attrName, codes);
+
+        DataSetSnapshot.writeString(out, attrName);
+
+        out.writeInt(dictionary.length);
+        for (String val : dictionary) {
+            DataSetSnapshot.writeString(out, val);
+        }//end for
+
+        DataSetSnapshot.writeInts(out, codes);
+
+    }//end writeStringColumn
+
+    private static void writeTypedColumn(final DataOutputStream out, final DataSetColumn column) throws IOException {
+
+        out.writeByte(column.getType().ordinal());
+
+        switch (column.getType()) {
+            case INT:
+                DataSetSnapshot.writeInts(out, column.intArray());
+                break;
+            case DOUBLE:
+                DataSetSnapshot.writeDoubles(out, column.doubleArray());
+                break;
+            default:
+                String[] dictionary = column.dictionaryArray();
+                out.writeInt(dictionary.length);
+                for (String val : dictionary) {
+                    DataSetSnapshot.writeString(out, val);
+                }//end for
+                DataSetSnapshot.writeInts(out, column.intArray());
+        }//end switch
+
+        DataSetSnapshot.writeLongs(out, column.validBitmap());
+
+    }//end writeTypedColumn
+
+    private static void writeString(final DataOutputStream out, final String val) throws IOException {
+        byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }//end writeString
+
+    //pad so array values start at a multiple of 8 bytes after the int length
+    private static void align(final DataOutputStream out) throws IOException {
+        while ((out.size() + 4) % 8 != 0) {
+            out.writeByte(0);
+        }//end while
+    }//end align
+
+    private static void writeInts(final DataOutputStream out, final int[] values) throws IOException {
+        DataSetSnapshot.align(out);
+        out.writeInt(values.length);
+        for (int val : values) {
+            out.writeInt(val);
+        }//end for
+    }//end writeInts
+
+    private static void writeDoubles(final DataOutputStream out, final double[] values) throws IOException {
+        DataSetSnapshot.align(out);
+        out.writeInt(values.length);
+        for (double val : values) {
+            out.writeDouble(val);
+        }//end for
+    }//end writeDoubles
+
+    private static void writeLongs(final DataOutputStream out, final long[] values) throws IOException {
+        DataSetSnapshot.align(out);
+        out.writeInt(values.length);
+        for (long val : values) {
+            out.writeLong(val);
+        }//end for
+    }//end writeLongs
+
+    /**
+     * read snapshot of a data set if it is of the external file as it is now
+     *
+     * @param snapshotFile the snapshot file to read
+     * @param sourceFile the external file the data set is imported from
+     * @return the snapshot, or null if no snapshot, other version, or external file changed
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static DataSetSnapshot read(final Path snapshotFile, final Path sourceFile) throws IOException {
+        return DataSetSnapshot.read(snapshotFile, sourceFile, false);
+    }//end read
+
+    /**
+     * read snapshot of a data set if it is of the external file as it is now;
+     * when mapped, the typed columns and the records read the values in place
+     * from the memory-mapped file, shared with other processes through the
+     * page cache, and only the dictionaries of distinct values are on the heap
+     *
+     * @param snapshotFile the snapshot file to read
+     * @param sourceFile the external file the data set is imported from, or null to not check it
+     * @param mapped true to read values in place, false to copy them to the heap
+     * @return the snapshot, or null if no snapshot, other version, or external file changed
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static DataSetSnapshot read(final Path snapshotFile, final Path sourceFile, final boolean mapped) throws IOException {
+
+        if (Files.notExists(snapshotFile) || (sourceFile != null && Files.notExists(sourceFile))) {
+            return null;
+        }//end if
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }//end try
+
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }//end if
+
+        DataSetSnapshot.readString(buffer);  //path the snapshot was written from
+        long size = buffer.getLong(), modified = buffer.getLong(), crc = buffer.getLong();
+
+        //size and time first, checksum only if they match
+        if (sourceFile != null) {
+
+            if (size != Files.size(sourceFile) || modified != Files.getLastModifiedTime(sourceFile).toMillis()) {
+                return null;
+            }//end if
+
+            if (crc != DataSetSnapshot.fingerprint(sourceFile)[2]) {
+                return null;
+            }//end if
+
+        }//end if
+
+        int rowCount = buffer.getInt();
+        int attrCount = buffer.getInt();
+        boolean ordered = buffer.get() != 0;
+
+        String[] attrNames = new String[attrCount];
+        String[][] dictionaries = new String[attrCount][];
+        IntBuffer[] codes = new IntBuffer[attrCount];
+        Map<String, DataSetColumn> columns = new HashMap<>(attrCount * 2);
+        Map<String, ColumnStatistics> statistics = new HashMap<>(attrCount * 2);
+
+        for (int attr = 0; attr < attrCount; attr++) {
+
+            attrNames[attr] = DataSetSnapshot.readString(buffer);
+
+            dictionaries[attr] = new String[buffer.getInt()];
+            for (int code = 0; code < dictionaries[attr].length; code++) {
+                dictionaries[attr][code] = DataSetSnapshot.readString(buffer);
+            }//end for
+
+            codes[attr] = mapped ? DataSetSnapshot.mapInts(buffer) : IntBuffer.wrap(DataSetSnapshot.readInts(buffer));
+
+            columns.put(attrNames[attr], mapped
+                    ? DataSetSnapshot.mapTypedColumn(buffer, attrNames[attr], rowCount)
+                    : DataSetSnapshot.readTypedColumn(buffer, attrNames[attr], rowCount));
+
+            if (buffer.get() != 0) {
+                statistics.put(attrNames[attr], ColumnStatistics.readFrom(buffer, attrNames[attr]));
+            }//end if
+
+        }//end for
+
+        if (mapped) {
+            return new DataSetSnapshot(new EncodedRecords(attrNames, dictionaries, codes, rowCount), columns, statistics);
+        }//end if
+
+        List<Map<String, String>> dataSet = new ArrayList<>(rowCount);
+
+        for (int row = 0; row < rowCount; row++) {
+
+            Map<String, String> record = ordered ? new LinkedHashMap<>() : new HashMap<>(attrCount);
+
+            for (int attr = 0; attr < attrCount; attr++) {
+                int code = codes[attr].get(row);
+                if (code >= 0) {
+                    record.put(attrNames[attr], dictionaries[attr][code]);
+                } else if (code == EncodedRecords.CODE_NULL) {
+                    record.put(attrNames[attr], null);
+                }//end if
+            }//end for
+
+            dataSet.add(record);
+        }//end for
+
+        return new DataSetSnapshot(dataSet, columns, statistics);
+
+    }//end read
+
+    private static DataSetColumn readTypedColumn(final ByteBuffer buffer, final String name, final int size) {
+
+        DataSetColumn.ColumnType type = DataSetColumn.ColumnType.values()[buffer.get()];
+
+        int[] intValues = null;
+        double[] doubleValues = null;
+        String[] dictionary = null;
+
+        switch (type) {
+            case INT:
+                intValues = DataSetSnapshot.readInts(buffer);
+                break;
+            case DOUBLE:
+                doubleValues = DataSetSnapshot.readDoubles(buffer);
+                break;
+            default:
+                dictionary = new String[buffer.getInt()];
+                for (int code = 0; code < dictionary.length; code++) {
+                    dictionary[code] = DataSetSnapshot.readString(buffer);
+                }//end for
+                intValues = DataSetSnapshot.readInts(buffer);
+        }//end switch
+
+        long[] validBits = DataSetSnapshot.readLongs(buffer);
+
+        return DataSetColumn.of(name, type, size, intValues, doubleValues, dictionary, validBits);
+
+    }//end readTypedColumn
+
+    //typed column over slices of the mapped buffer
+    private static DataSetColumn mapTypedColumn(final ByteBuffer buffer, final String name, final int size) {
+
+        DataSetColumn.ColumnType type = DataSetColumn.ColumnType.values()[buffer.get()];
+
+        IntBuffer intBuffer = null;
+        DoubleBuffer doubleBuffer = null;
+        String[] dictionary = null;
+
+        switch (type) {
+            case INT:
+                intBuffer = DataSetSnapshot.mapInts(buffer);
+                break;
+            case DOUBLE:
+                doubleBuffer = DataSetSnapshot.mapDoubles(buffer);
+                break;
+            default:
+                dictionary = new String[buffer.getInt()];
+                for (int code = 0; code < dictionary.length; code++) {
+                    dictionary[code] = DataSetSnapshot.readString(buffer);
+                }//end for
+                intBuffer = DataSetSnapshot.mapInts(buffer);
+        }//end switch
+
+        LongBuffer validBuffer = DataSetSnapshot.mapLongs(buffer);
+
+        return DataSetColumn.ofMapped(name, type, size, intBuffer, doubleBuffer, dictionary, validBuffer);
+
+    }//end mapTypedColumn
+
+    //slice of the next array of length values, buffer moved past it
+    private static ByteBuffer slice(final ByteBuffer buffer, final int bytesPerValue) {
+        DataSetSnapshot.align(buffer);
+        int length = buffer.getInt();
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length * bytesPerValue);
+        buffer.position(buffer.position() + length * bytesPerValue);
+        return slice;
+    }//end slice
+
+    private static IntBuffer mapInts(final ByteBuffer buffer) {
+        return DataSetSnapshot.slice(buffer, Integer.BYTES).asIntBuffer();
+    }//end mapInts
+
+    private static DoubleBuffer mapDoubles(final ByteBuffer buffer) {
+        return DataSetSnapshot.slice(buffer, Double.BYTES).asDoubleBuffer();
+    }//end mapDoubles
+
+    private static LongBuffer mapLongs(final ByteBuffer buffer) {
+        return DataSetSnapshot.slice(buffer, Long.BYTES).asLongBuffer();
+    }//end mapLongs
+
+    private static String readString(final ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }//end readString
+
+    //skip padding written by align
+    private static void align(final ByteBuffer buffer) {
+        while ((buffer.position() + 4) % 8 != 0) {
+            buffer.get();
+        }//end while
+    }//end align
+
+    private static int[] readInts(final ByteBuffer buffer) {
+        DataSetSnapshot.align(buffer);
+        int[] values = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+        return values;
+    }//end readInts
+
+    private static double[] readDoubles(final ByteBuffer buffer) {
+        DataSetSnapshot.align(buffer);
+        double[] values = new double[buffer.getInt()];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Double.BYTES);
+        return values;
+    }//end readDoubles
+
+    private static long[] readLongs(final ByteBuffer buffer) {
+        DataSetSnapshot.align(buffer);
+        long[] values = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Long.BYTES);
+        return values;
+    }//end readLongs
+
+}//end class DataSetSnapshot
@@ -0,0 +1,125 @@
+/**
+ *
+ * Title:        DataSetSpliterator.java - Spliterator over row ids of a data set.
+ *
+ * Description:  A Spliterator over the row ids [origin, fence) of a data set or
+ *               a typed column. The size is known exactly before and after each
+ *               split (SIZED, SUBSIZED), and the rows do not change while being
+ *               traversed (IMMUTABLE), so a parallel stream splits the rows
+ *               evenly without copying, unlike a List of maps.
+ *
+ *               Each split is on a multiple of 64 rows, so two parts never
+ *               share a long word of a selection bitmap.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java streams
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+public final class DataSetSpliterator implements Spliterator.OfInt {
+
+    private static final int CHARACTERISTICS = Spliterator.SIZED | Spliterator.SUBSIZED
+            | Spliterator.IMMUTABLE | Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+
+    private final int grainSize;  //no split below this many rows
+    private int origin;           //next row id to traverse
+    private final int fence;      //row id to stop at, not traversed
+
+    /**
+     * create spliterator over row ids [origin, fence)
+     *
+     * @param origin the first row id
+     * @param fence the row id to stop at
+     * @param grainSize the smallest number of rows to split into
+     */
+    public DataSetSpliterator(final int origin, final int fence, final int grainSize) {
+        this.origin = origin;
+        this.fence = fence;
+        this.grainSize = Math.max(64, grainSize);
+    }//end constructor
+
+    /**
+     * create spliterator over all row ids [0, size)
+     *
+     * @param size the number of rows
+     */
+    public DataSetSpliterator(final int size) {
+        this(0, size, ParallelScan.DEFAULT_GRAIN_SIZE);
+    }//end constructor
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+
+        int lo = this.origin;
+        int mid = ((lo + this.fence) >>> 1) & ~63;  //split on 64-row boundary
+
+        if (this.fence - lo < 2 * this.grainSize || mid <= lo) {
+            return null;
+        }//end if
+
+        this.origin = mid;
+
+        return new DataSetSpliterator(lo, mid, this.grainSize);
+
+    }//end trySplit
+
+    @Override
+    public boolean tryAdvance(final IntConsumer action) {
+
+        if (this.origin < this.fence) {
+            action.accept(this.origin++);
+            return true;
+        }//end if
+
+        return false;
+
+    }//end tryAdvance
+
+    @Override
+    public void forEachRemaining(final IntConsumer action) {
+
+        final int hi = this.fence;
+        int row = this.origin;
+        this.origin = hi;
+
+        for (; row < hi; row++) {
+            action.accept(row);
+        }//end for
+
+    }//end forEachRemaining
+
+    @Override
+    public long estimateSize() {
+        return this.fence - this.origin;
+    }//end estimateSize
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }//end characteristics
+
+}//end class DataSetSpliterator
@@ -0,0 +1,242 @@
+/**
+ *
+ * Title:        DataSetWatcher.java - Reload data sets when their files change.
+ *
+ * Description:  Watch the directories of the external data files with a
+ *               WatchService, and when the file of a data set is created or
+ *               modified, import that data set again in the background and swap
+ *               it into the data engine. Readers of the data engine are not
+ *               blocked while a data set is imported; they see the previous data
+ *               set until the new one is swapped in.
+ *
+ *               A file is often written in more than one step, so a data set is
+ *               reloaded once its file has had no change for a quiet time.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.IOException;
+
+//standard Java new input-output
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+//standard Java data structures/collections
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+//standard Java concurrency
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+final class DataSetWatcher implements AutoCloseable {
+
+    public static final long DEFAULT_QUIET_MILLIS = 500L;
+
+    private final DataEngine dEng;
+    private final DataSetCatalog catalog;  //catalog of the data sets watched
+    private final long quietMillis;
+    private final boolean echoFlag;
+
+    private final WatchService watchService;
+
+    //directory watched to file name in it to data set name
+    private final Map<Path, Map<Path, String>> watchMap = new HashMap<>();
+
+    //data set name to time of the last change not reloaded yet
+    private final Map<String, Long> pendingMap = new HashMap<>();
+
+    private final Thread watchThread;
+    private final ExecutorService reloadExecutor;
+
+    /**
+     * watch the external files of the data sets of a data engine
+     *
+     * @param dEng the data engine to reload data sets of
+     * @param quietMillis time with no change to a file before it is reloaded
+     * @param echoFlag echo each reload
+     * @throws IOException if the directories cannot be watched
+     */
+    DataSetWatcher(final DataEngine dEng, final long quietMillis, final boolean echoFlag) throws IOException {
+
+        this.dEng = dEng;
+        this.catalog = dEng.getDataSetCatalog();
+        this.quietMillis = quietMillis;
+        this.echoFlag = echoFlag;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        for (String name : this.catalog.getDataSetNames()) {
+
+            //read from its snapshot only, not its external file
+            if (this.catalog.getPolicy(name) == DataSetCatalog.LoadPolicy.SNAPSHOT_ONLY) {
+                continue;
+            }//end if
+
+            Path file = Paths.get(this.catalog.getSource(name)).toAbsolutePath();
+            Path dir = file.getParent();
+
+            if (!this.watchMap.containsKey(dir)) {
+                dir.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                this.watchMap.put(dir, new HashMap<>());
+            }//end if
+
+            this.watchMap.get(dir).put(file.getFileName(), name);
+
+        }//end for
+
+        //one reload at a time, in the order the changes are seen
+        this.reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DataSetWatcher-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.watchThread = new Thread(this::watch, "DataSetWatcher");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+
+    }//end constructor
+
+    //wait for changes, and reload each data set when its file is quiet
+    private void watch() {
+
+        try {
+
+            while (!Thread.currentThread().isInterrupted()) {
+
+                WatchKey key = this.watchService.poll(this.quietMillis, TimeUnit.MILLISECONDS);
+
+                if (key != null) {
+                    this.recordChanges(key);
+                }//end if
+
+                this.reloadQuietDataSets();
+
+            }//end while
+
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            //closed, stop watching
+        }//end try
+
+    }//end watch
+
+    private void recordChanges(final WatchKey key) {
+
+        Path dir = (Path) key.watchable();
+        Map<Path, String> fileMap = this.watchMap.get(dir);
+        long now = System.currentTimeMillis();
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                //events lost, reload every data set of the directory
+                for (String name : fileMap.values()) {
+                    this.pendingMap.put(name, now);
+                }//end for
+                continue;
+            }//end if
+
+            String name = fileMap.get((Path) event.context());
+
+            if (name != null) {
+                this.pendingMap.put(name, now);
+            }//end if
+
+        }//end for
+
+        key.reset();
+
+    }//end recordChanges
+
+    private void reloadQuietDataSets() {
+
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Long>> iter = this.pendingMap.entrySet().iterator();
+
+        while (iter.hasNext()) {
+
+            Map.Entry<String, Long> entry = iter.next();
+
+            if (now - entry.getValue() < this.quietMillis) {
+                continue;  //file may still be written
+            }//end if
+
+            iter.remove();
+
+            String name = entry.getKey();
+            this.reloadExecutor.execute(() -> this.reload(name));
+
+        }//end while
+
+    }//end reloadQuietDataSets
+
+    private void reload(final String name) {
+
+        //file moved away or deleted, keep the data set loaded before
+        if (Files.notExists(Paths.get(this.catalog.getSource(name)))) {
+            return;
+        }//end if
+
+        try {
+
+            long timeStart = System.currentTimeMillis();
+            this.dEng.reloadDataSet(name);
+
+            if (this.echoFlag) {
+                System.out.printf("  Reloaded changed data set %s. Time: %6d-mSec.%n", name, System.currentTimeMillis() - timeStart);
+            }//end if
+
+        } catch (RuntimeException ex) {
+            System.err.printf("Warning: data set %s not reloaded, previous data set kept: %s%n", name, ex);
+        }//end try
+
+    }//end reload
+
+    //stop watching; a reload already started finishes
+    @Override
+    public void close() {
+
+        this.watchThread.interrupt();
+        this.reloadExecutor.shutdown();
+
+        try {
+            this.watchService.close();
+        } catch (IOException ex) {
+            System.err.printf("Warning: %s%n", ex);
+        }//end try
+
+    }//end close
+
+}//end class DataSetWatcher
@@ -0,0 +1,221 @@
+/**
+ *
+ * Title:        DataSourceReader.java - Reader of one format of external data file.
+ *
+ * Description:  Service-provider interface of the readers of the external data
+ *               files. Each reader declares its format and file extensions,
+ *               recognizes its format from the first bytes of a file, and says
+ *               if it reads the file as a stream and if it can split the file
+ *               to read the parts in parallel.
+ *
+ *               The data engine picks the reader of a file by its content
+ *               first, then by the extension after the last dot of the file
+ *               name, so a file named "Exports By State 2012.v2.xlsx" or a CSV
+ *               file with a wrong extension is still read. Readers are
+ *               registered with DataSourceReaders.register, or found on the
+ *               class path in META-INF/services/org.nitw.project.DataSourceReader.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.IOException;
+import java.io.InputStream;
+
+//standard Java new input-output
+import java.nio.file.Path;
+
+//standard Java data structures/collections
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface DataSourceReader {
+
+    /**
+     * get name of the format, e.g. "csv"
+     *
+     * @return format name
+     */
+    String getFormat();
+
+    /**
+     * get file name extensions of the format, lower case without the dot
+     *
+     * @return set of extensions, e.g. "csv"
+     */
+    Set<String> getExtensions();
+
+    /**
+     * reader reads the file as a stream, without the whole file in memory
+     *
+     * @return true if streaming
+     */
+    boolean isStreaming();
+
+    /**
+     * reader can split the file and read the parts in parallel, when the
+     * request is parallel
+     *
+     * @return true if splittable
+     */
+    boolean isSplittable();
+
+    /**
+     * recognize the format from the first bytes of a file
+     *
+     * @param head the first bytes of the file
+     * @param length number of bytes in head, less than its length for a small file
+     * @return true if the file is of the format
+     */
+    boolean sniff(byte[] head, int length);
+
+    /**
+     * read map/records of the external file; only the attributes wanted and
+     * the records accepted by the request are loaded
+     *
+     * @param request the file and what to load of it
+     * @return list of map/record in order of the file
+     * @throws IOException if the file cannot be read
+     */
+    List<Map<String, String>> read(Request request) throws IOException;
+
+    /**
+     * request to read one external file: the file, the attributes and records
+     * to load, and the progress of the import
+     */
+    final class Request {
+
+        private final Path file;
+        private final Map<String, ColumnStatistics> statistics;
+        private final ImportProgress progress;
+        private final LoadSpec.DataSetSpec spec;
+        private final boolean parallel;
+        private boolean statisticsGathered = false;
+
+        Request(Path file, Map<String, ColumnStatistics> statistics, ImportProgress progress, LoadSpec.DataSetSpec spec, boolean parallel) {
+            this.file = file;
+            this.statistics = statistics;
+            this.progress = progress;
+            this.spec = spec;
+            this.parallel = parallel;
+        }//end constructor
+
+        /**
+         * get external file
+         *
+         * @return path of the file
+         */
+        public Path getPath() {
+            return this.file;
+        }//end getPath
+
+        /**
+         * open the external file with a stream that counts the bytes read,
+         * decompressed if the file is gzip, zstd or xz compressed
+         *
+         * @return input stream of the content of the file
+         * @throws IOException if the file cannot be opened
+         */
+        public InputStream open() throws IOException {
+            return this.progress.open(this.file);
+        }//end open
+
+        /**
+         * file is large enough to be split and read in parallel
+         *
+         * @return true to read in parallel, if the reader is splittable
+         */
+        public boolean isParallel() {
+            return this.parallel;
+        }//end isParallel
+
+        /**
+         * get attributes to load
+         *
+         * @return unmodifiable set of attribute names, or null for every attribute
+         */
+        public Set<String> getColumns() {
+            return this.spec.getColumns();
+        }//end getColumns
+
+        /**
+         * attribute is loaded, so its field is decoded
+         *
+         * @param attrName the attribute name (header)
+         * @return true if the attribute is in the map/records
+         */
+        public boolean wants(final String attrName) {
+            return this.spec.wants(attrName);
+        }//end wants
+
+        /**
+         * attribute is loaded or tested by a filter, so its field is decoded
+         *
+         * @param attrName the attribute name (header)
+         * @return true if the field is decoded
+         */
+        public boolean decodes(final String attrName) {
+            return this.spec.decodes(attrName);
+        }//end decodes
+
+        /**
+         * test record against the filters of the records to load
+         *
+         * @param values raw value of the attributes of the record, at least those decoded
+         * @return true to load the record
+         */
+        public boolean accepts(final Map<String, String> values) {
+            return this.spec.accepts(values);
+        }//end accepts
+
+        /**
+         * one more map/record decoded, for the progress of the import
+         */
+        public void recordDecoded() {
+            this.progress.recordDecoded();
+        }//end recordDecoded
+
+        ImportProgress getProgress() {
+            return this.progress;
+        }//end getProgress
+
+        LoadSpec.DataSetSpec getSpec() {
+            return this.spec;
+        }//end getSpec
+
+        //map to put statistics in by a reader that gathers them as it reads, or null
+        Map<String, ColumnStatistics> gatherStatistics() {
+            this.statisticsGathered = true;
+            return this.statistics;
+        }//end gatherStatistics
+
+        boolean isStatisticsGathered() {
+            return this.statisticsGathered;
+        }//end isStatisticsGathered
+
+    }//end class Request
+
+}//end interface DataSourceReader
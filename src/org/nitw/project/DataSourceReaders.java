@@ -0,0 +1,381 @@
+/**
+ *
+ * Title:        DataSourceReaders.java - Registry of the external data file readers.
+ *
+ * Description:  The readers of the external data files known to the data
+ *               engine: readers registered, then readers found on the class
+ *               path by the service loader, then the built-in readers of CSV,
+ *               JSON, Excel and XML files.
+ *
+ *               The reader of a file is picked by sniffing the first bytes of
+ *               the file; a reader whose extension is also the extension of the
+ *               file is picked first. A file whose content no reader recognizes,
+ *               such as an empty file, is read by the reader of its extension.
+ *               A compressed file is sniffed once decompressed, by the extension
+ *               before that of its codec, e.g. "csv" of "usa_county_list.csv.gz".
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.IOException;
+import java.io.InputStream;
+
+//standard Java new input-output
+import java.nio.file.Path;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+//standard Java concurrency
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public final class DataSourceReaders {
+
+    static final int SNIFF_BYTES = 512;  //first bytes of a file passed to sniff
+
+    //readers in order of preference, a reader registered goes first
+    private static final List<DataSourceReader> READERS = new CopyOnWriteArrayList<>();
+
+    static {
+
+        List<DataSourceReader> readers = new ArrayList<>();
+
+        try {
+            for (DataSourceReader reader : ServiceLoader.load(DataSourceReader.class)) {
+                readers.add(reader);
+            }//end for
+        } catch (ServiceConfigurationError err) {
+            System.err.printf("Warning: data source readers on the class path not loaded: %s%n", err);
+        }//end try
+
+        readers.add(new CsvReader());
+        readers.add(new JsonReader());
+        readers.add(new ExcelReader());
+        readers.add(new XmlReader());
+
+        READERS.addAll(readers);
+
+    }//end static
+
+    private DataSourceReaders() {
+    }//end constructor
+
+    /**
+     * register reader, picked before the readers registered earlier and the
+     * built-in readers of the same format
+     *
+     * @param reader the reader
+     */
+    public static void register(final DataSourceReader reader) {
+        READERS.add(0, Objects.requireNonNull(reader, "reader"));
+    }//end register
+
+    /**
+     * get readers in order of preference
+     *
+     * @return unmodifiable list of the readers
+     */
+    public static List<DataSourceReader> getReaders() {
+        return Collections.unmodifiableList(new ArrayList<>(READERS));
+    }//end getReaders
+
+    /**
+     * pick reader of a file by its first bytes and its extension
+     *
+     * @param file the external file
+     * @return reader of the file, or null if no reader knows its format
+     * @throws IOException if the file cannot be read
+     */
+    public static DataSourceReader select(final Path file) throws IOException {
+
+        byte[] head = new byte[SNIFF_BYTES];
+        int length;
+
+        //first bytes of the content, of a compressed file once decompressed
+        try (InputStream input = CompressedInput.open(file)) {
+            length = input.readNBytes(head, 0, head.length);
+        }//end try
+
+        String extension = DataSourceReaders.extension(file);
+
+        DataSourceReader sniffed = null;
+        DataSourceReader named = null;
+
+        for (DataSourceReader reader : READERS) {
+
+            boolean isFormat = reader.sniff(head, length);
+            boolean isExtension = reader.getExtensions().contains(extension);
+
+            if (isFormat && isExtension) {
+                return reader;
+            }//end if
+
+            if (isFormat && sniffed == null) {
+                sniffed = reader;
+            } else if (isExtension && named == null) {
+                named = reader;
+            }//end if
+
+        }//end for
+
+        return (sniffed != null) ? sniffed : named;
+
+    }//end select
+
+    /**
+     * get reader of a format, the one registered last
+     *
+     * @param format the format name, e.g. "csv"
+     * @return reader of the format, or null if no reader knows the format
+     */
+    public static DataSourceReader forFormat(final String format) {
+
+        for (DataSourceReader reader : READERS) {
+            if (reader.getFormat().equalsIgnoreCase(format)) {
+                return reader;
+            }//end if
+        }//end for
+
+        return null;
+
+    }//end forFormat
+
+    //extension after the last dot of the file name, lower case, empty if none;
+    //before the extension of a codec, e.g. "csv" of "usa_county_list.csv.gz"
+    static String extension(final Path file) {
+
+        String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        for (CompressedInput.Codec codec : CompressedInput.Codec.values()) {
+            if (codec != CompressedInput.Codec.NONE && fileName.endsWith("." + codec.getExtension())) {
+                fileName = fileName.substring(0, fileName.length() - codec.getExtension().length() - 1);
+                break;
+            }//end if
+        }//end for
+
+        int dot = fileName.lastIndexOf('.');
+
+        return (dot >= 0) ? fileName.substring(dot + 1) : "";
+
+    }//end extension
+
+    //first byte of the content, after a UTF-8 byte order mark and white space, -1 if none
+    static int firstByte(final byte[] head, final int length) {
+
+        int idx = 0;
+
+        if (length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            idx = 3;
+        }//end if
+
+        for (; idx < length; idx++) {
+            if (!Character.isWhitespace(head[idx])) {
+                return head[idx] & 0xFF;
+            }//end if
+        }//end for
+
+        return -1;
+
+    }//end firstByte
+
+    //text with a comma in its first line, and not markup or JSON
+    static final class CsvReader implements DataSourceReader {
+
+        @Override
+        public String getFormat() {
+            return "csv";
+        }//end getFormat
+
+        @Override
+        public Set<String> getExtensions() {
+            return Set.of("csv");
+        }//end getExtensions
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }//end isStreaming
+
+        @Override
+        public boolean isSplittable() {
+            return true;  //byte ranges that start on a record, see ParallelCsvReader
+        }//end isSplittable
+
+        @Override
+        public boolean sniff(final byte[] head, final int length) {
+
+            int first = DataSourceReaders.firstByte(head, length);
+
+            if (first < 0 || first == '<' || first == '[' || first == '{') {
+                return false;
+            }//end if
+
+            boolean comma = false;
+
+            for (int idx = 0; idx < length; idx++) {
+                if (head[idx] == 0) {
+                    return false;  //binary
+                } else if (head[idx] == ',') {
+                    comma = true;
+                } else if (head[idx] == '\n' && comma) {
+                    break;
+                }//end if
+            }//end for
+
+            return comma;
+
+        }//end sniff
+
+        @Override
+        public List<Map<String, String>> read(final DataSourceReader.Request request) {
+
+            String filePath = request.getPath().toString();
+
+            if (request.isParallel()) {
+                return DataEngine.readCSVParallel(filePath, request.gatherStatistics(), request.getProgress(), request.getSpec());
+            }//end if
+
+            return DataEngine.readCSV(filePath, request.getProgress(), request.getSpec());
+
+        }//end read
+
+    }//end class CsvReader
+
+    //array or object of records
+    static final class JsonReader implements DataSourceReader {
+
+        @Override
+        public String getFormat() {
+            return "json";
+        }//end getFormat
+
+        @Override
+        public Set<String> getExtensions() {
+            return Set.of("json");
+        }//end getExtensions
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }//end isStreaming
+
+        @Override
+        public boolean isSplittable() {
+            return false;
+        }//end isSplittable
+
+        @Override
+        public boolean sniff(final byte[] head, final int length) {
+            int first = DataSourceReaders.firstByte(head, length);
+            return first == '[' || first == '{';
+        }//end sniff
+
+        @Override
+        public List<Map<String, String>> read(final DataSourceReader.Request request) {
+            return DataEngine.readJSON(request.getPath().toString(), request.getProgress(), request.getSpec());
+        }//end read
+
+    }//end class JsonReader
+
+    //zip archive of the workbook, read whole into memory by the workbook
+    static final class ExcelReader implements DataSourceReader {
+
+        @Override
+        public String getFormat() {
+            return "xlsx";
+        }//end getFormat
+
+        @Override
+        public Set<String> getExtensions() {
+            return Set.of("xlsx");
+        }//end getExtensions
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }//end isStreaming
+
+        @Override
+        public boolean isSplittable() {
+            return false;
+        }//end isSplittable
+
+        @Override
+        public boolean sniff(final byte[] head, final int length) {
+            return length >= 4 && head[0] == 'P' && head[1] == 'K' && head[2] == 3 && head[3] == 4;
+        }//end sniff
+
+        @Override
+        public List<Map<String, String>> read(final DataSourceReader.Request request) {
+            return DataEngine.readExcel(request.getPath().toString(), request.getProgress(), request.getSpec());
+        }//end read
+
+    }//end class ExcelReader
+
+    //markup of records, one element per line
+    static final class XmlReader implements DataSourceReader {
+
+        @Override
+        public String getFormat() {
+            return "xml";
+        }//end getFormat
+
+        @Override
+        public Set<String> getExtensions() {
+            return Set.of("xml");
+        }//end getExtensions
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }//end isStreaming
+
+        @Override
+        public boolean isSplittable() {
+            return false;
+        }//end isSplittable
+
+        @Override
+        public boolean sniff(final byte[] head, final int length) {
+            return DataSourceReaders.firstByte(head, length) == '<';
+        }//end sniff
+
+        @Override
+        public List<Map<String, String>> read(final DataSourceReader.Request request) {
+            return DataEngine.readXML(request.getPath().toString(), request.getProgress(), request.getSpec());
+        }//end read
+
+    }//end class XmlReader
+
+}//end class DataSourceReaders
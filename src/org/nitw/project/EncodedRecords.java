@@ -0,0 +1,182 @@
+/**
+ *
+ * Title:        EncodedRecords.java - Map/records of dictionary-encoded columns.
+ *
+ * Description:  A list of read-only map/records over the attributes of a data
+ *               set stored as columns of dictionary codes: one dictionary of the
+ *               distinct String values and one code for each row. The codes are
+ *               an IntBuffer, so they can be in a memory-mapped snapshot file or
+ *               in off-heap memory, and each record is a view of one row that
+ *               looks up its values when read.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java new input-output
+import java.nio.IntBuffer;
+
+//standard Java data structures/collections
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+final class EncodedRecords extends AbstractList<Map<String, String>> implements RandomAccess {
+
+    static final int CODE_ABSENT = -1;  //record has no attribute
+    static final int CODE_NULL = -2;    //record has attribute with null value
+
+    private final String[] attrNames;
+    private final Map<String, Integer> attrIndexMap = new HashMap<>();
+    private final String[][] dictionaries;
+    private final IntBuffer[] codes;
+    private final int rowCount;
+
+    private volatile boolean released = false;
+
+    EncodedRecords(String[] attrNames, String[][] dictionaries, IntBuffer[] codes, int rowCount) {
+        this.attrNames = attrNames;
+        this.dictionaries = dictionaries;
+        this.codes = codes;
+        this.rowCount = rowCount;
+        for (int attr = 0; attr < attrNames.length; attr++) {
+            this.attrIndexMap.put(attrNames[attr], attr);
+        }//end for
+    }//end constructor
+
+    /**
+     * dictionary encode one attribute of the map/records of a data set
+     *
+     * @param dataSet list of map/records of the data set
+     * @param attrName the attribute name
+     * @param codes array to put the code of each row in, CODE_ABSENT or CODE_NULL if no value
+     * @return dictionary of the distinct values, code is order of first appearance
+     */
+    static String[] encode(final List<Map<String, String>> dataSet, final String attrName, final int[] codes) {
+
+        Map<String, Integer> codeMap = new LinkedHashMap<>();
+
+        for (int row = 0; row < codes.length; row++) {
+            Map<String, String> record = dataSet.get(row);
+            String val = record.get(attrName);
+            if (val != null) {
+                Integer code = codeMap.get(val);
+                if (code == null) {
+                    code = codeMap.size();
+                    codeMap.put(val, code);
+                }//end if
+                codes[row] = code;
+            } else {
+                codes[row] = record.containsKey(attrName) ? CODE_NULL : CODE_ABSENT;
+            }//end if
+        }//end for
+
+        return codeMap.keySet().toArray(new String[0]);
+
+    }//end encode
+
+    //records no longer readable, e.g. off-heap memory released
+    void release() {
+        this.released = true;
+    }//end release
+
+    @Override
+    public Map<String, String> get(final int row) {
+
+        if (this.released) {
+            throw new RuntimeException("EncodedRecords.get: records have been released!");
+        }//end if
+
+        if (row < 0 || row >= this.rowCount) {
+            throw new IndexOutOfBoundsException(String.format("EncodedRecords.get: row %d of %d rows!", row, this.rowCount));
+        }//end if
+
+        return new Record(row);
+
+    }//end get
+
+    @Override
+    public int size() {
+        return this.rowCount;
+    }//end size
+
+    //read-only map/record of one row
+    private final class Record extends AbstractMap<String, String> {
+
+        private final int row;
+
+        Record(int row) {
+            this.row = row;
+        }//end constructor
+
+        private int code(final int attr) {
+            if (EncodedRecords.this.released) {
+                throw new RuntimeException("EncodedRecords.Record: records have been released!");
+            }//end if
+            return EncodedRecords.this.codes[attr].get(this.row);
+        }//end code
+
+        @Override
+        public String get(final Object key) {
+            Integer attr = EncodedRecords.this.attrIndexMap.get(key);
+            if (attr == null) {
+                return null;
+            }//end if
+            int code = this.code(attr);
+            return (code >= 0) ? EncodedRecords.this.dictionaries[attr][code] : null;
+        }//end get
+
+        @Override
+        public boolean containsKey(final Object key) {
+            Integer attr = EncodedRecords.this.attrIndexMap.get(key);
+            return attr != null && this.code(attr) != CODE_ABSENT;
+        }//end containsKey
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+
+            Set<Map.Entry<String, String>> entries = new LinkedHashSet<>();
+
+            for (int attr = 0; attr < EncodedRecords.this.attrNames.length; attr++) {
+                int code = this.code(attr);
+                if (code != CODE_ABSENT) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(EncodedRecords.this.attrNames[attr],
+                            (code >= 0) ? EncodedRecords.this.dictionaries[attr][code] : null));
+                }//end if
+            }//end for
+
+            return Collections.unmodifiableSet(entries);
+
+        }//end entrySet
+
+    }//end class Record
+
+}//end class EncodedRecords
@@ -0,0 +1,345 @@
+/**
+ *
+ * Title:        EngineVersion.java - Immutable version of the data engine.
+ *
+ * Description:  One consistent version of the data sets of the data engine:
+ *               the map/records, typed columns, statistics and off-heap store
+ *               of each data set. A version is never changed; a reload or a
+ *               derived data set publishes a new version that shares each data
+ *               set not changed with the version before (copy-on-write).
+ *
+ *               A reader pins the current version without a lock, and reads
+ *               every data set from it as of the same time, even while new
+ *               versions are published. A version replaced by a newer one is
+ *               retired, and reclaimed once no reader has it pinned; a data set
+ *               is released when no version that is not reclaimed refers to it.
+ *               A reader of a data set got without a pin, e.g. by
+ *               DataEngine.getDataSetByName, keeps reading it after a reload;
+ *               the off-heap memory of a data set is returned by the garbage
+ *               collector once no reader refers to its records.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//standard Java concurrency
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class EngineVersion implements AutoCloseable {
+
+    /**
+     * one data set of a version: read-only map/records, typed columns built on
+     * first use, statistics gathered on import, and the off-heap store if any
+     */
+    static final class DataSetVersion {
+
+        private final String name;
+        private final List<Map<String, String>> records;
+        private final Map<String, DataSetColumn> columnMap = new ConcurrentHashMap<>();
+        private final Map<String, DataSetColumn.ColumnType> columnTypes;  //declared types, others found from the values
+        private final Map<String, ColumnStatistics> statistics;
+        private final OffHeapColumnStore store;
+
+        //versions not reclaimed that refer to the data set
+        private final AtomicInteger versionRefs = new AtomicInteger();
+
+        /**
+         * data set of map/records, wrapped read-only unless already read-only
+         *
+         * @param name the data set name
+         * @param records list of map/records of the data set
+         * @param columns typed columns already built, e.g. read from a snapshot
+         * @param statistics statistics of each attribute
+         * @param store off-heap store of the records, or null
+         */
+        DataSetVersion(String name, List<Map<String, String>> records, Map<String, DataSetColumn> columns,
+                Map<String, ColumnStatistics> statistics, OffHeapColumnStore store) {
+            this(name, records, columns, Collections.emptyMap(), statistics, store);
+        }//end constructor
+
+        /**
+         * data set of map/records with declared types of its typed columns
+         *
+         * @param name the data set name
+         * @param records list of map/records of the data set
+         * @param columns typed columns already built, one of another type than declared is built again
+         * @param columnTypes declared type of the typed column of each attribute
+         * @param statistics statistics of each attribute
+         * @param store off-heap store of the records, or null
+         */
+        DataSetVersion(String name, List<Map<String, String>> records, Map<String, DataSetColumn> columns,
+                Map<String, DataSetColumn.ColumnType> columnTypes, Map<String, ColumnStatistics> statistics, OffHeapColumnStore store) {
+
+            this.name = name;
+            this.records = (records instanceof EncodedRecords) ? records : DataSetVersion.readOnly(records);
+            this.columnTypes = columnTypes;
+            this.statistics = Collections.unmodifiableMap(statistics);
+            this.store = store;
+
+            for (Map.Entry<String, DataSetColumn> entry : columns.entrySet()) {
+                DataSetColumn.ColumnType type = columnTypes.get(entry.getKey());
+                if (type == null || type == entry.getValue().getType()) {
+                    this.columnMap.put(entry.getKey(), entry.getValue());
+                }//end if
+            }//end for
+
+        }//end constructor
+
+        private static List<Map<String, String>> readOnly(final List<Map<String, String>> records) {
+
+            List<Map<String, String>> list = new ArrayList<>(records.size());
+
+            for (Map<String, String> record : records) {
+                list.add(Collections.unmodifiableMap(record));
+            }//end for
+
+            return Collections.unmodifiableList(list);
+
+        }//end readOnly
+
+        String getName() {
+            return this.name;
+        }//end getName
+
+        List<Map<String, String>> getDataSet() {
+            return this.records;
+        }//end getDataSet
+
+        DataSetColumn getColumn(final String attrName) {
+            return this.columnMap.computeIfAbsent(attrName, key -> {
+                DataSetColumn.ColumnType type = this.columnTypes.get(attrName);
+                return (type != null) ? DataSetColumn.fromDataSet(this.records, attrName, type) : DataSetColumn.fromDataSet(this.records, attrName);
+            });
+        }//end getColumn
+
+        ColumnStatistics getStatistics(final String attrName) {
+
+            ColumnStatistics stats = this.statistics.get(attrName);
+
+            if (stats == null) {
+                throw new RuntimeException(String.format("DateEngine.getColumnStatistics: '%s' is not a valid attribute of data set '%s'!", attrName, this.name));
+            }//end if
+
+            return stats;
+
+        }//end getStatistics
+
+        OffHeapColumnStore getOffHeapStore() {
+            return this.store;
+        }//end getOffHeapStore
+
+        //no version refers to the data set, release the typed columns built; the
+        //off-heap store is not closed, as a reader may still read the records it
+        //got without a pin, and its memory is returned once no reader refers to it
+        private void release() {
+            this.columnMap.clear();
+        }//end release
+
+    }//end class DataSetVersion
+
+    private static final int RECLAIMED = -1;
+
+    private final long version;
+    private final Map<String, DataSetVersion> dataSetVersionMap;
+
+    //readers that have the version pinned, RECLAIMED once reclaimed
+    private final AtomicInteger pins = new AtomicInteger();
+    private volatile boolean retired = false;
+
+    /**
+     * version of data sets, each data set is referred to until reclaimed
+     *
+     * @param version the version number
+     * @param dataSetVersionMap data set name to data set, in order of the data sets
+     */
+    EngineVersion(long version, Map<String, DataSetVersion> dataSetVersionMap) {
+
+        this.version = version;
+        this.dataSetVersionMap = Collections.unmodifiableMap(new LinkedHashMap<>(dataSetVersionMap));
+
+        for (DataSetVersion dataSet : this.dataSetVersionMap.values()) {
+            dataSet.versionRefs.incrementAndGet();
+        }//end for
+
+    }//end constructor
+
+    /**
+     * copy-on-write: new version with one data set added or replaced, every
+     * other data set shared with this version
+     *
+     * @param dataSet the data set added or replaced
+     * @return the next version
+     */
+    EngineVersion with(final DataSetVersion dataSet) {
+
+        Map<String, DataSetVersion> map = new LinkedHashMap<>(this.dataSetVersionMap);
+        map.put(dataSet.getName(), dataSet);
+
+        return new EngineVersion(this.version + 1, map);
+
+    }//end with
+
+    //pin the version for a reader, false if reclaimed already
+    boolean tryPin() {
+
+        while (true) {
+            int count = this.pins.get();
+            if (count == RECLAIMED) {
+                return false;
+            }//end if
+            if (this.pins.compareAndSet(count, count + 1)) {
+                return true;
+            }//end if
+        }//end while
+
+    }//end tryPin
+
+    //replaced by a newer version, reclaimed when no reader has it pinned
+    void retire() {
+        this.retired = true;
+        this.tryReclaim();
+    }//end retire
+
+    private void tryReclaim() {
+
+        if (!this.pins.compareAndSet(0, RECLAIMED)) {
+            return;  //still pinned, the last reader reclaims
+        }//end if
+
+        for (DataSetVersion dataSet : this.dataSetVersionMap.values()) {
+            if (dataSet.versionRefs.decrementAndGet() == 0) {
+                dataSet.release();
+            }//end if
+        }//end for
+
+    }//end tryReclaim
+
+    DataSetVersion getDataSetVersion(final String name) {
+        return this.dataSetVersionMap.get(name);
+    }//end getDataSetVersion
+
+    private DataSetVersion checkDataSetVersion(final String name) {
+
+        DataSetVersion dataSet = this.dataSetVersionMap.get(name);
+
+        if (dataSet == null) {
+            throw new RuntimeException(String.format("DateEngine.getDataSetByName: '%s' is not a valid name for data sets in version %d!", name, this.version));
+        }//end if
+
+        return dataSet;
+
+    }//end checkDataSetVersion
+
+    public long getVersion() {
+        return this.version;
+    }//end getVersion
+
+    //names of the data sets of the version
+    public Set<String> getDataSetNames() {
+        return this.dataSetVersionMap.keySet();
+    }//end getDataSetNames
+
+    public boolean hasDataSetName(final String name) {
+        return this.dataSetVersionMap.containsKey(name);
+    }//end hasDataSetName
+
+    /**
+     * get read-only map/records of a data set of the version
+     *
+     * @param name the data set name
+     * @return unmodifiable list of read-only map/records
+     */
+    public List<Map<String, String>> getDataSetByName(final String name) {
+        return this.checkDataSetVersion(name).getDataSet();
+    }//end getDataSetByName
+
+    /**
+     * get typed column of an attribute of a data set of the version, built on
+     * first use and then reused while the data set is in a version
+     *
+     * @param name the data set name
+     * @param attrName the attribute name (header) in the data set
+     * @return DataSetColumn of the attribute
+     */
+    public DataSetColumn getDataSetColumn(final String name, final String attrName) {
+        return this.checkDataSetVersion(name).getColumn(attrName);
+    }//end getDataSetColumn
+
+    /**
+     * get statistics of an attribute of a data set of the version
+     *
+     * @param name the data set name
+     * @param attrName the attribute name (header) in the data set
+     * @return ColumnStatistics of the attribute
+     */
+    public ColumnStatistics getColumnStatistics(final String name, final String attrName) {
+        return this.checkDataSetVersion(name).getStatistics(attrName);
+    }//end getColumnStatistics
+
+    //off-heap store of a data set of the version, or null if on the heap
+    public OffHeapColumnStore getOffHeapStore(final String name) {
+        return this.checkDataSetVersion(name).getOffHeapStore();
+    }//end getOffHeapStore
+
+    //true once retired and no reader has it pinned
+    public boolean isReclaimed() {
+        return this.pins.get() == RECLAIMED;
+    }//end isReclaimed
+
+    /**
+     * unpin the version, once for each pin; a retired version is reclaimed
+     * when the last reader unpins it
+     */
+    @Override
+    public void close() {
+
+        while (true) {
+
+            int count = this.pins.get();
+
+            if (count <= 0) {
+                throw new RuntimeException(String.format("EngineVersion.close: version %d is not pinned!", this.version));
+            }//end if
+
+            if (this.pins.compareAndSet(count, count - 1)) {
+                if (count == 1 && this.retired) {
+                    this.tryReclaim();
+                }//end if
+                return;
+            }//end if
+
+        }//end while
+
+    }//end close
+
+}//end class EngineVersion
@@ -0,0 +1,231 @@
+/**
+ *
+ * Title:        ExampleDataEngineBenchmark.java - Data engine benchmarks for project.
+ *
+ * Description:  Benchmarks that compare querying a data set through the list of
+ *               map/records against querying a typed column of the data set.
+ *               The county data sets are small, so each data set is scaled up
+ *               by repeating its records to give a large synthetic data set.
+ *
+ *               Each benchmark runs a few warm-up rounds so the JIT compiler
+ *               has compiled the loops, then reports the best time of the
+ *               measured rounds.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//reference internal data structures from Java collections
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class ExampleDataEngineBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+
+    private final DataEngine dEng;
+    private final int scale;
+
+    public ExampleDataEngineBenchmark(final int scale) {
+
+        this.scale = scale;
+        this.dEng = new DataEngine(false);
+        this.dEng.loadData();
+
+    }//end constructor
+
+    /**
+     * scale up data set by repeating the records, records are shared
+     *
+     * @param nameDataSet the data set name
+     * @return list of map/records of the data set repeated scale times
+     */
+    private List<Map<String, String>> scaleDataSet(final String nameDataSet) {
+
+        List<Map<String, String>> dataSet = this.dEng.getDataSetByName(nameDataSet);
+        List<Map<String, String>> scaled = new ArrayList<>(dataSet.size() * this.scale);
+
+        for (int idx = 0; idx < this.scale; idx++) {
+            scaled.addAll(dataSet);
+        }//end for
+
+        return scaled;
+
+    }//end scaleDataSet
+
+    //median income in range, the innermost loop of demoQueryDataSetAttributeInRange
+    public void benchFilterIntRange(final int lowerValue, final int upperValue) {
+
+        final String ATTR_NAME = "B06011_001E";
+
+        List<Map<String, String>> dataSet = this.scaleDataSet("CountyMedianIncome");
+        DataSetColumn column = DataSetColumn.fromDataSet(dataSet, ATTR_NAME);
+
+        long bestRecord = Long.MAX_VALUE, bestColumn = Long.MAX_VALUE;
+        int countRecord = 0, countColumn = 0;
+
+        for (int round = 0; round < WARM_UP_ROUNDS + MEASURE_ROUNDS; round++) {
+
+            long timeStart = System.nanoTime();
+
+            countRecord = 0;
+            for (Map<String, String> record : dataSet) {
+                String val = record.get(ATTR_NAME);
+                if (val != null) {
+                    int intVal = Integer.parseInt(val);
+                    if (intVal >= lowerValue && intVal <= upperValue) {
+                        countRecord++;
+                    }//end if
+                }//end if
+            }//end for
+
+            long timeMiddle = System.nanoTime();
+
+            long[] bits = ColumnFilter.selectRange(column, lowerValue, upperValue);
+            countColumn = ColumnFilter.cardinality(bits);
+
+            long timeClose = System.nanoTime();
+
+            if (round >= WARM_UP_ROUNDS) {
+                bestRecord = Math.min(bestRecord, timeMiddle - timeStart);
+                bestColumn = Math.min(bestColumn, timeClose - timeMiddle);
+            }//end if
+
+        }//end for
+
+        ExampleDataEngineBenchmark.report("CountyMedianIncome." + ATTR_NAME + " in range", dataSet.size(), countRecord, countColumn, bestRecord, bestColumn);
+
+    }//end benchFilterIntRange
+
+    //local tax rate over a threshold, a double column
+    public void benchFilterDoubleGT(final double value) {
+
+        final String ATTR_NAME = "Local Tax Rate";
+
+        List<Map<String, String>> dataSet = this.scaleDataSet("CountyPopulationTax");
+        DataSetColumn column = DataSetColumn.fromDataSet(dataSet, ATTR_NAME);
+
+        long bestRecord = Long.MAX_VALUE, bestColumn = Long.MAX_VALUE;
+        int countRecord = 0, countColumn = 0;
+
+        for (int round = 0; round < WARM_UP_ROUNDS + MEASURE_ROUNDS; round++) {
+
+            long timeStart = System.nanoTime();
+
+            countRecord = 0;
+            for (Map<String, String> record : dataSet) {
+                String val = record.get(ATTR_NAME);
+                if (!DataSetColumn.isMissing(val) && Double.parseDouble(val) > value) {
+                    countRecord++;
+                }//end if
+            }//end for
+
+            long timeMiddle = System.nanoTime();
+
+            long[] bits = ColumnFilter.select(column, QueryOperator.GT, value);
+            countColumn = ColumnFilter.cardinality(bits);
+
+            long timeClose = System.nanoTime();
+
+            if (round >= WARM_UP_ROUNDS) {
+                bestRecord = Math.min(bestRecord, timeMiddle - timeStart);
+                bestColumn = Math.min(bestColumn, timeClose - timeMiddle);
+            }//end if
+
+        }//end for
+
+        ExampleDataEngineBenchmark.report("CountyPopulationTax." + ATTR_NAME + " GT", dataSet.size(), countRecord, countColumn, bestRecord, bestColumn);
+
+    }//end benchFilterDoubleGT
+
+    //sequential against fork/join filter and stream sum of median income
+    public void benchParallelScan(final int lowerValue, final int upperValue, final int grainSize) {
+
+        final String ATTR_NAME = "B06011_001E";
+
+        DataSetColumn column = DataSetColumn.fromDataSet(this.scaleDataSet("CountyMedianIncome"), ATTR_NAME);
+
+        long bestSequential = Long.MAX_VALUE, bestParallel = Long.MAX_VALUE;
+        int countSequential = 0, countParallel = 0;
+
+        for (int round = 0; round < WARM_UP_ROUNDS + MEASURE_ROUNDS; round++) {
+
+            long timeStart = System.nanoTime();
+            countSequential = ColumnFilter.cardinality(ColumnFilter.selectRange(column, lowerValue, upperValue));
+            long timeMiddle = System.nanoTime();
+            countParallel = ColumnFilter.cardinality(ColumnFilter.selectRangeParallel(column, lowerValue, upperValue, grainSize));
+            long timeClose = System.nanoTime();
+
+            if (round >= WARM_UP_ROUNDS) {
+                bestSequential = Math.min(bestSequential, timeMiddle - timeStart);
+                bestParallel = Math.min(bestParallel, timeClose - timeMiddle);
+            }//end if
+
+        }//end for
+
+        System.out.printf("----------%nBenchmark: parallel filter, %d-cores, grain size %d%n%n", Runtime.getRuntime().availableProcessors(), grainSize);
+        System.out.printf("  Rows: %d  Selected: %d (sequential) %d (parallel)%n", column.size(), countSequential, countParallel);
+        System.out.printf("  Sequential filter:   %8.3f-mSec.%n", bestSequential / 1e6);
+        System.out.printf("  Parallel filter:     %8.3f-mSec.%n", bestParallel / 1e6);
+        System.out.printf("  Speedup: %.1fx%n%n", (double) bestSequential / Math.max(1L, bestParallel));
+
+        long timeStart = System.nanoTime();
+        double sumSequential = column.doubleStream(false).sum();
+        long timeMiddle = System.nanoTime();
+        double sumParallel = column.doubleStream(true).sum();
+        long timeClose = System.nanoTime();
+
+        System.out.printf("  Stream sum: %.0f in %.3f-mSec. (sequential) %.0f in %.3f-mSec. (parallel)%n%n",
+                sumSequential, (timeMiddle - timeStart) / 1e6, sumParallel, (timeClose - timeMiddle) / 1e6);
+
+    }//end benchParallelScan
+
+    private static void report(final String name, final int rows, final int countRecord, final int countColumn, final long timeRecord, final long timeColumn) {
+
+        System.out.printf("----------%nBenchmark: %s%n%n", name);
+        System.out.printf("  Rows: %d  Selected: %d (records) %d (column)%n", rows, countRecord, countColumn);
+        System.out.printf("  List of map/records: %8.3f-mSec.%n", timeRecord / 1e6);
+        System.out.printf("  Typed column filter: %8.3f-mSec.%n", timeColumn / 1e6);
+        System.out.printf("  Speedup: %.1fx%n%n", (double) timeRecord / Math.max(1L, timeColumn));
+
+    }//end report
+
+    //run benchmarks, optional argument is scale factor for the data sets
+    public static void main(String[] args) {
+
+        int scale = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+
+        ExampleDataEngineBenchmark bench = new ExampleDataEngineBenchmark(scale);
+
+        bench.benchFilterIntRange(30_000, 40_000);
+        bench.benchFilterDoubleGT(5.0);
+        bench.benchParallelScan(30_000, 40_000, ParallelScan.DEFAULT_GRAIN_SIZE);
+
+        System.exit(0);
+
+    }//end main
+
+}//end class ExampleDataEngineBenchmark
@@ -38,12 +38,41 @@
  */
 package org.nitw.project;
 
+//standard Java input-output
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
 //reference internal data structures from Java collections
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+//standard Java new input-output
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+//standard Java concurrency
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+//standard Java compression
+import java.util.zip.GZIPOutputStream;
 
 public final class ExampleDataEngineQuery {
 
@@ -614,221 +643,874 @@ public final class ExampleDataEngineQuery {
 
     }//end testGetDataSetHeaders
 
-    public static final Set<String> listDataSetHeaders(final DataEngine dEng, final String nameDataSet) {
+    public void testAggregateByState() {
 
-        Set<String> nameSet = null;
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        final String DATA_SET = "CountyPopulationTax";
+        final String ATTR_NAME = "Local Tax Rate";
+        final String KEY_NAME = "STATE";
+
+        //minimum, maximum, average local tax rate of counties in each state
+        GroupByAggregate.Result result = this.dEng.aggregate(DATA_SET, ATTR_NAME, KEY_NAME);
+
+        for (int group = 0; group < result.getGroupCount(); group++) {
+            System.out.printf("State: %-20s Counties: %4.0f Min: %6.3f Max: %6.3f Avg: %6.3f%n",
+                    result.getGroupKey(group)[0],
+                    result.getValue(group, GroupByAggregate.AggregateFunction.COUNT),
+                    result.getValue(group, GroupByAggregate.AggregateFunction.MIN),
+                    result.getValue(group, GroupByAggregate.AggregateFunction.MAX),
+                    result.getValue(group, GroupByAggregate.AggregateFunction.AVG));
+        }//end for
+
+        //national rollup merged from the state groups
+        GroupByAggregate.Result nation = result.rollup();
+
+        System.out.printf("%nNation: Counties: %.0f Avg: %.3f Var: %.3f%n%n",
+                nation.getValue(0, GroupByAggregate.AggregateFunction.COUNT),
+                nation.getValue(0, GroupByAggregate.AggregateFunction.AVG),
+                nation.getValue(0, GroupByAggregate.AggregateFunction.VAR));
+
+    }//end testAggregateByState
+
+    public void testGeographyCube() {
 
         System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
 
-        List<Map<String, String>> dataSet = null;
+        GeographyCube cube = this.dEng.getGeographyCube();
 
-        //check if data set exists in data engine
-        if (dEng.hasDataSetName(nameDataSet)) {
+        //each rollup is a lookup of the precomputed aggregates
+        for (String measure : cube.getMeasureNames()) {
+            System.out.printf("Measure: %-18s County (Autauga County, Alabama): %12.3f State (Alabama) Avg: %12.3f Nation Sum: %16.3f%n", measure,
+                    cube.getValue(measure, GeographyCube.Level.COUNTY, "Autauga County, Alabama", GroupByAggregate.AggregateFunction.SUM),
+                    cube.getValue(measure, GeographyCube.Level.STATE, "Alabama", GroupByAggregate.AggregateFunction.AVG),
+                    cube.getValue(measure, GeographyCube.Level.NATION, null, GroupByAggregate.AggregateFunction.SUM));
+        }//end for
 
-            //get reference to data set
-            dataSet = dEng.getDataSetByName(nameDataSet);
-        } else {
-            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
-            return nameSet;
-        }//end if
+        System.out.println();
 
-        nameSet = dataSet.get(0).keySet();
+    }//end testGeographyCube
 
-        return nameSet;
+    public void testColumnStatistics() {
 
-    }//end listDataSetHeaders
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
 
-    public static final List<Object[]> queryDataSetByAttributeNameALL(final DataEngine dEng, final String nameDataSet, String nameAttr) {
+        //statistics gathered on import, no scan of the data set
+        ColumnStatistics stats = this.dEng.getColumnStatistics("CountyMedianIncome", "B06011_001E");
 
-        List<Object[]> list = new ArrayList<>(); //Object[0] = attributeValue.String, Object[1] attributeRowIndex.Integer
+        System.out.printf("%s%n", stats);
+        System.out.printf("Median income 10th percentile: %.0f%n", stats.getQuantile(0.1));
+        System.out.printf("Median income 90th percentile: %.0f%n", stats.getQuantile(0.9));
+        System.out.printf("Fraction of counties with median income 30,000...40,000: %.3f%n",
+                stats.estimateSelectivity(QueryOperator.LE, 40_000) - stats.estimateSelectivity(QueryOperator.LT, 30_000));
+        System.out.printf("Distinct states in CountyList: %d%n%n", this.dEng.getColumnStatistics("CountyList", "STATE").getDistinctCount());
+
+    }//end testColumnStatistics
+
+    public void testQueryCache() {
 
         System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
 
-        List<Map<String, String>> dataSet = null;
+        //same query with values in other order is the same cached query
+        List<Object[]> first = this.dEng.query("StateTaxRates", "State", QueryOperator.EQ, "Texas", "Alaska");
+        List<Object[]> again = this.dEng.query("StateTaxRates", "State", QueryOperator.EQ, "Alaska", "Texas");
 
-        //check if data set exists in data engine
-        if (dEng.hasDataSetName(nameDataSet)) {
+        System.out.printf("Rows: %d Same result: %b%n", first.size(), first == again);
 
-            //get reference to data set
-            dataSet = dEng.getDataSetByName(nameDataSet);
-        } else {
-            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
-            return list;
-        }//end if
+        //reload invalidates the cached results of the data set
+        this.dEng.reloadDataSet("StateTaxRates");
+        List<Object[]> reload = this.dEng.query("StateTaxRates", "State", QueryOperator.EQ, "Texas", "Alaska");
 
-        int rowCounter = 0;
+        System.out.printf("Rows: %d Same result after reload: %b%n", reload.size(), first == reload);
+        System.out.printf("Cache: %s%n%n", this.dEng.getQueryCacheStatistics());
 
-        //iterate through attribute in each record/map
-        for (Map<String, String> record : dataSet) {
+    }//end testQueryCache
 
-            String attrVal = record.get(nameAttr);
+    public void testQueryCoalescing() {
 
-            list.add(new Object[]{attrVal, rowCounter});
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
 
-            rowCounter++;
+        DataSetQuery query = new DataSetQuery("CountyPopulationTax", "NAME", QueryOperator.GE, "M");
+
+        //same query asked many times at once is computed once, other callers attach
+        List<CompletableFuture<List<Object[]>>> futures = new ArrayList<>();
+        for (int idx = 0; idx < 8; idx++) {
+            futures.add(this.dEng.queryAsync(query));
         }//end for
 
-        return list;
+        //cancel of one caller does not cancel the query of the others
+        futures.get(0).cancel(false);
 
-    }//end queryDataSetByAttributeNameALL
+        List<Object[]> result = futures.get(1).join();
+        boolean same = true;
+        for (int idx = 2; idx < futures.size(); idx++) {
+            same &= (futures.get(idx).join() == result);
+        }//end for
 
-    public static final List<Object[]> queryDataSetByAttrNameValueEQ(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+        System.out.printf("Rows: %d Same result: %b Cancelled: %b Coalesced queries: %d%n%n",
+                result.size(), same, futures.get(0).isCancelled(), this.dEng.getCoalescedQueryCount());
+
+    }//end testQueryCoalescing
 
-        List<Object[]> list = new ArrayList<>(); //Object[0] = attributeValue.String, Object[1] attributeRowIndex.Integer
+    public void testQueryBatch() {
 
         System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
 
-        List<Map<String, String>> dataSet = null;
+        //many queries of one data set answered by one scan of the rows
+        List<DataSetQuery> queries = new ArrayList<>();
+        for (String state : new String[]{"Alabama", "Alaska", "Texas", "Virginia", "Wyoming"}) {
+            queries.add(new DataSetQuery("CountyPopulationTax", "STATE", QueryOperator.EQ, state));
+        }//end for
+        queries.add(new DataSetQuery("CountyPopulationTax", "NAME", QueryOperator.LT, "B"));
 
-        //check if data set exists in data engine
-        if (dEng.hasDataSetName(nameDataSet)) {
+        List<List<Object[]>> results = this.dEng.queryBatch("CountyPopulationTax", queries);
 
-            //get reference to data set
-            dataSet = dEng.getDataSetByName(nameDataSet);
-        } else {
-            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
-            return list;
-        }//end if
+        for (int idx = 0; idx < queries.size(); idx++) {
+            System.out.printf("Query: %-50s Rows: %d%n", queries.get(idx), results.get(idx).size());
+        }//end for
 
-        int rowCounter = 0;
+        System.out.println();
 
-        //iterate through attribute in each record/map
-        for (Map<String, String> record : dataSet) {
+    }//end testQueryBatch
 
-            String attrVal = record.get(nameAttr);
+    public void testQueryInstrumentation() {
 
-            for (int idx = 0; idx < valAttr.length; idx++) {
-                if (attrVal.compareTo(valAttr[idx]) == 0) {
-                    list.add(new Object[]{attrVal, rowCounter});
-                    //System.out.printf("attrVal: %s == valAttr: %s %n", attrVal, valAttr);
-                }//end if
-            }
-            rowCounter++;
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        QueryInstrumentation instrumentation = this.dEng.getQueryInstrumentation();
+        instrumentation.reset();
+        instrumentation.setEnabled(true);
+        instrumentation.setSlowQueryLog(50_000_000L, System.out::println);  //queries over 50ms
+
+        for (int idx = 0; idx < 1000; idx++) {
+            queryDataSetByAttrNameValueEQ(this.dEng, "StateTaxRates", "State", "Texas");
+            queryDataSetByAttrNameValueGT(this.dEng, "CountyMedianIncome", "NAME", "W");
         }//end for
+        queryDataSetByAttributeNameALL(this.dEng, "CountyList", "COUNTY");
 
-        return list;
+        //asynchronous and batch queries are counted as well
+        this.dEng.queryAsync(new DataSetQuery("StateTaxRates", "State", QueryOperator.NE, "Texas")).join();
+        this.dEng.queryBatch("StateTaxRates", Arrays.asList(new DataSetQuery("StateTaxRates", "State", QueryOperator.LT, "M"),
+                new DataSetQuery("StateTaxRates", "State", QueryOperator.GE, "M")));
 
-    }//end queryDataSetByAttrNameValueEQ
+        instrumentation.setEnabled(false);
 
-    public static final List<Object[]> queryDataSetByAttrNameValueNE(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+        for (QueryInstrumentation.OperatorStatistics stats : instrumentation.getStatistics()) {
+            System.out.println(stats);
+        }//end for
+
+        System.out.println();
+
+    }//end testQueryInstrumentation
 
-        List<Object[]> list = new ArrayList<>(); //Object[0] = attributeValue.String, Object[1] attributeRowIndex.Integer
+    public void testSnapshotWarmStart() {
 
         System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
 
-        List<Map<String, String>> dataSet = null;
+        Path snapshotDirectory = Paths.get("snapshot");
+
+        //first load imports the external files and writes the snapshots
+        DataEngine cold = new DataEngine(false);
+        cold.setSnapshotDirectory(snapshotDirectory);
+        long timeStart = System.nanoTime();
+        cold.loadData();
+        long coldTime = System.nanoTime() - timeStart;
+
+        //later load reads the snapshots of the unchanged files
+        DataEngine warm = new DataEngine(false);
+        warm.setSnapshotDirectory(snapshotDirectory);
+        timeStart = System.nanoTime();
+        warm.loadData();
+        long warmTime = System.nanoTime() - timeStart;
+
+        boolean same = true;
+        for (String name : cold.getDataSetNames()) {
+            same &= cold.getDataSetByName(name).equals(warm.getDataSetByName(name));
+        }//end for
 
-        //check if data set exists in data engine
-        if (dEng.hasDataSetName(nameDataSet)) {
+        System.out.printf("Load: %.1f-mSec Warm load from snapshot: %.1f-mSec Same data sets: %b%n", coldTime / 1e6, warmTime / 1e6, same);
 
-            //get reference to data set
-            dataSet = dEng.getDataSetByName(nameDataSet);
-        } else {
-            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
-            return list;
-        }//end if
+        //values read in place from the mapped snapshot files, not copied to the heap
+        DataEngine mapped = new DataEngine(false);
+        mapped.setSnapshotDirectory(snapshotDirectory, true);
+        timeStart = System.nanoTime();
+        mapped.loadData();
+        long mappedTime = System.nanoTime() - timeStart;
 
-        int rowCounter = 0;
-        //iterate through attribute in each record/map
-        for (Map<String, String> record : dataSet) {
+        same = true;
+        for (String name : cold.getDataSetNames()) {
+            same &= cold.getDataSetByName(name).equals(mapped.getDataSetByName(name));
+        }//end for
 
-            String attrVal = record.get(nameAttr);
+        DataSetColumn income = mapped.getDataSetColumn("CountyMedianIncome", "B06011_001E");
+        long[] bits = ColumnFilter.selectRange(income, 30_000, 40_000);
+        long[] heapBits = ColumnFilter.selectRange(cold.getDataSetColumn("CountyMedianIncome", "B06011_001E"), 30_000, 40_000);
 
-            for (int idx = 0; idx < valAttr.length; idx++) {
-                if (attrVal.compareTo(valAttr[idx]) != 0) {
-                    list.add(new Object[]{attrVal, rowCounter});
-                    //System.out.printf("attrVal: %s == valAttr: %s %n", attrVal, valAttr);
-                }//end if
-            }
-            rowCounter++;
+        System.out.printf("Mapped load: %.1f-mSec Same data sets: %b Mapped column: %b Median income 30,000...40,000: %d (heap: %d)%n%n",
+                mappedTime / 1e6, same, income.isMapped(), ColumnFilter.cardinality(bits), ColumnFilter.cardinality(heapBits));
+
+    }//end testSnapshotWarmStart
+
+    public void testOffHeapDataSet() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        //records and typed columns of one data set stored outside the heap
+        DataEngine offHeap = new DataEngine(false);
+        offHeap.setOffHeap("CountyEmploymentWages", true);
+        offHeap.loadData();
+
+        OffHeapColumnStore store = offHeap.getOffHeapStore("CountyEmploymentWages");
+        List<Map<String, String>> dataSet = offHeap.getDataSetByName("CountyEmploymentWages");
+
+        System.out.printf("Records: %d Off-heap bytes: %d Same records: %b%n", dataSet.size(), store.getOffHeapBytes(),
+                dataSet.equals(this.dEng.getDataSetByName("CountyEmploymentWages")));
+
+        //a store of its own to close, the store of the data engine stays published
+        OffHeapColumnStore copy = OffHeapColumnStore.of(dataSet);
+        List<Map<String, String>> copyDataSet = copy.getDataSet();
+
+        copy.close();
+
+        try {
+            copyDataSet.get(0).get("State");
+        } catch (RuntimeException ex) {
+            System.out.printf("Read after close: %s%n", ex.getMessage());
+        }//end try
+
+        System.out.printf("Data engine store closed: %b Records: %d%n%n", store.isClosed(), offHeap.getDataSetByName("CountyEmploymentWages").size());
+
+    }//end testOffHeapDataSet
+
+    public void testLazyLoad() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        //only the data set used is imported
+        DataEngine lazy = new DataEngine();
+        long timeStart = System.nanoTime();
+        lazy.loadDataLazy();
+
+        List<Object[]> list = queryDataSetByAttrNameValueEQ(lazy, "CountyMedianIncome", "NAME", "Baldwin County, Alabama");
+        long lazyTime = System.nanoTime() - timeStart;
+
+        System.out.printf("Rows: %d Time to first query: %.1f-mSec%n%n", list.size(), lazyTime / 1e6);
+
+    }//end testLazyLoad
+
+    public void testVersionPinning() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        //reader pins a version, reload publishes a newer version
+        EngineVersion pinned = this.dEng.pinVersion();
+        List<Map<String, String>> before = pinned.getDataSetByName("StateTaxRates");
+
+        this.dEng.reloadDataSet("StateTaxRates");
+
+        try (EngineVersion current = this.dEng.pinVersion()) {
+            System.out.printf("Pinned version: %d Current version: %d Same data set: %b Pinned reclaimed: %b%n", pinned.getVersion(),
+                    current.getVersion(), before == current.getDataSetByName("StateTaxRates"), pinned.isReclaimed());
+        }//end try
+
+        pinned.close();
+        System.out.printf("Pinned reclaimed after close: %b Rows still readable: %d%n", pinned.isReclaimed(), before.size());
+
+        try {
+            before.get(0).put("State", "X");
+        } catch (UnsupportedOperationException ex) {
+            System.out.printf("Records are read-only.%n");
+        }//end try
+
+        //off-heap data set got by name without a pin, still read after a reload
+        DataEngine offHeap = new DataEngine(false);
+        offHeap.setDataSetCatalog(DataSetCatalog.EMPTY.withDataSet("StateTaxRates", DataEngine.fileNameStateTaxRates));
+        offHeap.setOffHeap("StateTaxRates", true);
+        offHeap.loadData();
+
+        List<Map<String, String>> unpinned = offHeap.getDataSetByName("StateTaxRates");
+        offHeap.reloadDataSet("StateTaxRates");
+
+        System.out.printf("Off-heap rows read after reload: %d Same records: %b%n", unpinned.size(),
+                unpinned.equals(offHeap.getDataSetByName("StateTaxRates")));
+
+        //derived data set published in a new version
+        List<Map<String, String>> alabama = new ArrayList<>();
+        for (Map<String, String> record : this.dEng.getDataSetByName("CountyMedianIncome")) {
+            if (record.get("NAME") != null && record.get("NAME").endsWith(", Alabama")) {
+                alabama.add(record);
+            }//end if
         }//end for
 
-        return list;
+        this.dEng.publishDataSet("AlabamaMedianIncome", alabama);
 
-    }//end queryDataSetByAttrNameValueNE
+        System.out.printf("Derived data set rows: %d Median income median: %.0f%n%n", this.dEng.getDataSetByName("AlabamaMedianIncome").size(),
+                this.dEng.getColumnStatistics("AlabamaMedianIncome", "B06011_001E").getMedian());
 
-    public static final List<Object[]> queryDataSetByAttrNameValueGT(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+    }//end testVersionPinning
 
-        List<Object[]> list = new ArrayList<>(); //Object[0] = attributeValue.String, Object[1] attributeRowIndex.Integer
+    public void testLoadDataAsync() {
 
         System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
 
-        List<Map<String, String>> dataSet = null;
+        //bytes read of each data set, reported while it is imported
+        Map<String, Long> bytesMap = new ConcurrentHashMap<>();
+        LongAdder progressCount = new LongAdder();
 
-        //check if data set exists in data engine
-        if (dEng.hasDataSetName(nameDataSet)) {
+        DataEngine async = new DataEngine(false);
+        long timeStart = System.nanoTime();
 
-            //get reference to data set
-            dataSet = dEng.getDataSetByName(nameDataSet);
-        } else {
-            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
-            return list;
-        }//end if
+        CompletableFuture<DataEngine> ready = async.loadDataAsync(ForkJoinPool.commonPool(), (name, records, bytes) -> {
+            bytesMap.put(name, bytes);
+            progressCount.increment();
+        });
 
-        int rowCounter = 0;
-        
-        //iterate through attribute in each record/map
-        for (Map<String, String> record : dataSet) {
+        //served as soon as the one data set is imported
+        int rows = async.getDataSetFuture("CountyList").join().size();
+        System.out.printf("CountyList rows: %d Time to first data set: %.1f-mSec%n", rows, (System.nanoTime() - timeStart) / 1e6);
+
+        ready.join();
+        System.out.printf("All data sets: %d Time: %.1f-mSec Progress callbacks: %d Bytes read: %d%n", async.getDataSetNames().size(),
+                (System.nanoTime() - timeStart) / 1e6, progressCount.sum(), bytesMap.values().stream().mapToLong(Long::longValue).sum());
+
+        async.getDataSetFuture("NoSuchDataSet").handle((dataSet, ex) -> {
+            System.out.printf("Failed future: %s%n", ex.getCause().getMessage());
+            return null;
+        }).join();
+
+        //cube got while the data sets are still imported, built once they are
+        DataEngine loading = new DataEngine(false);
+        CompletableFuture<DataEngine> loaded = loading.loadDataAsync();
+
+        GeographyCube cube = loading.getGeographyCube();
+        GeographyCube expected = this.dEng.getGeographyCube();
+
+        System.out.printf("Cube during load: measures %d of %d states %d of %d counties %d of %d%n%n", cube.getMeasureNames().size(),
+                expected.getMeasureNames().size(), cube.getStateNames().size(), expected.getStateNames().size(),
+                cube.getCountyNames().size(), expected.getCountyNames().size());
+
+        loaded.join();
+
+    }//end testLoadDataAsync
+
+    public void testLoadEvents() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        DataEngine events = new DataEngine(false);
+        Map<LoadEvent.Type, LongAdder> countMap = new ConcurrentHashMap<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        //subscriber requests one event at a time
+        events.getLoadEventPublisher().subscribe(new Flow.Subscriber<LoadEvent>() {
+
+            private Flow.Subscription subscription;
 
-            String attrVal = record.get(nameAttr);
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }//end onSubscribe
 
-            for (int idx = 0; idx < valAttr.length; idx++) {
-                if (attrVal.compareTo(valAttr[idx]) > 0) {
-                    list.add(new Object[]{attrVal, rowCounter});
-                    //System.out.printf("attrVal: %s == valAttr: %s %n", attrVal, valAttr);
+            @Override
+            public void onNext(LoadEvent event) {
+                countMap.computeIfAbsent(event.getType(), type -> new LongAdder()).increment();
+                if (event.getType() == LoadEvent.Type.DATA_SET_COMPLETED && countMap.get(event.getType()).sum() == DataSetCatalog.DEFAULT.getDataSetNames().size()) {
+                    done.complete(null);
                 }//end if
-            }
-            rowCounter++;
+                this.subscription.request(1);
+            }//end onNext
+
+            @Override
+            public void onError(Throwable ex) {
+                done.completeExceptionally(ex);
+            }//end onError
+
+            @Override
+            public void onComplete() {
+            }//end onComplete
+
+        });
+
+        events.loadData();
+        done.join();
+
+        System.out.printf("Events: %s Dropped: %d%n%n", new TreeMap<>(countMap), events.getDroppedLoadEventCount());
+
+    }//end testLoadEvents
+
+    public void testParallelCsvImport() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        for (String fileName : new String[]{DataEngine.fileNameCountyList, DataEngine.fileNameCountyPopulationTax}) {
+
+            long timeStart = System.nanoTime();
+            List<Map<String, String>> sequential = DataEngine.readCSV(fileName);
+            long timeSequential = System.nanoTime() - timeStart;
+
+            timeStart = System.nanoTime();
+            List<Map<String, String>> parallel = DataEngine.readCSVParallel(fileName);
+            long timeParallel = System.nanoTime() - timeStart;
+
+            System.out.printf("%s records: %d Same records in order: %b Sequential Time: %.1f-mSec Parallel Time: %.1f-mSec%n", fileName,
+                    parallel.size(), sequential.equals(parallel), timeSequential / 1e6, timeParallel / 1e6);
+
         }//end for
 
-        return list;
+        //every CSV data set parsed in parallel, whatever its size
+        DataEngine parallelEngine = new DataEngine(false);
+        parallelEngine.setParallelCsvImport(0L);
+        parallelEngine.loadData();
 
-    }//end queryDataSetByAttrNameValueGT
+        System.out.printf("CountyPopulationTax same as one pass: %b, Avg Income max: %.0f%n%n",
+                parallelEngine.getDataSetByName("CountyPopulationTax").equals(this.dEng.getDataSetByName("CountyPopulationTax")),
+                parallelEngine.getColumnStatistics("CountyPopulationTax", "Avg Income").getMax());
 
-    public static final List<Object[]> queryDataSetByAttrNameValueGE(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+    }//end testParallelCsvImport
 
-        List<Object[]> list = new ArrayList<>(); //Object[0] = attributeValue.String, Object[1] attributeRowIndex.Integer
+    public void testCsvColumnDecoder() {
 
         System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
 
-        List<Map<String, String>> dataSet = null;
+        String fileName = DataEngine.fileNameCountyPopulationTax;
 
-        //check if data set exists in data engine
-        if (dEng.hasDataSetName(nameDataSet)) {
+        Map<String, DataSetColumn> fromRecords = ExampleDataEngineQuery.readCSVColumnsFromRecords(fileName);
+        Map<String, DataSetColumn> fromBytes = DataEngine.readCSVColumns(fileName);
+
+        for (DataSetColumn column : fromBytes.values()) {
+
+            DataSetColumn expected = fromRecords.get(column.getName());
+            boolean same = expected.getType() == column.getType() && expected.size() == column.size();
+
+            for (int row = 0; same && row < column.size(); row++) {
+                same = Objects.equals(expected.getString(row), column.getString(row));
+            }//end for
+
+            System.out.printf("  Column: %-20s Type: %-6s Rows: %d Same as from map/records: %b%n", column.getName(), column.getType(), column.size(), same);
+
+        }//end for
+
+        //both compiled before they are timed, in turn so neither has the machine warmer
+        final int warmupRuns = 200, timedRuns = 21;
+        for (int run = 0; run < warmupRuns; run++) {
+            ExampleDataEngineQuery.readCSVColumnsFromRecords(fileName);
+            DataEngine.readCSVColumns(fileName);
+        }//end for
+
+        long[] timeRecords = new long[timedRuns], timeBytes = new long[timedRuns];
+        for (int run = 0; run < timedRuns; run++) {
+
+            long timeStart = System.nanoTime();
+            ExampleDataEngineQuery.readCSVColumnsFromRecords(fileName);
+            timeRecords[run] = System.nanoTime() - timeStart;
+
+            timeStart = System.nanoTime();
+            DataEngine.readCSVColumns(fileName);
+            timeBytes[run] = System.nanoTime() - timeStart;
+
+        }//end for
+
+        Arrays.sort(timeRecords);
+        Arrays.sort(timeBytes);
+
+        System.out.printf("Median of %d runs after %d warm-up runs: Map/records and columns Time: %.2f-mSec Columns from bytes Time: %.2f-mSec Speedup: %.1fx%n",
+                timedRuns, warmupRuns, timeRecords[timedRuns / 2] / 1e6, timeBytes[timedRuns / 2] / 1e6, (double) timeRecords[timedRuns / 2] / timeBytes[timedRuns / 2]);
+        System.out.printf("Columns from bytes faster: %b%n%n", timeBytes[timedRuns / 2] < timeRecords[timedRuns / 2]);
+
+    }//end testCsvColumnDecoder
+
+    //typed columns of a CSV file built from its map/records
+    private static Map<String, DataSetColumn> readCSVColumnsFromRecords(final String fileName) {
+
+        List<Map<String, String>> dataSet = DataEngine.readCSV(fileName);
+        Map<String, DataSetColumn> columnMap = new LinkedHashMap<>();
+
+        for (String attrName : dataSet.get(0).keySet()) {
+            columnMap.put(attrName, DataSetColumn.fromDataSet(dataSet, attrName));
+        }//end for
+
+        return columnMap;
+
+    }//end readCSVColumnsFromRecords
+
+    public void testLoadSpec() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        //only the attributes a service uses, fields of the others are skipped by the readers
+        LoadSpec spec = LoadSpec.ALL
+                .withColumns("CountyEmploymentWages", "area_title", "state", "avg_annual_pay")
+                .withColumns("CountyMedianIncome", "NAME", "B06011_001E")
+                .withColumns("CountyPopulationTax", "NAME", "Avg Income")
+                .withColumns("CountyUnemployment", "County Name/State Abbreviation", "Unemployment Rate");
+
+        DataEngine projected = new DataEngine(false);
+        projected.setLoadSpec(spec);
+
+        long timeStart = System.nanoTime();
+        projected.loadData();
+        System.out.printf("%s%nLoad Time: %.1f-mSec%n", spec, (System.nanoTime() - timeStart) / 1e6);
+
+        for (String name : new String[]{"CountyEmploymentWages", "CountyMedianIncome", "CountyPopulationTax", "CountyUnemployment"}) {
+            System.out.printf("  %-22s attributes loaded: %2d of %2d records: %d%n", name, listDataSetHeaders(projected, name).size(),
+                    listDataSetHeaders(this.dEng, name).size(), projected.getDataSetByName(name).size());
+        }//end for
+
+        System.out.println();
+
+    }//end testLoadSpec
+
+    public void testRowFilter() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        //regional engine of Alabama and Georgia, by state name or state FIPS code of each data set
+        LoadSpec spec = LoadSpec.ALL
+                .withValues("CountyEmploymentWages", "state", "01", "13")
+                .withValues("CountyList", "STATE", "Alabama", "Georgia")
+                .withValues("CountyMedianIncome", "state", "01", "13")
+                .withValues("CountyPopulationTax", "STATE", "Alabama", "Georgia")
+                .withValues("CountyUnemployment", "State FIPS Code", "01", "13")
+                .withFilter("StateExports", "Geographic Area Name", val -> "Alabama".equals(val) || "Georgia".equals(val))
+                .withColumns("CountyPopulationTax", "NAME", "Avg Income");  //filtered on STATE, which is not loaded
+
+        DataEngine regional = new DataEngine(false);
+        regional.setLoadSpec(spec);
+
+        long timeStart = System.nanoTime();
+        regional.loadData();
+        System.out.printf("Load Time: %.1f-mSec%n", (System.nanoTime() - timeStart) / 1e6);
+
+        for (String name : regional.getDataSetNames()) {
+            System.out.printf("  %-22s records: %4d of %4d%n", name, regional.getDataSetByName(name).size(), this.dEng.getDataSetByName(name).size());
+        }//end for
+
+        System.out.printf("CountyPopulationTax first record: %s%n", new TreeMap<>(regional.getDataSetByName("CountyPopulationTax").get(0)));
+
+        try {
+
+            //XML data set with an entity in each area title, e.g. "Autauga County &amp; Alabama", filtered at parse
+            //on the title as loaded, white space removed and entity decoded, e.g. "AutaugaCounty&Alabama"
+            Path dir = Files.createTempDirectory("filter");
+            Path file = Paths.get(this.dEng.getDataSetCatalog().getSource("CountyEmploymentWages"));
+            Path xml = dir.resolve(file.getFileName());
+
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                lines.add(line.contains("<area_title>") ? line.replace(", ", " &amp; ") : line);
+            }//end for
+            Files.write(xml, lines, StandardCharsets.UTF_8);
+
+            DataSetCatalog catalog = DataSetCatalog.EMPTY.withDataSet("CountyEmploymentWages", xml.toString());
+
+            DataEngine loaded = new DataEngine(false);
+            loaded.setDataSetCatalog(catalog);
+            loaded.loadData();
+
+            String title = loaded.getDataSetByName("CountyEmploymentWages").get(0).get("area_title");
+
+            DataEngine parsed = new DataEngine(false);
+            parsed.setDataSetCatalog(catalog);
+            parsed.setLoadSpec(LoadSpec.ALL.withValues("CountyEmploymentWages", "area_title", title));
+            parsed.loadData();
+
+            List<Map<String, String>> filtered = new ArrayList<>();
+            for (Map<String, String> record : loaded.getDataSetByName("CountyEmploymentWages")) {
+                if (title.equals(record.get("area_title"))) {
+                    filtered.add(record);
+                }//end if
+            }//end for
+
+            System.out.printf("XML filtered at parse on '%s': %d After load: %d Same: %b%n", title, parsed.getDataSetByName("CountyEmploymentWages").size(),
+                    filtered.size(),
+                    filtered.equals(parsed.getDataSetByName("CountyEmploymentWages")));
+
+            Files.delete(xml);
+            Files.delete(dir);
+
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }//end try
+
+        System.out.println();
+
+    }//end testRowFilter
+
+    //reader of tab separated values, a format not built into the data engine
+    static final class TsvReader implements DataSourceReader {
+
+        @Override
+        public String getFormat() {
+            return "tsv";
+        }//end getFormat
+
+        @Override
+        public Set<String> getExtensions() {
+            return Set.of("tsv", "tab");
+        }//end getExtensions
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }//end isStreaming
+
+        @Override
+        public boolean isSplittable() {
+            return false;
+        }//end isSplittable
+
+        @Override
+        public boolean sniff(final byte[] head, final int length) {
+
+            //tab before the end of the first line, and no comma
+            for (int idx = 0; idx < length && head[idx] != '\n'; idx++) {
+                if (head[idx] == '\t') {
+                    return true;
+                } else if (head[idx] == ',') {
+                    return false;
+                }//end if
+            }//end for
+
+            return false;
+
+        }//end sniff
+
+        @Override
+        public List<Map<String, String>> read(final DataSourceReader.Request request) throws IOException {
+
+            List<Map<String, String>> list = new ArrayList<>();
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(request.open(), StandardCharsets.UTF_8))) {
+
+                List<String> headers = Arrays.asList(reader.readLine().split("\t", -1));
+
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+
+                    String[] fields = line.split("\t", -1);
+                    Map<String, String> values = new HashMap<>();
+
+                    for (int idx = 0; idx < fields.length && idx < headers.size(); idx++) {
+                        if (request.decodes(headers.get(idx))) {
+                            values.put(headers.get(idx), fields[idx]);
+                        }//end if
+                    }//end for
+
+                    if (request.accepts(values)) {
+                        values.keySet().removeIf(attrName -> !request.wants(attrName));  //only filtered, not loaded
+                        list.add(values);
+                        request.recordDecoded();
+                    }//end if
+
+                }//end for
+
+            }//end try
 
-            //get reference to data set
-            dataSet = dEng.getDataSetByName(nameDataSet);
-        } else {
-            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
             return list;
-        }//end if
 
-        int rowCounter = 0;
-        
-        //iterate through attribute in each record/map
-        for (Map<String, String> record : dataSet) {
+        }//end read
 
-            String attrVal = record.get(nameAttr);
+    }//end class TsvReader
 
-            for (int idx = 0; idx < valAttr.length; idx++) {
-                if (attrVal.compareTo(valAttr[idx]) >= 0) {
-                    list.add(new Object[]{attrVal, rowCounter});
-                    //System.out.printf("attrVal: %s == valAttr: %s %n", attrVal, valAttr);
+    public void testDataSourceReaders() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        DataSourceReaders.register(new TsvReader());
+
+        for (DataSourceReader reader : DataSourceReaders.getReaders()) {
+            System.out.printf("  Reader: %-5s Extensions: %-12s Streaming: %-5b Splittable: %b%n", reader.getFormat(),
+                    new TreeSet<>(reader.getExtensions()), reader.isStreaming(), reader.isSplittable());
+        }//end for
+
+        System.out.println();
+
+        try {
+
+            //copies of a data file under names the file extension alone would get wrong
+            Path dir = Files.createTempDirectory("readers");
+            Path dotted = dir.resolve("usa.county.list.2020.v2.csv");
+            Path mislabeled = dir.resolve("usa_county_list.txt");
+            Path tabbed = dir.resolve("usa_county_list.tab");
+
+            Files.copy(Paths.get(DataEngine.fileNameCountyList), dotted);
+            Files.copy(Paths.get(DataEngine.fileNameCountyList), mislabeled);
+
+            //same records as tab separated values
+            List<Map<String, String>> countyList = this.dEng.getDataSetByName("CountyList");
+            List<String> headers = new ArrayList<>(new TreeMap<>(countyList.get(0)).keySet());
+            List<String> lines = new ArrayList<>();
+            lines.add(String.join("\t", headers));
+            for (Map<String, String> record : countyList) {
+                List<String> fields = new ArrayList<>();
+                for (String attrName : headers) {
+                    fields.add(record.get(attrName));
+                }//end for
+                lines.add(String.join("\t", fields));
+            }//end for
+            Files.write(tabbed, lines, StandardCharsets.UTF_8);
+
+            for (String fileName : new String[]{DataEngine.fileNameCountyList, DataEngine.fileNameStateExports, DataEngine.fileNameCountyMedianIncome,
+                DataEngine.fileNameCountyEmploymentWages, dotted.toString(), mislabeled.toString(), tabbed.toString()}) {
+
+                Path file = Paths.get(fileName);
+                List<Map<String, String>> dataSet = DataEngine.importData(fileName);
+
+                System.out.printf("  File: %-40s Reader: %-5s Records: %4d%n", file.getFileName(), DataSourceReaders.select(file).getFormat(), dataSet.size());
+
+                if (fileName.startsWith(dir.toString())) {
+                    System.out.printf("    Same records as CountyList: %b%n", dataSet.equals(countyList));
+                    Files.delete(file);
                 }//end if
-            }
-            rowCounter++;
+
+            }//end for
+
+            Files.delete(dir);
+
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }//end try
+
+        System.out.println();
+
+    }//end testDataSourceReaders
+
+    public void testDataSetCatalog() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        //county data sets the services query first are ready when loadData returns, the rest follow
+        DataSetCatalog catalog = DataSetCatalog.DEFAULT
+                .withPriority("CountyPopulationTax", 10)
+                .withColumnType("CountyPopulationTax", "Avg Income", DataSetColumn.ColumnType.DOUBLE)
+                .withPriority("CountyMedianIncome", 5)
+                .withPolicy("CountyUnemployment", DataSetCatalog.LoadPolicy.BACKGROUND)
+                .withPriority("CountyUnemployment", 5)
+                .withPolicy("StateExports", DataSetCatalog.LoadPolicy.BACKGROUND)
+                .withPolicy("CountyList", DataSetCatalog.LoadPolicy.LAZY)
+                .withFormat("CountyList", "csv")
+                .withDataSet("StateTaxRates", "archive/StateTaxRates_2019.xlsx")  //archived, only its snapshot is kept
+                .withPolicy("StateTaxRates", DataSetCatalog.LoadPolicy.SNAPSHOT_ONLY);
+
+        for (String name : catalog.getLoadOrder()) {
+            System.out.printf("  %-22s %s%n", name, catalog.getPolicy(name) + " priority " + catalog.getPriority(name));
         }//end for
 
-        return list;
+        DataEngine cataloged = new DataEngine(false);
+        cataloged.setDataSetCatalog(catalog);
+        cataloged.setSnapshotDirectory(Paths.get("snapshot"));
 
-    }//end queryDataSetByAttrNameValueGE
+        long timeStart = System.nanoTime();
+        cataloged.loadData();
+        long timeReady = System.nanoTime() - timeStart;
 
-    public static final List<Object[]> queryDataSetByAttrNameValueLT(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+        //background data sets are waited for, lazy data sets imported on first use
+        for (String name : cataloged.getDataSetNames()) {
+            System.out.printf("  %-22s records: %4d same as eager: %b%n", name, cataloged.getDataSetByName(name).size(),
+                    cataloged.getDataSetByName(name).equals(this.dEng.getDataSetByName(name)));
+        }//end for
+
+        System.out.printf("Ready Time: %.1f-mSec All Time: %.1f-mSec%n", timeReady / 1e6, (System.nanoTime() - timeStart) / 1e6);
+        System.out.printf("Avg Income column type: %s, found from the values: %s%n%n", cataloged.getDataSetColumn("CountyPopulationTax", "Avg Income").getType(),
+                this.dEng.getDataSetColumn("CountyPopulationTax", "Avg Income").getType());
 
-        List<Object[]> list = new ArrayList<>(); //Object[0] = attributeValue.String, Object[1] attributeRowIndex.Integer
+    }//end testDataSetCatalog
+
+    public void testCompressedInput() {
 
         System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
 
+        try {
+
+            //gzip archives of the data files, read without a temporary file
+            Path dir = Files.createTempDirectory("compressed");
+
+            for (String name : new String[]{"CountyList", "CountyPopulationTax", "CountyMedianIncome", "CountyEmploymentWages", "StateExports"}) {
+
+                Path file = Paths.get(this.dEng.getDataSetCatalog().getSource(name));
+                Path archive = dir.resolve(file.getFileName() + ".gz");
+
+                try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(archive))) {
+                    Files.copy(file, output);
+                }//end try
+
+                long timeStart = System.nanoTime();
+                List<Map<String, String>> dataSet = DataEngine.importData(archive.toString());
+                long timeTotal = System.nanoTime() - timeStart;
+
+                System.out.printf("  File: %-44s Reader: %-5s Bytes: %7d of %7d Records: %4d Same: %-5b Time: %.1f-mSec%n", archive.getFileName(),
+                        DataSourceReaders.select(archive).getFormat(), Files.size(archive), Files.size(file), dataSet.size(),
+                        dataSet.equals(this.dEng.getDataSetByName(name)), timeTotal / 1e6);
+
+                Files.delete(archive);
+
+            }//end for
+
+            Files.delete(dir);
+
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }//end try
+
+        System.out.println();
+
+    }//end testCompressedInput
+
+    public void testDataSetWatcher() {
+
+        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        try {
+
+            //copy of a data file, watched and written again with only the counties of Alabama
+            Path dir = Files.createTempDirectory("watched");
+            Path file = Paths.get(this.dEng.getDataSetCatalog().getSource("CountyList"));
+            Path csv = dir.resolve(file.getFileName());
+            Files.copy(file, csv);
+
+            DataEngine watched = new DataEngine(false);
+            watched.setDataSetCatalog(DataSetCatalog.EMPTY.withDataSet("CountyList", csv.toString()));
+            watched.loadData();
+            watched.startWatching();
+
+            List<Map<String, String>> before = watched.getDataSetByName("CountyList");
+
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (lines.isEmpty() || line.trim().endsWith(",Alabama")) {
+                    lines.add(line);
+                }//end if
+            }//end for
+
+            long timeStart = System.nanoTime();
+            Files.write(csv, lines, StandardCharsets.UTF_8);
+
+            //reloaded once the file is quiet, readers see the previous data set until then
+            while (watched.getDataSetByName("CountyList") == before && System.nanoTime() - timeStart < 30_000_000_000L) {
+                Thread.sleep(50);
+            }//end while
+
+            List<Map<String, String>> after = watched.getDataSetByName("CountyList");
+            watched.stopWatching();
+
+            System.out.printf("Rows before: %d after: %d of %d lines written Reloaded: %b Time: %.1f-mSec%n%n", before.size(), after.size(),
+                    lines.size() - 1, after != before, (System.nanoTime() - timeStart) / 1e6);
+
+            Files.delete(csv);
+            Files.delete(dir);
+
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }//end try
+
+    }//end testDataSetWatcher
+
+    public static final Set<String> listDataSetHeaders(final DataEngine dEng, final String nameDataSet) {
+
+        Set<String> nameSet = null;
+
         List<Map<String, String>> dataSet = null;
 
         //check if data set exists in data engine
@@ -838,64 +1520,123 @@ public final class ExampleDataEngineQuery {
             dataSet = dEng.getDataSetByName(nameDataSet);
         } else {
             System.err.printf("Data set: %s not found in data engine!", nameDataSet);
-            return list;
+            return nameSet;
         }//end if
 
-        int rowCounter = 0;
-        
-        //iterate through attribute in each record/map
-        for (Map<String, String> record : dataSet) {
+        nameSet = dataSet.get(0).keySet();
 
-            String attrVal = record.get(nameAttr);
+        return nameSet;
 
-            for (int idx = 0; idx < valAttr.length; idx++) {
-                if (attrVal.compareTo(valAttr[idx]) < 0) {
-                    list.add(new Object[]{attrVal, rowCounter});
-                    //System.out.printf("attrVal: %s == valAttr: %s %n", attrVal, valAttr);
-                }//end if
-            }
-            rowCounter++;
+    }//end listDataSetHeaders
+
+    /**
+     * copy of a query result of the data engine, for the caller to change;
+     * the result of the data engine is shared with later callers of the
+     * same query
+     *
+     * @param result the query result, list of Object[]{attribute value, row index}
+     * @return new list of new Object[], Object[0] = attributeValue.String, Object[1] attributeRowIndex.Integer
+     */
+    private static List<Object[]> copyQueryResult(final List<Object[]> result) {
+
+        List<Object[]> list = new ArrayList<>(result.size());
+
+        for (Object[] row : result) {
+            list.add(row.clone());
         }//end for
 
         return list;
 
-    }//end queryDataSetByAttrNameValueLT
+    }//end copyQueryResult
 
-    public static final List<Object[]> queryDataSetByAttrNameValueLE(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+    public static final List<Object[]> queryDataSetByAttributeNameALL(final DataEngine dEng, final String nameDataSet, String nameAttr) {
 
-        List<Object[]> list = new ArrayList<>(); //Object[0] = attributeValue.String, Object[1] attributeRowIndex.Integer
+        //check if data set exists in data engine
+        if (!dEng.hasDataSetName(nameDataSet)) {
+            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
+            return new ArrayList<>();
+        }//end if
 
-        System.out.printf("----------%nMethod: %s%n%n", Thread.currentThread().getStackTrace()[1].getMethodName());
+        //scan of the data set, or cached result of the same query, copied for the caller
+        return ExampleDataEngineQuery.copyQueryResult(dEng.query(nameDataSet, nameAttr, null));
 
-        List<Map<String, String>> dataSet = null;
+    }//end queryDataSetByAttributeNameALL
+
+    public static final List<Object[]> queryDataSetByAttrNameValueEQ(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
 
         //check if data set exists in data engine
-        if (dEng.hasDataSetName(nameDataSet)) {
+        if (!dEng.hasDataSetName(nameDataSet)) {
+            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
+            return new ArrayList<>();
+        }//end if
 
-            //get reference to data set
-            dataSet = dEng.getDataSetByName(nameDataSet);
-        } else {
+        //scan of the data set, or cached result of the same query, copied for the caller
+        return ExampleDataEngineQuery.copyQueryResult(dEng.query(nameDataSet, nameAttr, QueryOperator.EQ, valAttr));
+
+    }//end queryDataSetByAttrNameValueEQ
+
+    public static final List<Object[]> queryDataSetByAttrNameValueNE(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+
+        //check if data set exists in data engine
+        if (!dEng.hasDataSetName(nameDataSet)) {
             System.err.printf("Data set: %s not found in data engine!", nameDataSet);
-            return list;
+            return new ArrayList<>();
         }//end if
 
-        int rowCounter = 0;
-        
-        //iterate through attribute in each record/map
-        for (Map<String, String> record : dataSet) {
+        //scan of the data set, or cached result of the same query, copied for the caller
+        return ExampleDataEngineQuery.copyQueryResult(dEng.query(nameDataSet, nameAttr, QueryOperator.NE, valAttr));
 
-            String attrVal = record.get(nameAttr);
+    }//end queryDataSetByAttrNameValueNE
 
-            for (int idx = 0; idx < valAttr.length; idx++) {
-                if (attrVal.compareTo(valAttr[idx]) <= 0) {
-                    list.add(new Object[]{attrVal, rowCounter});
-                    //System.out.printf("attrVal: %s == valAttr: %s %n", attrVal, valAttr);
-                }//end if
-            }
-            rowCounter++;
-        }//end for
+    public static final List<Object[]> queryDataSetByAttrNameValueGT(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
 
-        return list;
+        //check if data set exists in data engine
+        if (!dEng.hasDataSetName(nameDataSet)) {
+            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
+            return new ArrayList<>();
+        }//end if
+
+        //scan of the data set, or cached result of the same query, copied for the caller
+        return ExampleDataEngineQuery.copyQueryResult(dEng.query(nameDataSet, nameAttr, QueryOperator.GT, valAttr));
+
+    }//end queryDataSetByAttrNameValueGT
+
+    public static final List<Object[]> queryDataSetByAttrNameValueGE(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+
+        //check if data set exists in data engine
+        if (!dEng.hasDataSetName(nameDataSet)) {
+            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
+            return new ArrayList<>();
+        }//end if
+
+        //scan of the data set, or cached result of the same query, copied for the caller
+        return ExampleDataEngineQuery.copyQueryResult(dEng.query(nameDataSet, nameAttr, QueryOperator.GE, valAttr));
+
+    }//end queryDataSetByAttrNameValueGE
+
+    public static final List<Object[]> queryDataSetByAttrNameValueLT(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+
+        //check if data set exists in data engine
+        if (!dEng.hasDataSetName(nameDataSet)) {
+            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
+            return new ArrayList<>();
+        }//end if
+
+        //scan of the data set, or cached result of the same query, copied for the caller
+        return ExampleDataEngineQuery.copyQueryResult(dEng.query(nameDataSet, nameAttr, QueryOperator.LT, valAttr));
+
+    }//end queryDataSetByAttrNameValueLT
+
+    public static final List<Object[]> queryDataSetByAttrNameValueLE(final DataEngine dEng, final String nameDataSet, String nameAttr, String... valAttr) {
+
+        //check if data set exists in data engine
+        if (!dEng.hasDataSetName(nameDataSet)) {
+            System.err.printf("Data set: %s not found in data engine!", nameDataSet);
+            return new ArrayList<>();
+        }//end if
+
+        //scan of the data set, or cached result of the same query, copied for the caller
+        return ExampleDataEngineQuery.copyQueryResult(dEng.query(nameDataSet, nameAttr, QueryOperator.LE, valAttr));
 
     }//end queryDataSetByAttrNameValueLE
 
@@ -960,6 +1701,27 @@ public final class ExampleDataEngineQuery {
         edeq.testQueryDataSetByAttrNameValueLE();
         edeq.testQueryDataSetByAttrNameValueLT();
         edeq.testGetDataSetHeaders();
+        edeq.testAggregateByState();
+        edeq.testGeographyCube();
+        edeq.testColumnStatistics();
+        edeq.testQueryCache();
+        edeq.testQueryCoalescing();
+        edeq.testQueryBatch();
+        edeq.testQueryInstrumentation();
+        edeq.testSnapshotWarmStart();
+        edeq.testOffHeapDataSet();
+        edeq.testLazyLoad();
+        edeq.testVersionPinning();
+        edeq.testLoadDataAsync();
+        edeq.testLoadEvents();
+        edeq.testParallelCsvImport();
+        edeq.testCsvColumnDecoder();
+        edeq.testLoadSpec();
+        edeq.testRowFilter();
+        edeq.testDataSourceReaders();
+        edeq.testDataSetCatalog();
+        edeq.testCompressedInput();
+        edeq.testDataSetWatcher();
 
         demo();
         
@@ -0,0 +1,461 @@
+/**
+ *
+ * Title:        GeographyCube.java - Precomputed county, state, nation rollups.
+ *
+ * Description:  A GeographyCube holds the aggregates of each measure (median
+ *               income, unemployment, exports, ...) for every county, every
+ *               state and the nation, computed once after the data engine
+ *               loads the data sets. A rollup query is then an array lookup
+ *               instead of a scan of the data set.
+ *
+ *               Each measure is an attribute of a data set with the attribute
+ *               that names the state (by name or FIPS code) and optionally the
+ *               attribute that names the county. Counties are identified as
+ *               "County Name, State Name" so the same county from different
+ *               data sets is one county in the cube.
+ *
+ *               The cube does not change after it is built. When a data set is
+ *               reloaded, refresh creates a new cube that recomputes only the
+ *               measures of that data set and shares the other measures; a
+ *               reload of CountyPopulationTax, whose GEO_ID codes map the FIPS
+ *               code of each state to its name, builds the whole cube again.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class GeographyCube {
+
+    //levels of the geography hierarchy
+    public enum Level {
+        COUNTY, STATE, NATION
+    }//end enum Level
+
+    //how the state attribute of a measure names the state
+    public enum StateKey {
+        NAME, FIPS
+    }//end enum StateKey
+
+    /**
+     * definition of a measure in the cube, an attribute of a data set
+     */
+    public static final class Measure {
+
+        private final String name;
+        private final String dataSetName;
+        private final String attrName;
+        private final String stateAttrName;
+        private final StateKey stateKey;
+        private final String countyAttrName;   //null for state level data set
+        private final String filterAttrName;   //null for every row
+        private final String filterValue;
+
+        public Measure(String name, String dataSetName, String attrName, String stateAttrName, StateKey stateKey, String countyAttrName, String filterAttrName, String filterValue) {
+            this.name = name;
+            this.dataSetName = dataSetName;
+            this.attrName = attrName;
+            this.stateAttrName = stateAttrName;
+            this.stateKey = stateKey;
+            this.countyAttrName = countyAttrName;
+            this.filterAttrName = filterAttrName;
+            this.filterValue = filterValue;
+        }//end constructor
+
+        public Measure(String name, String dataSetName, String attrName, String stateAttrName, StateKey stateKey, String countyAttrName) {
+            this(name, dataSetName, attrName, stateAttrName, stateKey, countyAttrName, null, null);
+        }//end constructor
+
+        public String getName() {
+            return this.name;
+        }//end getName
+
+        public String getDataSetName() {
+            return this.dataSetName;
+        }//end getDataSetName
+
+    }//end class Measure
+
+    /**
+     * the measures of the data sets of the data engine
+     *
+     * @return list of the default measures
+     */
+    public static List<Measure> defaultMeasures() {
+
+        List<Measure> list = new ArrayList<>();
+
+        list.add(new Measure("AvgIncome", "CountyPopulationTax", "Avg Income", "STATE", StateKey.NAME, "NAME"));
+        list.add(new Measure("LocalTaxRate", "CountyPopulationTax", "Local Tax Rate", "STATE", StateKey.NAME, "NAME"));
+        list.add(new Measure("MedianIncome", "CountyMedianIncome", "B06011_001E", "state", StateKey.FIPS, "NAME"));
+        list.add(new Measure("LaborForce", "CountyUnemployment", "Labor Force", "State FIPS Code", StateKey.FIPS, "County Name/State Abbreviation"));
+        list.add(new Measure("Unemployed", "CountyUnemployment", "Unemployed", "State FIPS Code", StateKey.FIPS, "County Name/State Abbreviation"));
+        list.add(new Measure("UnemploymentRate", "CountyUnemployment", "Unemployment Rate", "State FIPS Code", StateKey.FIPS, "County Name/State Abbreviation"));
+        list.add(new Measure("ExportsValue", "StateExports", "Value ($ million)", "Geographic Area Name", StateKey.NAME, null, "Year", "2012"));
+
+        return list;
+
+    }//end defaultMeasures
+
+    //names of the states and counties, each with an id that indexes the arrays
+    static final class Geography {
+
+        final List<String> stateNames;
+        final Map<String, Integer> stateIds;
+        final List<String> countyNames;
+        final Map<String, Integer> countyIds;
+        final Map<String, String> fipsToState;
+
+        Geography(final Map<String, String> fipsToState) {
+            this.stateNames = new ArrayList<>();
+            this.stateIds = new HashMap<>();
+            this.countyNames = new ArrayList<>();
+            this.countyIds = new HashMap<>();
+            this.fipsToState = fipsToState;
+        }//end constructor
+
+        Geography(final Geography other) {
+            this.stateNames = new ArrayList<>(other.stateNames);
+            this.stateIds = new HashMap<>(other.stateIds);
+            this.countyNames = new ArrayList<>(other.countyNames);
+            this.countyIds = new HashMap<>(other.countyIds);
+            this.fipsToState = other.fipsToState;
+        }//end constructor
+
+        int stateId(final String stateName) {
+            return this.stateIds.computeIfAbsent(stateName, key -> {
+                this.stateNames.add(key);
+                return this.stateNames.size() - 1;
+            });
+        }//end stateId
+
+        int countyId(final String countyName) {
+            return this.countyIds.computeIfAbsent(countyName, key -> {
+                this.countyNames.add(key);
+                return this.countyNames.size() - 1;
+            });
+        }//end countyId
+
+    }//end class Geography
+
+    //aggregates of one measure at each level
+    static final class MeasureData {
+
+        final Measure measure;
+        final GroupByAggregate.Accumulator county;  //null for state level data set
+        final GroupByAggregate.Accumulator state;
+        final GroupByAggregate.Accumulator nation;
+
+        MeasureData(Measure measure, GroupByAggregate.Accumulator county, GroupByAggregate.Accumulator state, GroupByAggregate.Accumulator nation) {
+            this.measure = measure;
+            this.county = county;
+            this.state = state;
+            this.nation = nation;
+        }//end constructor
+
+    }//end class MeasureData
+
+    //data set whose counties and GEO_ID codes define the states and the FIPS codes
+    static final String GEOGRAPHY_DATA_SET = "CountyPopulationTax";
+
+    private final Geography geography;
+    private final List<Measure> measures;  //definitions, with the measures left out
+    private final List<MeasureData> measureList;
+    private final Map<String, Integer> measureIds;
+
+    private GeographyCube(final Geography geography, final List<Measure> measures, final List<MeasureData> measureList) {
+
+        this.geography = geography;
+        this.measures = measures;
+        this.measureList = measureList;
+        this.measureIds = new HashMap<>();
+
+        for (int idx = 0; idx < measureList.size(); idx++) {
+            this.measureIds.put(measureList.get(idx).measure.getName(), idx);
+        }//end for
+
+    }//end constructor
+
+    /**
+     * build cube of measures from the data sets of the data engine, measures
+     * of a data set not in the engine, or not numeric, are left out
+     *
+     * @param dEng the data engine with the data loaded
+     * @param measures the measures to aggregate
+     * @return GeographyCube of the measures
+     */
+    public static GeographyCube build(final DataEngine dEng, final List<Measure> measures) {
+
+        Geography geography = new Geography(GeographyCube.fipsToState(dEng));
+        List<MeasureData> measureList = new ArrayList<>(measures.size());
+
+        for (Measure measure : measures) {
+            if (GeographyCube.isBuildable(dEng, measure)) {
+                measureList.add(GeographyCube.buildMeasure(dEng, measure, geography));
+            }//end if
+        }//end for
+
+        return new GeographyCube(geography, new ArrayList<>(measures), measureList);
+
+    }//end build
+
+    //data set of the measure is in the engine, and its attribute numeric
+    private static boolean isBuildable(final DataEngine dEng, final Measure measure) {
+        return dEng.hasDataSetName(measure.dataSetName) && dEng.getDataSetColumn(measure.dataSetName, measure.attrName).isNumeric();
+    }//end isBuildable
+
+    /**
+     * new cube with the measures of a reloaded data set recomputed, and the
+     * measures left out before built if their data set is now in the engine;
+     * the other measures are shared with this cube. A reload of the data set
+     * of the geography builds the whole cube again
+     *
+     * @param dEng the data engine with the reloaded data set
+     * @param dataSetName the name of the reloaded data set
+     * @return GeographyCube with the measures of the data set recomputed
+     */
+    public GeographyCube refresh(final DataEngine dEng, final String dataSetName) {
+
+        //states, counties and FIPS codes changed, so the ids of every measure
+        if (dataSetName.equals(GEOGRAPHY_DATA_SET)) {
+            return GeographyCube.build(dEng, this.measures);
+        }//end if
+
+        Geography geography = new Geography(this.geography);
+        List<MeasureData> measureList = new ArrayList<>(this.measures.size());
+
+        for (Measure measure : this.measures) {
+
+            Integer id = this.measureIds.get(measure.getName());
+
+            if (id != null && !measure.dataSetName.equals(dataSetName)) {
+                measureList.add(this.measureList.get(id));
+            } else if (GeographyCube.isBuildable(dEng, measure)) {
+                measureList.add(GeographyCube.buildMeasure(dEng, measure, geography));
+            }//end if
+
+        }//end for
+
+        return new GeographyCube(geography, this.measures, measureList);
+
+    }//end refresh
+
+    //map state FIPS code to state name, from GEO_ID like 0500000US01001
+    private static Map<String, String> fipsToState(final DataEngine dEng) {
+
+        Map<String, String> map = new HashMap<>();
+
+        if (!dEng.hasDataSetName(GEOGRAPHY_DATA_SET)) {
+            return map;
+        }//end if
+
+        for (Map<String, String> record : dEng.getDataSetByName(GEOGRAPHY_DATA_SET)) {
+            String geoId = record.get("GEO_ID");
+            String state = record.get("STATE");
+            if (geoId != null && state != null && geoId.length() >= 5) {
+                map.put(geoId.substring(geoId.length() - 5, geoId.length() - 3), state.trim());
+            }//end if
+        }//end for
+
+        return map;
+
+    }//end fipsToState
+
+    private static MeasureData buildMeasure(final DataEngine dEng, final Measure measure, final Geography geography) {
+
+        DataSetColumn value = dEng.getDataSetColumn(measure.dataSetName, measure.attrName);
+        DataSetColumn state = dEng.getDataSetColumn(measure.dataSetName, measure.stateAttrName);
+        DataSetColumn county = (measure.countyAttrName != null) ? dEng.getDataSetColumn(measure.dataSetName, measure.countyAttrName) : null;
+
+        long[] filter = null;
+        if (measure.filterAttrName != null) {
+            filter = ColumnFilter.select(dEng.getDataSetColumn(measure.dataSetName, measure.filterAttrName), QueryOperator.EQ, measure.filterValue);
+        }//end if
+
+        final int size = value.size();
+        int[] stateIds = new int[size];
+        int[] countyIds = new int[size];
+
+        //first pass finds the state, county of each row
+        for (int row = 0; row < size; row++) {
+
+            stateIds[row] = countyIds[row] = -1;
+
+            if (!value.isValid(row) || (filter != null && (filter[row >>> 6] & (1L << row)) == 0)) {
+                continue;
+            }//end if
+
+            String stateName = state.getString(row);
+            if (stateName != null && measure.stateKey == StateKey.FIPS) {
+                stateName = geography.fipsToState.get(stateName);
+            }//end if
+
+            if (stateName == null) {
+                continue;
+            }//end if
+
+            stateName = stateName.trim();
+            stateIds[row] = geography.stateId(stateName);
+
+            if (county != null && county.isValid(row)) {
+                String countyName = county.getString(row);
+                int comma = countyName.indexOf(',');
+                if (comma >= 0) {
+                    countyName = countyName.substring(0, comma);
+                }//end if
+                countyIds[row] = geography.countyId(countyName.trim() + ", " + stateName);
+            }//end if
+
+        }//end for
+
+        //second pass aggregates each row into county, state, nation
+        GroupByAggregate.Accumulator countyAcc = (county != null) ? new GroupByAggregate.Accumulator(geography.countyNames.size()) : null;
+        GroupByAggregate.Accumulator stateAcc = new GroupByAggregate.Accumulator(geography.stateNames.size());
+        GroupByAggregate.Accumulator nationAcc = new GroupByAggregate.Accumulator(1);
+
+        for (int row = 0; row < size; row++) {
+
+            if (stateIds[row] < 0) {
+                continue;
+            }//end if
+
+            double val = value.getDouble(row);
+
+            if (countyAcc != null && countyIds[row] >= 0) {
+                countyAcc.add(countyIds[row], val);
+            }//end if
+            stateAcc.add(stateIds[row], val);
+            nationAcc.add(0, val);
+
+        }//end for
+
+        return new MeasureData(measure, countyAcc, stateAcc, nationAcc);
+
+    }//end buildMeasure
+
+    /**
+     * get id of measure, for lookups by id
+     *
+     * @param measureName the name of the measure
+     * @return measure id, or -1 if no such measure
+     */
+    public int getMeasureId(final String measureName) {
+        Integer id = this.measureIds.get(measureName);
+        return (id == null) ? -1 : id;
+    }//end getMeasureId
+
+    /**
+     * get id of a state or county, for lookups by id
+     *
+     * @param level the level COUNTY or STATE
+     * @param name the state name, or "County Name, State Name"
+     * @return id of the state or county, or -1 if not in the cube
+     */
+    public int getGeographyId(final Level level, final String name) {
+        Integer id = null;
+        if (level == Level.COUNTY) {
+            id = this.geography.countyIds.get(name);
+        } else if (level == Level.STATE) {
+            id = this.geography.stateIds.get(name);
+        } else {
+            return 0;
+        }//end if
+        return (id == null) ? -1 : id;
+    }//end getGeographyId
+
+    /**
+     * get aggregate of a measure at a level by ids, an array lookup
+     *
+     * @param measureId the measure id
+     * @param level the level of the geography
+     * @param geographyId the state or county id, 0 for NATION
+     * @param function the aggregate function
+     * @return aggregate value, NaN if there are no values
+     */
+    public double getValue(final int measureId, final Level level, final int geographyId, final GroupByAggregate.AggregateFunction function) {
+
+        MeasureData data = this.measureList.get(measureId);
+
+        GroupByAggregate.Accumulator acc;
+        switch (level) {
+            case COUNTY:
+                acc = data.county;
+                break;
+            case STATE:
+                acc = data.state;
+                break;
+            default:
+                acc = data.nation;
+        }//end switch
+
+        if (acc == null || geographyId < 0 || geographyId >= acc.count.length) {
+            return Double.NaN;
+        }//end if
+
+        return acc.value(geographyId, function);
+
+    }//end getValue
+
+    /**
+     * get aggregate of a measure at a level by names
+     *
+     * @param measureName the name of the measure
+     * @param level the level of the geography
+     * @param name the state name, "County Name, State Name", or null for NATION
+     * @param function the aggregate function
+     * @return aggregate value, NaN if there are no values
+     */
+    public double getValue(final String measureName, final Level level, final String name, final GroupByAggregate.AggregateFunction function) {
+
+        int measureId = this.getMeasureId(measureName);
+        if (measureId < 0) {
+            throw new RuntimeException(String.format("GeographyCube.getValue: '%s' is not a valid name for measures!", measureName));
+        }//end if
+
+        return this.getValue(measureId, level, this.getGeographyId(level, name), function);
+
+    }//end getValue
+
+    public List<String> getMeasureNames() {
+        List<String> list = new ArrayList<>(this.measureIds.keySet());
+        Collections.sort(list);
+        return list;
+    }//end getMeasureNames
+
+    public List<String> getStateNames() {
+        return Collections.unmodifiableList(Arrays.asList(this.geography.stateNames.toArray(new String[0])));
+    }//end getStateNames
+
+    public List<String> getCountyNames() {
+        return Collections.unmodifiableList(Arrays.asList(this.geography.countyNames.toArray(new String[0])));
+    }//end getCountyNames
+
+}//end class GeographyCube
@@ -0,0 +1,491 @@
+/**
+ *
+ * Title:        GroupByAggregate.java - Group-by aggregation over typed columns.
+ *
+ * Description:  Aggregate a numeric column of a data set grouped by one or more
+ *               key columns, for example the average median income per state
+ *               or the minimum and maximum local tax rate per state. With no
+ *               key columns there is one group, the national total.
+ *
+ *               The aggregate functions COUNT, SUM, MIN, MAX, AVG and VAR are
+ *               all computed in one pass with primitive accumulators for each
+ *               group. Groups are found from the dictionary codes of the key
+ *               columns, so no String is hashed for each row; when the key
+ *               columns have more possible groups than rows, the codes are
+ *               mapped to the groups that have rows by a primitive hash table,
+ *               not an array of every possible group. The rows are
+ *               scanned in parallel, each part into its own accumulators, and
+ *               the partial aggregates are merged. VAR is the sample variance
+ *               merged with the parallel algorithm of Chan, Golub and LeVeque.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class GroupByAggregate {
+
+    public enum AggregateFunction {
+        COUNT, SUM, MIN, MAX, AVG, VAR
+    }//end enum AggregateFunction
+
+    private GroupByAggregate() {
+    }//end constructor
+
+    //primitive accumulators, one slot for each group
+    static final class Accumulator {
+
+        final long[] count;
+        final double[] sum;
+        final double[] min;
+        final double[] max;
+        final double[] mean;  //running mean for variance
+        final double[] m2;    //sum of squares of differences from mean
+
+        Accumulator(final int groups) {
+            this.count = new long[groups];
+            this.sum = new double[groups];
+            this.min = new double[groups];
+            this.max = new double[groups];
+            this.mean = new double[groups];
+            this.m2 = new double[groups];
+            Arrays.fill(this.min, Double.POSITIVE_INFINITY);
+            Arrays.fill(this.max, Double.NEGATIVE_INFINITY);
+        }//end constructor
+
+        void add(final int group, final double val) {
+            long n = ++this.count[group];
+            this.sum[group] += val;
+            if (val < this.min[group]) {
+                this.min[group] = val;
+            }//end if
+            if (val > this.max[group]) {
+                this.max[group] = val;
+            }//end if
+            double delta = val - this.mean[group];
+            this.mean[group] += delta / n;
+            this.m2[group] += delta * (val - this.mean[group]);
+        }//end add
+
+        //merge other accumulator group into this accumulator group
+        void merge(final int group, final Accumulator other, final int otherGroup) {
+
+            long countA = this.count[group], countB = other.count[otherGroup];
+
+            if (countB == 0) {
+                return;
+            }//end if
+
+            long n = countA + countB;
+            double delta = other.mean[otherGroup] - this.mean[group];
+
+            this.m2[group] += other.m2[otherGroup] + delta * delta * ((double) countA * countB / n);
+            this.mean[group] += delta * countB / n;
+            this.count[group] = n;
+            this.sum[group] += other.sum[otherGroup];
+            this.min[group] = Math.min(this.min[group], other.min[otherGroup]);
+            this.max[group] = Math.max(this.max[group], other.max[otherGroup]);
+
+        }//end merge
+
+        Accumulator mergeAll(final Accumulator other) {
+            for (int group = 0; group < this.count.length; group++) {
+                this.merge(group, other, group);
+            }//end for
+            return this;
+        }//end mergeAll
+
+        double value(final int group, final AggregateFunction function) {
+
+            long n = this.count[group];
+
+            switch (function) {
+                case COUNT:
+                    return n;
+                case SUM:
+                    return this.sum[group];
+                case MIN:
+                    return (n == 0) ? Double.NaN : this.min[group];
+                case MAX:
+                    return (n == 0) ? Double.NaN : this.max[group];
+                case AVG:
+                    return (n == 0) ? Double.NaN : this.sum[group] / n;
+                default:
+                    return (n < 2) ? Double.NaN : this.m2[group] / (n - 1);
+            }//end switch
+
+        }//end value
+
+    }//end class Accumulator
+
+    //most possible groups of the key columns that are indexed directly by an array
+    static final int DIRECT_GROUPS = 1 << 16;
+
+    //most possible groups indexed directly, an array no larger than the group ids of the rows
+    private static long directGroups(final int size) {
+        return Math.max(DIRECT_GROUPS, size);
+    }//end directGroups
+
+    //open-addressing table of the composite key of a group to its id, ids given in order
+    static final class GroupTable {
+
+        private static final long EMPTY = -1L;  //composite keys are never negative
+
+        private long[] keys;
+        private int[] ids;
+        private int count = 0;
+
+        GroupTable(final int expected) {
+            int capacity = 16;
+            while (capacity < Math.min(expected, 1 << 20) * 2) {
+                capacity <<= 1;
+            }//end while
+            this.keys = new long[capacity];
+            this.ids = new int[capacity];
+            Arrays.fill(this.keys, EMPTY);
+        }//end constructor
+
+        //id of a group, the next id if the group is new
+        int idOf(final long key) {
+
+            int mask = this.keys.length - 1;
+            int slot = GroupTable.hash(key) & mask;
+
+            while (this.keys[slot] != EMPTY) {
+                if (this.keys[slot] == key) {
+                    return this.ids[slot];
+                }//end if
+                slot = (slot + 1) & mask;
+            }//end while
+
+            int id = this.count++;
+            this.keys[slot] = key;
+            this.ids[slot] = id;
+
+            if (this.count * 2 > this.keys.length) {
+                this.grow();
+            }//end if
+
+            return id;
+
+        }//end idOf
+
+        int size() {
+            return this.count;
+        }//end size
+
+        //double the capacity, so the table is at most half full
+        private void grow() {
+
+            long[] oldKeys = this.keys;
+            int[] oldIds = this.ids;
+
+            this.keys = new long[oldKeys.length * 2];
+            this.ids = new int[oldIds.length * 2];
+            Arrays.fill(this.keys, EMPTY);
+
+            int mask = this.keys.length - 1;
+
+            for (int idx = 0; idx < oldKeys.length; idx++) {
+                if (oldKeys[idx] != EMPTY) {
+                    int slot = GroupTable.hash(oldKeys[idx]) & mask;
+                    while (this.keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }//end while
+                    this.keys[slot] = oldKeys[idx];
+                    this.ids[slot] = oldIds[idx];
+                }//end if
+            }//end for
+
+        }//end grow
+
+        //high bits of the key times the golden ratio, so keys in sequence spread out
+        private static int hash(final long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+        }//end hash
+
+    }//end class GroupTable
+
+    //dense group code for each row of a key column, with label of each code
+    static final class KeyCodes {
+
+        final int[] codes;
+        final String[] labels;
+
+        KeyCodes(final int[] codes, final String[] labels) {
+            this.codes = codes;
+            this.labels = labels;
+        }//end constructor
+
+        //rows without a value get their own group with label null
+        static KeyCodes of(final DataSetColumn column) {
+
+            final int size = column.size();
+            int[] codes = new int[size];
+
+            if (column.getType() == DataSetColumn.ColumnType.TEXT) {
+
+                //group directly on the dictionary codes of the column
+                String[] dictionary = column.dictionaryArray();
+
+                for (int row = 0; row < size; row++) {
+                    codes[row] = column.isValid(row) ? column.getInt(row) : dictionary.length;
+                }//end for
+
+                return new KeyCodes(codes, Arrays.copyOf(dictionary, dictionary.length + 1));
+
+            }//end if
+
+            //numeric key column, give each distinct value a code
+            Map<String, Integer> codeMap = new HashMap<>();
+            List<String> labels = new ArrayList<>();
+
+            for (int row = 0; row < size; row++) {
+                String label = column.getString(row);
+                Integer code = codeMap.get(label);
+                if (code == null) {
+                    code = labels.size();
+                    codeMap.put(label, code);
+                    labels.add(label);
+                }//end if
+                codes[row] = code;
+            }//end for
+
+            return new KeyCodes(codes, labels.toArray(new String[0]));
+
+        }//end of
+
+    }//end class KeyCodes
+
+    /**
+     * result of a group-by aggregation, each group has key values and the
+     * value of every aggregate function
+     */
+    public static final class Result {
+
+        private final List<String> keyNames;
+        private final List<String[]> groupKeys;
+        private final Map<List<String>, Integer> groupIndex;
+        private final Accumulator acc;
+
+        Result(final List<String> keyNames, final List<String[]> groupKeys, final Accumulator acc) {
+            this.keyNames = keyNames;
+            this.groupKeys = groupKeys;
+            this.acc = acc;
+            this.groupIndex = new HashMap<>(groupKeys.size() * 2);
+            for (int group = 0; group < groupKeys.size(); group++) {
+                this.groupIndex.put(Arrays.asList(groupKeys.get(group)), group);
+            }//end for
+        }//end constructor
+
+        public List<String> getKeyNames() {
+            return this.keyNames;
+        }//end getKeyNames
+
+        public int getGroupCount() {
+            return this.groupKeys.size();
+        }//end getGroupCount
+
+        /**
+         * get key values of a group
+         *
+         * @param group the group index
+         * @return String array of key value for each key column
+         */
+        public String[] getGroupKey(final int group) {
+            return this.groupKeys.get(group).clone();
+        }//end getGroupKey
+
+        /**
+         * get aggregate value of a group by index
+         *
+         * @param group the group index
+         * @param function the aggregate function
+         * @return aggregate value, NaN if the group has no values
+         */
+        public double getValue(final int group, final AggregateFunction function) {
+            return this.acc.value(group, function);
+        }//end getValue
+
+        /**
+         * get aggregate value of a group by key values
+         *
+         * @param function the aggregate function
+         * @param key the key value for each key column
+         * @return aggregate value, NaN if there is no such group
+         */
+        public double getValue(final AggregateFunction function, final String... key) {
+            Integer group = this.groupIndex.get(Arrays.asList(key));
+            return (group == null) ? Double.NaN : this.acc.value(group, function);
+        }//end getValue
+
+        /**
+         * roll up the groups into one total group, such as states into the
+         * nation, by merging the group aggregates without a scan of the rows
+         *
+         * @return Result with one group with no key values
+         */
+        public Result rollup() {
+
+            Accumulator total = new Accumulator(1);
+            for (int group = 0; group < this.groupKeys.size(); group++) {
+                total.merge(0, this.acc, group);
+            }//end for
+
+            List<String[]> keys = new ArrayList<>(1);
+            keys.add(new String[0]);
+
+            return new Result(new ArrayList<>(), keys, total);
+
+        }//end rollup
+
+    }//end class Result
+
+    /**
+     * aggregate numeric column grouped by key columns, rows scanned in parallel
+     *
+     * @param valueColumn the numeric column to aggregate, null to count rows
+     * @param keyColumns the key columns to group by, none for one total group
+     * @param grainSize the smallest number of rows in one task
+     * @return Result with aggregate values for each group
+     */
+    public static Result aggregate(final DataSetColumn valueColumn, final List<DataSetColumn> keyColumns, final int grainSize) {
+
+        if (valueColumn != null && !valueColumn.isNumeric()) {
+            throw new RuntimeException(String.format("GroupByAggregate.aggregate: '%s' is not a numeric column!", valueColumn.getName()));
+        }//end if
+
+        if (valueColumn == null && keyColumns.isEmpty()) {
+            throw new RuntimeException("GroupByAggregate.aggregate: no value column or key columns!");
+        }//end if
+
+        final int size = (valueColumn != null) ? valueColumn.size() : keyColumns.get(0).size();
+
+        //combine codes of each key column into one group id for each row
+        int[] groupIds = new int[size];
+        long groupCount = 1L;  //ids are in [0, groupCount)
+
+        List<KeyCodes> keyCodes = new ArrayList<>(keyColumns.size());
+        List<String> keyNames = new ArrayList<>(keyColumns.size());
+
+        for (DataSetColumn keyColumn : keyColumns) {
+
+            KeyCodes codes = KeyCodes.of(keyColumn);
+            keyCodes.add(codes);
+            keyNames.add(keyColumn.getName());
+
+            int radix = codes.labels.length;
+
+            if (groupCount * radix <= GroupByAggregate.directGroups(size)) {
+
+                //few possible groups, the id is the codes of the key columns as digits
+                for (int row = 0; row < size; row++) {
+                    groupIds[row] = groupIds[row] * radix + codes.codes[row];
+                }//end for
+                groupCount *= radix;
+
+            } else {
+
+                //many possible groups, give each group that has rows the next id; an id
+                //is below the number of rows, so id * radix + code never overflows a long
+                GroupTable table = new GroupTable(size);
+                for (int row = 0; row < size; row++) {
+                    groupIds[row] = table.idOf((long) groupIds[row] * radix + codes.codes[row]);
+                }//end for
+                groupCount = table.size();
+
+            }//end if
+
+        }//end for
+
+        //only keep groups that have rows, so groups are dense in order of their first row
+        int[] denseId = new int[(int) groupCount];
+        Arrays.fill(denseId, -1);
+        List<String[]> groupKeys = new ArrayList<>();
+
+        for (int row = 0; row < size; row++) {
+
+            int id = groupIds[row];
+
+            if (denseId[id] < 0) {
+
+                denseId[id] = groupKeys.size();
+
+                //key values of the group, from its first row
+                String[] key = new String[keyCodes.size()];
+                for (int idx = 0; idx < keyCodes.size(); idx++) {
+                    key[idx] = keyCodes.get(idx).labels[keyCodes.get(idx).codes[row]];
+                }//end for
+                groupKeys.add(key);
+
+            }//end if
+
+            groupIds[row] = denseId[id];
+
+        }//end for
+
+        if (groupKeys.isEmpty()) {
+            groupKeys.add(new String[keyCodes.size()]);  //total group of empty data set
+        }//end if
+
+        final int groups = groupKeys.size();
+
+        Accumulator acc = ParallelScan.scan(size, grainSize, (from, to) -> {
+
+            Accumulator part = new Accumulator(groups);
+
+            for (int row = from; row < to; row++) {
+                if (valueColumn == null) {
+                    part.add(groupIds[row], 0.0);
+                } else if (valueColumn.isValid(row)) {
+                    part.add(groupIds[row], valueColumn.getDouble(row));
+                }//end if
+            }//end for
+
+            return part;
+
+        }, Accumulator::mergeAll);
+
+        return new Result(keyNames, groupKeys, acc);
+
+    }//end aggregate
+
+    /**
+     * aggregate numeric column grouped by key columns with default grain size
+     *
+     * @param valueColumn the numeric column to aggregate, null to count rows
+     * @param keyColumns the key columns to group by, none for one total group
+     * @return Result with aggregate values for each group
+     */
+    public static Result aggregate(final DataSetColumn valueColumn, final List<DataSetColumn> keyColumns) {
+        return GroupByAggregate.aggregate(valueColumn, keyColumns, ParallelScan.DEFAULT_GRAIN_SIZE);
+    }//end aggregate
+
+}//end class GroupByAggregate
@@ -0,0 +1,191 @@
+/**
+ *
+ * Title:        HyperLogLog.java - Streaming approximate distinct count.
+ *
+ * Description:  A HyperLogLog sketch estimates the number of distinct values in
+ *               a stream without a hash set of the values. Each value is hashed
+ *               to 64 bits; the first p bits pick a register and the register
+ *               keeps the longest run of leading zeros seen in the other bits.
+ *               With p = 12 there are 4096 one-byte registers and the standard
+ *               error is about 1.6%, whatever the number of values.
+ *
+ *               Two sketches are merged by the maximum of each register.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+//standard Java new input-output
+import java.nio.ByteBuffer;
+
+public final class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(final int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new RuntimeException(String.format("HyperLogLog: precision %d is not in 4...18!", precision));
+        }//end if
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }//end constructor
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }//end constructor
+
+    /**
+     * 64-bit hash of a String, FNV-1a with the MurmurHash3 finalizer so every
+     * bit depends on every character
+     *
+     * @param val the String value
+     * @return 64-bit hash
+     */
+    static long hash64(final String val) {
+
+        long hash = 0xcbf29ce484222325L;
+        for (int idx = 0; idx < val.length(); idx++) {
+            hash ^= val.charAt(idx);
+            hash *= 0x100000001b3L;
+        }//end for
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+
+    }//end hash64
+
+    /**
+     * add a value to the sketch
+     *
+     * @param val the String value
+     */
+    public void add(final String val) {
+        this.addHash(HyperLogLog.hash64(val));
+    }//end add
+
+    /**
+     * add a value by its 64-bit hash to the sketch
+     *
+     * @param hash 64-bit hash of the value
+     */
+    public void addHash(final long hash) {
+
+        int idx = (int) (hash >>> (64 - this.precision));
+        long rest = (hash << this.precision) | (1L << (this.precision - 1));  //stop bit caps the run
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+
+        if (rank > this.registers[idx]) {
+            this.registers[idx] = rank;
+        }//end if
+
+    }//end addHash
+
+    /**
+     * merge other sketch of same precision into this sketch
+     *
+     * @param other the sketch to merge
+     * @return this sketch
+     */
+    public HyperLogLog merge(final HyperLogLog other) {
+
+        if (other.precision != this.precision) {
+            throw new RuntimeException("HyperLogLog.merge: sketches have different precision!");
+        }//end if
+
+        for (int idx = 0; idx < this.registers.length; idx++) {
+            if (other.registers[idx] > this.registers[idx]) {
+                this.registers[idx] = other.registers[idx];
+            }//end if
+        }//end for
+
+        return this;
+
+    }//end merge
+
+    /**
+     * get estimate of number of distinct values added
+     *
+     * @return estimated distinct count
+     */
+    public long estimate() {
+
+        final int m = this.registers.length;
+        double sum = 0.0;
+        int zeros = 0;
+
+        for (byte register : this.registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }//end if
+        }//end for
+
+        double alpha = 0.7213 / (1.0 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+
+        //small range correction with linear counting
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }//end if
+
+        return Math.round(estimate);
+
+    }//end estimate
+
+    /**
+     * write sketch to a snapshot
+     *
+     * @param out the snapshot output
+     * @throws IOException if the sketch cannot be written
+     */
+    void writeTo(final DataOutputStream out) throws IOException {
+        out.writeByte(this.precision);
+        out.write(this.registers);
+    }//end writeTo
+
+    /**
+     * read sketch written by writeTo
+     *
+     * @param buffer the snapshot buffer at the sketch
+     * @return the sketch
+     */
+    static HyperLogLog readFrom(final ByteBuffer buffer) {
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        buffer.get(sketch.registers);
+        return sketch;
+    }//end readFrom
+
+}//end class HyperLogLog
@@ -0,0 +1,373 @@
+/**
+ *
+ * Title:        ImportPipeline.java - Pipelined stages of a data file import.
+ *
+ * Description:  Import an external data file in three stages, each on its own
+ *               thread, so reading the file, parsing it, and building the
+ *               map/records overlap: a reader thread fills byte chunks from the
+ *               file, a parser thread turns the bytes into rows, and the calling
+ *               thread builds the map/records from the rows.
+ *
+ *               The stages are connected by bounded single-producer,
+ *               single-consumer queues without locks. A stage that finds its
+ *               queue full or empty spins briefly, then parks, so a fast stage
+ *               waits for a slow one without taking its core.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.IOException;
+import java.io.InputStream;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//standard Java concurrency
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+final class ImportPipeline {
+
+    static final int CHUNK_BYTES = 256 * 1024;  //bytes of each chunk read from the file
+    static final int QUEUE_CAPACITY = 16;       //chunks or row batches between two stages
+    static final int ROW_BATCH = 256;           //rows passed from parser to builder at once
+
+    private static final int SPINS = 64;               //spins before parking
+    private static final long PARK_NANOS = 50_000L;    //park when queue stays full or empty
+
+    private ImportPipeline() {
+    }//end constructor
+
+    /**
+     * parser stage, emits each row parsed from the input
+     *
+     * @param <T> type of a row
+     */
+    @FunctionalInterface
+    interface Parser<T> {
+        void parse(Consumer<T> rows) throws Exception;
+    }//end interface Parser
+
+    /**
+     * bounded queue of one producer thread and one consumer thread, without
+     * locks: the producer writes the tail and the consumer writes the head
+     *
+     * @param <T> type of an item
+     */
+    static final class SpscQueue<T> {
+
+        private final Object[] buffer;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();  //next item to take
+        private final AtomicLong tail = new AtomicLong();  //next slot to put
+
+        SpscQueue(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.buffer = new Object[size];
+            this.mask = size - 1;
+        }//end constructor
+
+        boolean offer(final T item) {
+
+            long tailIdx = this.tail.get();
+
+            if (tailIdx - this.head.get() == this.buffer.length) {
+                return false;  //full
+            }//end if
+
+            this.buffer[(int) tailIdx & this.mask] = item;
+            this.tail.lazySet(tailIdx + 1);  //publish item to consumer
+
+            return true;
+
+        }//end offer
+
+        @SuppressWarnings("unchecked")
+        T poll() {
+
+            long headIdx = this.head.get();
+
+            if (headIdx == this.tail.get()) {
+                return null;  //empty
+            }//end if
+
+            int slot = (int) headIdx & this.mask;
+            T item = (T) this.buffer[slot];
+            this.buffer[slot] = null;
+            this.head.lazySet(headIdx + 1);  //free slot for producer
+
+            return item;
+
+        }//end poll
+
+        /**
+         * put item, waiting while the queue is full
+         *
+         * @param item the item
+         * @param cancelled true once the consumer stopped
+         * @throws CancellationException if the consumer stopped
+         */
+        void put(final T item, final BooleanSupplier cancelled) {
+
+            for (int spin = 0; !this.offer(item); spin++) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException("ImportPipeline: consumer stopped!");
+                }//end if
+                ImportPipeline.pause(spin);
+            }//end for
+
+        }//end put
+
+        //take item, waiting while the queue is empty
+        T take() {
+
+            T item;
+
+            for (int spin = 0; (item = this.poll()) == null; spin++) {
+                ImportPipeline.pause(spin);
+            }//end for
+
+            return item;
+
+        }//end take
+
+    }//end class SpscQueue
+
+    //wait of a stage, spin first then park
+    private static void pause(final int spin) {
+        if (spin < SPINS) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }//end if
+    }//end pause
+
+    private static Thread start(final Runnable stage, final String name) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }//end start
+
+    /**
+     * reader stage: read the input ahead on a reader thread into byte chunks;
+     * the stream returned is read by one thread, the parser stage, and close
+     * stops the reader thread and closes the input
+     *
+     * @param input stream of the external file
+     * @return input stream of the chunks read ahead
+     */
+    static InputStream readAhead(final InputStream input) {
+        return new ReadAheadInputStream(input);
+    }//end readAhead
+
+    private static final class ReadAheadInputStream extends InputStream {
+
+        private static final byte[] END = new byte[0];
+
+        private final SpscQueue<byte[]> chunks = new SpscQueue<>(QUEUE_CAPACITY);
+        private volatile boolean closed = false;
+        private volatile IOException error = null;
+
+        private byte[] chunk = null;
+        private int pos = 0;
+        private boolean ended = false;
+
+        ReadAheadInputStream(InputStream input) {
+            ImportPipeline.start(() -> this.fill(input), "ImportPipeline-reader");
+        }//end constructor
+
+        //reader thread
+        private void fill(final InputStream input) {
+
+            try (InputStream in = input) {
+
+                while (!this.closed) {
+
+                    byte[] buf = new byte[CHUNK_BYTES];
+                    int len = in.readNBytes(buf, 0, buf.length);
+
+                    if (len == 0) {
+                        break;
+                    }//end if
+
+                    this.chunks.put((len == buf.length) ? buf : Arrays.copyOf(buf, len), () -> this.closed);
+
+                }//end while
+
+            } catch (IOException ex) {
+                this.error = ex;
+            } catch (CancellationException ex) {
+                return;  //closed, no reader of the chunks
+            }//end try
+
+            try {
+                this.chunks.put(END, () -> this.closed);
+            } catch (CancellationException ex) {
+                //closed, no reader of the end
+            }//end try
+
+        }//end fill
+
+        //next chunk with bytes left, false at end of input
+        private boolean nextChunk() throws IOException {
+
+            while (this.chunk == null || this.pos == this.chunk.length) {
+
+                if (this.ended) {
+                    return false;
+                }//end if
+
+                if (this.closed) {
+                    throw new IOException("ImportPipeline: stream closed!");
+                }//end if
+
+                this.chunk = this.chunks.take();
+                this.pos = 0;
+
+                if (this.chunk == END) {
+                    this.ended = true;
+                    if (this.error != null) {
+                        throw this.error;
+                    }//end if
+                }//end if
+
+            }//end while
+
+            return true;
+
+        }//end nextChunk
+
+        @Override
+        public int read() throws IOException {
+            return this.nextChunk() ? (this.chunk[this.pos++] & 0xFF) : -1;
+        }//end read
+
+        @Override
+        public int read(final byte[] buf, final int off, final int len) throws IOException {
+
+            if (len == 0) {
+                return 0;
+            }//end if
+
+            if (!this.nextChunk()) {
+                return -1;
+            }//end if
+
+            int count = Math.min(len, this.chunk.length - this.pos);
+            System.arraycopy(this.chunk, this.pos, buf, off, count);
+            this.pos += count;
+
+            return count;
+
+        }//end read
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }//end close
+
+    }//end class ReadAheadInputStream
+
+    /**
+     * parser and builder stages: run the parser on a parser thread, and build
+     * each row it emits on the calling thread, in order of the rows
+     *
+     * @param <T> type of a row
+     * @param parser parser stage emitting rows
+     * @param builder builder stage of each row
+     * @throws Exception the failure of the parser or builder
+     */
+    static <T> void parse(final Parser<T> parser, final Consumer<T> builder) throws Exception {
+
+        final SpscQueue<List<T>> batches = new SpscQueue<>(QUEUE_CAPACITY);
+        final List<T> end = new ArrayList<>(0);
+        final Exception[] failure = new Exception[1];
+        final AtomicBoolean builderFailed = new AtomicBoolean();
+
+        ImportPipeline.start(() -> {
+
+            List<T> batch = new ArrayList<>(ROW_BATCH);
+
+            try {
+
+                parser.parse(row -> {
+                    batch.add(row);
+                    if (batch.size() == ROW_BATCH) {
+                        batches.put(new ArrayList<>(batch), builderFailed::get);
+                        batch.clear();
+                    }//end if
+                });
+
+                if (!batch.isEmpty()) {
+                    batches.put(batch, builderFailed::get);
+                }//end if
+
+            } catch (CancellationException ex) {
+                return;  //builder stopped, no reader of the rows
+            } catch (Exception ex) {
+                failure[0] = ex;  //published to builder by the end batch
+            }//end try
+
+            try {
+                batches.put(end, builderFailed::get);
+            } catch (CancellationException ex) {
+                //builder stopped
+            }//end try
+
+        }, "ImportPipeline-parser");
+
+        boolean built = false;
+
+        try {
+
+            for (List<T> batch = batches.take(); batch != end; batch = batches.take()) {
+                for (T row : batch) {
+                    builder.accept(row);
+                }//end for
+            }//end for
+
+            built = true;
+
+        } finally {
+            if (!built) {
+                builderFailed.set(true);  //stop the parser
+            }//end if
+        }//end try
+
+        if (failure[0] != null) {
+            throw failure[0];
+        }//end if
+
+    }//end parse
+
+}//end class ImportPipeline
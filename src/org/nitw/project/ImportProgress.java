@@ -0,0 +1,234 @@
+/**
+ *
+ * Title:        ImportProgress.java - Count records and bytes of an import.
+ *
+ * Description:  Count the bytes read from the external data file of a data set
+ *               and the map/records decoded from it while it is imported, and
+ *               report them to a LoadProgressListener every batch of records
+ *               or bytes, so the listener is not called for each record. The
+ *               same batches are sent as LoadEvents to the event sink, if any.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+//standard Java new input-output
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//standard Java functions
+import java.util.function.Consumer;
+
+final class ImportProgress {
+
+    static final int RECORD_INTERVAL = 1024;       //report every 1024 records
+    static final long BYTE_INTERVAL = 64L * 1024L;  //report every 64 KiB read
+
+    private final String name;
+    private final LoadProgressListener listener;
+    private final Consumer<LoadEvent> events;
+
+    //bytes are counted by the reader thread and records by the builder thread
+    //of the import pipeline, or by each parser thread while holding the lock
+    private volatile long records = 0L;
+    private volatile long bytes = 0L;
+    private long nextReportBytes = BYTE_INTERVAL;
+
+    //records and bytes sent in events so far
+    private long eventRecords = 0L;
+    private long eventBytes = 0L;
+
+    /**
+     * progress of one import
+     *
+     * @param name the data set name, or file path if not a data set
+     * @param listener listener to report to, or null to only count
+     */
+    ImportProgress(String name, LoadProgressListener listener) {
+        this(name, listener, null);
+    }//end constructor
+
+    /**
+     * progress of one import, sent to a listener and as events
+     *
+     * @param name the data set name, or file path if not a data set
+     * @param listener listener to report to, or null
+     * @param events sink of the load events, or null
+     */
+    ImportProgress(String name, LoadProgressListener listener, Consumer<LoadEvent> events) {
+        this.name = name;
+        this.listener = listener;
+        this.events = events;
+    }//end constructor
+
+    /**
+     * open the external file with a stream that counts the bytes read from
+     * the file, decompressed if the file is compressed
+     *
+     * @param file the external file
+     * @return input stream of the content, counting the bytes of the file read
+     * @throws IOException if the file cannot be opened, or its codec is not on the class path
+     */
+    InputStream open(final Path file) throws IOException {
+
+        InputStream input = Files.newInputStream(file);
+        this.opened(file);
+
+        InputStream counted = new FilterInputStream(input) {
+
+            @Override
+            public int read() throws IOException {
+                int val = super.read();
+                if (val >= 0) {
+                    ImportProgress.this.bytesRead(1);
+                }//end if
+                return val;
+            }//end read
+
+            @Override
+            public int read(final byte[] buf, final int off, final int len) throws IOException {
+                int count = super.read(buf, off, len);
+                if (count > 0) {
+                    ImportProgress.this.bytesRead(count);
+                }//end if
+                return count;
+            }//end read
+
+            @Override
+            public long skip(final long count) throws IOException {
+                long skipped = super.skip(count);
+                ImportProgress.this.bytesRead(skipped);
+                return skipped;
+            }//end skip
+
+        };
+
+        return CompressedInput.decompress(counted, file);
+
+    }//end open
+
+    //external file opened, read by the caller
+    void opened(final Path file) throws IOException {
+        if (this.events != null) {
+            this.emit(LoadEvent.Type.FILE_OPENED, Files.size(file), null);
+        }//end if
+    }//end opened
+
+    synchronized void bytesRead(final long count) {
+
+        this.bytes += count;
+
+        if (this.bytes >= this.nextReportBytes) {
+            this.nextReportBytes = this.bytes + BYTE_INTERVAL;
+            this.report();
+            this.emitBytes();
+        }//end if
+
+    }//end bytesRead
+
+    //one more map/record decoded
+    void recordDecoded() {
+
+        this.records++;
+
+        if (this.records % RECORD_INTERVAL == 0) {
+            this.report();
+            this.emitRecords();
+        }//end if
+
+    }//end recordDecoded
+
+    //batch of map/records decoded, by any of the threads parsing a file in parallel
+    synchronized void recordsDecoded(final long count) {
+
+        long before = this.records;
+        this.records += count;
+
+        if (before / RECORD_INTERVAL != this.records / RECORD_INTERVAL) {
+            this.report();
+            this.emitRecords();
+        }//end if
+
+    }//end recordsDecoded
+
+    //import done with number of map/records of the data set
+    void completed(final long recordCount) {
+        this.records = recordCount;
+        this.report();
+        this.emitBytes();
+        this.emitRecords();
+        synchronized (this) {
+            if (this.events != null) {
+                this.emit(LoadEvent.Type.DATA_SET_COMPLETED, recordCount, null);
+            }//end if
+        }//end synchronized
+    }//end completed
+
+    //import failed, the data set is not loaded
+    synchronized void failed(final Throwable error) {
+        if (this.events != null) {
+            this.emit(LoadEvent.Type.ERROR, 0L, error);
+        }//end if
+    }//end failed
+
+    private synchronized void report() {
+        if (this.listener != null) {
+            this.listener.progress(this.name, this.records, this.bytes);
+        }//end if
+    }//end report
+
+    //bytes read since the last event
+    private synchronized void emitBytes() {
+        if (this.events != null && this.bytes > this.eventBytes) {
+            this.emit(LoadEvent.Type.BYTES_READ, this.bytes - this.eventBytes, null);
+            this.eventBytes = this.bytes;
+        }//end if
+    }//end emitBytes
+
+    //batch of records decoded since the last event
+    private synchronized void emitRecords() {
+        if (this.events != null && this.records > this.eventRecords) {
+            this.emit(LoadEvent.Type.RECORDS_DECODED, this.records - this.eventRecords, null);
+            this.eventRecords = this.records;
+        }//end if
+    }//end emitRecords
+
+    private synchronized void emit(final LoadEvent.Type type, final long count, final Throwable error) {
+        this.events.accept(new LoadEvent(type, this.name, count, this.records, this.bytes, error));
+    }//end emit
+
+    long getRecords() {
+        return this.records;
+    }//end getRecords
+
+    long getBytes() {
+        return this.bytes;
+    }//end getBytes
+
+}//end class ImportProgress
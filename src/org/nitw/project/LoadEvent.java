@@ -0,0 +1,104 @@
+/**
+ *
+ * Title:        LoadEvent.java - Event of a data set being loaded.
+ *
+ * Description:  One event of the import of a data set published by the data
+ *               engine: file opened, bytes read, batch of records decoded, data
+ *               set completed, or error. Each event has the records and bytes
+ *               of the data set so far and the System.nanoTime it happened at,
+ *               so a subscriber can compute the rate of ingestion.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+public final class LoadEvent {
+
+    public enum Type {
+        FILE_OPENED,         //count is size of the file in bytes
+        BYTES_READ,          //count is bytes read since the last event
+        RECORDS_DECODED,     //count is records in the batch
+        DATA_SET_COMPLETED,  //count is records of the data set
+        ERROR                //error is the failure, the data set is not loaded
+    }//end enum Type
+
+    private final Type type;
+    private final String name;
+    private final long count;
+    private final long records;
+    private final long bytes;
+    private final Throwable error;
+    private final long nanoTime;
+
+    LoadEvent(Type type, String name, long count, long records, long bytes, Throwable error) {
+        this.type = type;
+        this.name = name;
+        this.count = count;
+        this.records = records;
+        this.bytes = bytes;
+        this.error = error;
+        this.nanoTime = System.nanoTime();
+    }//end constructor
+
+    public Type getType() {
+        return this.type;
+    }//end getType
+
+    //data set name
+    public String getName() {
+        return this.name;
+    }//end getName
+
+    //file size, bytes or records of the event, by type
+    public long getCount() {
+        return this.count;
+    }//end getCount
+
+    //records of the data set decoded so far
+    public long getRecords() {
+        return this.records;
+    }//end getRecords
+
+    //bytes of the external file read so far
+    public long getBytes() {
+        return this.bytes;
+    }//end getBytes
+
+    //failure of an ERROR event, else null
+    public Throwable getError() {
+        return this.error;
+    }//end getError
+
+    //System.nanoTime of the event
+    public long getNanoTime() {
+        return this.nanoTime;
+    }//end getNanoTime
+
+    @Override
+    public String toString() {
+        return String.format("%s %s count=%d records=%d bytes=%d%s", this.type, this.name, this.count, this.records, this.bytes,
+                (this.error != null) ? " error=" + this.error : "");
+    }//end toString
+
+}//end class LoadEvent
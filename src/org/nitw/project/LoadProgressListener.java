@@ -0,0 +1,48 @@
+/**
+ *
+ * Title:        LoadProgressListener.java - Progress of data sets being loaded.
+ *
+ * Description:  Callback of the data engine while a data set is imported from
+ *               its external data file: the records loaded and the bytes read
+ *               so far. Called on the threads importing the data set, one call
+ *               at a time, every batch of records or bytes and once when the
+ *               data set is loaded.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+@FunctionalInterface
+public interface LoadProgressListener {
+
+    /**
+     * progress of one data set being imported
+     *
+     * @param name the data set name
+     * @param records number of map/records loaded so far
+     * @param bytes number of bytes of the external file read so far
+     */
+    void progress(String name, long records, long bytes);
+
+}//end interface LoadProgressListener
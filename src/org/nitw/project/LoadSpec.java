@@ -0,0 +1,409 @@
+/**
+ *
+ * Title:        LoadSpec.java - Specification of what to load of each data set.
+ *
+ * Description:  The attributes (columns) to load of each data set, and filters
+ *               of the records to load. The readers of the external data files
+ *               skip the fields of the attributes not wanted without decoding
+ *               them, so the time to load and the memory of each data set grow
+ *               with the attributes used, not with every attribute in the file.
+ *
+ *               A filter is a predicate on the raw value of one attribute, such
+ *               as STATE or the state FIPS code, tested by the reader as each
+ *               record is parsed; a record rejected is never made into a
+ *               map/record, so a regional engine loads only its own counties.
+ *
+ *               A load specification is never changed; each with method
+ *               returns a new specification, so one can be shared by the
+ *               threads importing the data sets.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java new input-output
+import java.nio.charset.StandardCharsets;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+//standard Java functions
+import java.util.function.Predicate;
+
+//standard Java checksums
+import java.util.zip.CRC32;
+
+public final class LoadSpec {
+
+    //every attribute of every data set
+    public static final LoadSpec ALL = new LoadSpec(Collections.emptyMap());
+
+    //filter of the records on the raw value of one attribute
+    private static final class Filter {
+
+        private final String attrName;
+        private final Predicate<String> predicate;
+        private final String key;  //values accepted, null for a predicate
+
+        Filter(String attrName, Predicate<String> predicate, String key) {
+            this.attrName = attrName;
+            this.predicate = predicate;
+            this.key = key;
+        }//end constructor
+
+        @Override
+        public String toString() {
+            return this.attrName + ((this.key != null) ? " in " + this.key : " matches predicate");
+        }//end toString
+
+    }//end class Filter
+
+    /**
+     * what to load of one data set, passed to the reader of its external file
+     */
+    static final class DataSetSpec {
+
+        static final DataSetSpec ALL = new DataSetSpec(null, Collections.emptyList());
+
+        private final Set<String> columns;   //null for every attribute
+        private final List<Filter> filters;  //every filter must accept a record
+        private final Set<String> decoded;   //attributes loaded or filtered, null for every attribute
+
+        private DataSetSpec(Set<String> columns, List<Filter> filters) {
+
+            this.columns = columns;
+            this.filters = filters;
+
+            if (columns == null) {
+                this.decoded = null;
+            } else {
+                Set<String> names = new LinkedHashSet<>(columns);
+                for (Filter filter : filters) {
+                    names.add(filter.attrName);
+                }//end for
+                this.decoded = Collections.unmodifiableSet(names);
+            }//end if
+
+        }//end constructor
+
+        //every attribute is loaded
+        boolean isAll() {
+            return this.columns == null;
+        }//end isAll
+
+        boolean hasFilters() {
+            return !this.filters.isEmpty();
+        }//end hasFilters
+
+        //attributes to load, null for every attribute
+        Set<String> getColumns() {
+            return this.columns;
+        }//end getColumns
+
+        //attributes the reader decodes, loaded or filtered, null for every attribute
+        Set<String> getDecodedColumns() {
+            return this.decoded;
+        }//end getDecodedColumns
+
+        //attribute is in the map/records
+        boolean wants(final String attrName) {
+            return this.columns == null || this.columns.contains(attrName);
+        }//end wants
+
+        //field of the attribute is decoded by the reader
+        boolean decodes(final String attrName) {
+            return this.decoded == null || this.decoded.contains(attrName);
+        }//end decodes
+
+        /**
+         * headers of the fields to keep, in order of the fields in the file
+         *
+         * @param headers the attribute names of the fields of the file
+         * @return array of the attribute names, null for a field not loaded
+         */
+        String[] project(final List<String> headers) {
+
+            String[] projected = new String[headers.size()];
+
+            for (int idx = 0; idx < projected.length; idx++) {
+                String attrName = headers.get(idx);
+                projected[idx] = this.wants(attrName) ? attrName : null;
+            }//end for
+
+            return projected;
+
+        }//end project
+
+        /**
+         * headers of the fields to decode, in order of the fields in the file
+         *
+         * @param headers the attribute names of the fields of the file
+         * @return array of the attribute names, null for a field skipped
+         */
+        String[] decode(final List<String> headers) {
+
+            String[] decodedHeaders = new String[headers.size()];
+
+            for (int idx = 0; idx < decodedHeaders.length; idx++) {
+                String attrName = headers.get(idx);
+                decodedHeaders[idx] = this.decodes(attrName) ? attrName : null;
+            }//end for
+
+            return decodedHeaders;
+
+        }//end decode
+
+        /**
+         * index of the field of each filter in a row
+         *
+         * @param headers the attribute names of the fields of a row
+         * @return index for each filter, -1 if the attribute is not in the row
+         */
+        int[] filterIndexes(final List<String> headers) {
+
+            int[] indexes = new int[this.filters.size()];
+
+            for (int idx = 0; idx < indexes.length; idx++) {
+                indexes[idx] = headers.indexOf(this.filters.get(idx).attrName);
+            }//end for
+
+            return indexes;
+
+        }//end filterIndexes
+
+        //true if a filter tests the attribute
+        boolean filters(final String attrName) {
+
+            for (Filter filter : this.filters) {
+                if (filter.attrName.equals(attrName)) {
+                    return true;
+                }//end if
+            }//end for
+
+            return false;
+
+        }//end filters
+
+        /**
+         * test row against every filter; a field not in the row is null
+         *
+         * @param row the raw values of the fields of a row
+         * @param filterIndexes index of the field of each filter, from filterIndexes
+         * @return true to load the row
+         */
+        boolean accepts(final List<?> row, final int[] filterIndexes) {
+
+            for (int idx = 0; idx < filterIndexes.length; idx++) {
+                int field = filterIndexes[idx];
+                Object val = (field >= 0 && field < row.size()) ? row.get(field) : null;
+                if (!this.filters.get(idx).predicate.test((val != null) ? val.toString() : null)) {
+                    return false;
+                }//end if
+            }//end for
+
+            return true;
+
+        }//end accepts
+
+        /**
+         * test record against every filter by attribute name
+         *
+         * @param filterValues raw value of each filtered attribute of the record
+         * @return true to load the record
+         */
+        boolean accepts(final Map<String, String> filterValues) {
+
+            for (Filter filter : this.filters) {
+                if (!filter.predicate.test(filterValues.get(filter.attrName))) {
+                    return false;
+                }//end if
+            }//end for
+
+            return true;
+
+        }//end accepts
+
+        /**
+         * key of the specification in a snapshot file name, so a snapshot is
+         * only read back for the same attributes and filters
+         *
+         * @return empty for every record and attribute, "-" and a checksum of
+         *         the attributes and values of the filters, or null if a filter
+         *         is a predicate, so the data set has no snapshot
+         */
+        String getKey() {
+
+            if (this.columns == null && this.filters.isEmpty()) {
+                return "";
+            }//end if
+
+            List<String> parts = new ArrayList<>();
+            parts.add((this.columns != null) ? new TreeSet<>(this.columns).toString() : "*");
+
+            for (Filter filter : this.filters) {
+                if (filter.key == null) {
+                    return null;
+                }//end if
+                parts.add(filter.attrName + "=" + filter.key);
+            }//end for
+
+            CRC32 crc = new CRC32();
+            crc.update(parts.toString().getBytes(StandardCharsets.UTF_8));
+
+            return String.format("-%08x", crc.getValue());
+
+        }//end getKey
+
+        @Override
+        public String toString() {
+            String text = (this.columns == null) ? "all columns" : "columns " + this.columns;
+            return this.filters.isEmpty() ? text : text + " where " + this.filters;
+        }//end toString
+
+    }//end class DataSetSpec
+
+    private final Map<String, DataSetSpec> dataSetSpecMap;
+
+    private LoadSpec(Map<String, DataSetSpec> dataSetSpecMap) {
+        this.dataSetSpecMap = dataSetSpecMap;
+    }//end constructor
+
+    /**
+     * new load specification that loads only some attributes of a data set;
+     * attributes not in the external file are left out
+     *
+     * @param name the data set name
+     * @param attrNames the attribute names (headers) to load
+     * @return LoadSpec with the attributes of the data set replaced
+     */
+    public LoadSpec withColumns(final String name, final String... attrNames) {
+
+        Objects.requireNonNull(name, "name");  //data set of any catalog, see DataSetCatalog
+
+        Set<String> columns = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(attrNames)));
+
+        return this.with(name, new DataSetSpec(columns, this.getDataSetSpec(name).filters));
+
+    }//end withColumns
+
+    /**
+     * new load specification that loads every attribute of a data set
+     *
+     * @param name the data set name
+     * @return LoadSpec without a selection of attributes of the data set
+     */
+    public LoadSpec withAllColumns(final String name) {
+
+        return this.with(name, new DataSetSpec(null, this.getDataSetSpec(name).filters));
+    }//end withAllColumns
+
+    /**
+     * new load specification that loads only the records of a data set whose
+     * raw value of an attribute is accepted by a predicate; the predicate is
+     * called on the threads importing the data set, with null if the record
+     * has no such attribute. A data set filtered by a predicate has no snapshot.
+     *
+     * @param name the data set name
+     * @param attrName the attribute name (header) to test
+     * @param predicate test of the raw value of the attribute
+     * @return LoadSpec with the filter added to those of the data set
+     */
+    public LoadSpec withFilter(final String name, final String attrName, final Predicate<String> predicate) {
+        return this.withFilter(name, new Filter(attrName, predicate, null));
+    }//end withFilter
+
+    /**
+     * new load specification that loads only the records of a data set whose
+     * raw value of an attribute is one of the values, e.g. STATE of a region
+     *
+     * @param name the data set name
+     * @param attrName the attribute name (header) to test
+     * @param values the values of the records to load
+     * @return LoadSpec with the filter added to those of the data set
+     */
+    public LoadSpec withValues(final String name, final String attrName, final String... values) {
+
+        final Set<String> valueSet = new HashSet<>(Arrays.asList(values));
+
+        return this.withFilter(name, new Filter(attrName, valueSet::contains, new TreeSet<>(valueSet).toString()));
+
+    }//end withValues
+
+    private LoadSpec withFilter(final String name, final Filter filter) {
+
+        Objects.requireNonNull(name, "name");  //data set of any catalog, see DataSetCatalog
+
+        DataSetSpec dataSetSpec = this.getDataSetSpec(name);
+        List<Filter> filters = new ArrayList<>(dataSetSpec.filters);
+        filters.add(filter);
+
+        return this.with(name, new DataSetSpec(dataSetSpec.columns, Collections.unmodifiableList(filters)));
+
+    }//end withFilter
+
+    private LoadSpec with(final String name, final DataSetSpec dataSetSpec) {
+
+        Map<String, DataSetSpec> map = new HashMap<>(this.dataSetSpecMap);
+
+        if (dataSetSpec.columns == null && dataSetSpec.filters.isEmpty()) {
+            map.remove(name);
+        } else {
+            map.put(name, dataSetSpec);
+        }//end if
+
+        return new LoadSpec(Collections.unmodifiableMap(map));
+
+    }//end with
+
+    /**
+     * get attributes to load of a data set
+     *
+     * @param name the data set name
+     * @return unmodifiable set of attribute names, or null for every attribute
+     */
+    public Set<String> getColumns(final String name) {
+        return this.getDataSetSpec(name).getColumns();
+    }//end getColumns
+
+    DataSetSpec getDataSetSpec(final String name) {
+        return this.dataSetSpecMap.getOrDefault(name, DataSetSpec.ALL);
+    }//end getDataSetSpec
+
+    @Override
+    public String toString() {
+        return (this.dataSetSpecMap.isEmpty()) ? "LoadSpec{all}" : "LoadSpec" + new TreeMap<>(this.dataSetSpecMap);
+    }//end toString
+
+}//end class LoadSpec
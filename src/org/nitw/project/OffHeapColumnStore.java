@@ -0,0 +1,202 @@
+/**
+ *
+ * Title:        OffHeapColumnStore.java - Data set stored outside the Java heap.
+ *
+ * Description:  Store the map/records of a data set as columns in off-heap
+ *               memory, so the values are not Java objects the garbage collector
+ *               has to trace. Each attribute is a dictionary of its distinct
+ *               String values (on the heap, usually small) and a code for each
+ *               row, and a typed column (int, double or text codes) with its
+ *               valid bitmap, in direct buffers outside the heap.
+ *
+ *               The store has an explicit lifecycle: it is created from a data
+ *               set, and close releases it. After close the store and its
+ *               records cannot be read; the memory is returned once nothing
+ *               refers to the buffers. Every access is bounds checked.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java new input-output
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+//standard Java data structures/collections
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class OffHeapColumnStore implements AutoCloseable {
+
+    private final EncodedRecords records;
+    private final Map<String, DataSetColumn> columnMap;
+    private final long offHeapBytes;
+
+    private volatile boolean closed = false;
+
+    private OffHeapColumnStore(EncodedRecords records, Map<String, DataSetColumn> columnMap, long offHeapBytes) {
+        this.records = records;
+        this.columnMap = columnMap;
+        this.offHeapBytes = offHeapBytes;
+    }//end constructor
+
+    /**
+     * copy the map/records of a data set into a new off-heap store
+     *
+     * @param dataSet list of map/records of the data set
+     * @return the off-heap store of the data set
+     */
+    public static OffHeapColumnStore of(final List<Map<String, String>> dataSet) {
+
+        final int rowCount = dataSet.size();
+
+        //attribute names in order of first appearance
+        Set<String> attrNameSet = new LinkedHashSet<>();
+        for (Map<String, String> record : dataSet) {
+            attrNameSet.addAll(record.keySet());
+        }//end for
+
+        String[] attrNames = attrNameSet.toArray(new String[0]);
+        String[][] dictionaries = new String[attrNames.length][];
+        IntBuffer[] codes = new IntBuffer[attrNames.length];
+        Map<String, DataSetColumn> columnMap = new HashMap<>(attrNames.length * 2);
+
+        long bytes = 0L;
+        int[] rowCodes = new int[rowCount];
+
+        for (int attr = 0; attr < attrNames.length; attr++) {
+
+            dictionaries[attr] = EncodedRecords.encode(dataSet, attrNames[attr], rowCodes);
+            codes[attr] = OffHeapColumnStore.copyOf(rowCodes);
+            bytes += (long) rowCount * Integer.BYTES;
+
+            DataSetColumn column = DataSetColumn.fromDataSet(dataSet, attrNames[attr]);
+            columnMap.put(attrNames[attr], OffHeapColumnStore.copyOf(column));
+            bytes += (long) rowCount * ((column.getType() == DataSetColumn.ColumnType.DOUBLE) ? Double.BYTES : Integer.BYTES)
+                    + (long) column.validBitmap().length * Long.BYTES;
+
+        }//end for
+
+        return new OffHeapColumnStore(new EncodedRecords(attrNames, dictionaries, codes, rowCount), columnMap, bytes);
+
+    }//end of
+
+    //copy heap column into direct buffers
+    private static DataSetColumn copyOf(final DataSetColumn column) {
+
+        IntBuffer intBuffer = (column.intArray() != null) ? OffHeapColumnStore.copyOf(column.intArray()) : null;
+        DoubleBuffer doubleBuffer = (column.doubleArray() != null) ? OffHeapColumnStore.copyOf(column.doubleArray()) : null;
+        LongBuffer validBuffer = OffHeapColumnStore.copyOf(column.validBitmap());
+
+        return DataSetColumn.ofMapped(column.getName(), column.getType(), column.size(), intBuffer, doubleBuffer, column.dictionaryArray(), validBuffer);
+
+    }//end copyOf
+
+    private static IntBuffer copyOf(final int[] values) {
+        IntBuffer buffer = ByteBuffer.allocateDirect(values.length * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        buffer.put(values).flip();
+        return buffer.asReadOnlyBuffer();
+    }//end copyOf
+
+    private static DoubleBuffer copyOf(final double[] values) {
+        DoubleBuffer buffer = ByteBuffer.allocateDirect(values.length * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        buffer.put(values).flip();
+        return buffer.asReadOnlyBuffer();
+    }//end copyOf
+
+    private static LongBuffer copyOf(final long[] values) {
+        LongBuffer buffer = ByteBuffer.allocateDirect(values.length * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        buffer.put(values).flip();
+        return buffer.asReadOnlyBuffer();
+    }//end copyOf
+
+    private void checkOpen() {
+        if (this.closed) {
+            throw new RuntimeException("OffHeapColumnStore: store has been closed!");
+        }//end if
+    }//end checkOpen
+
+    /**
+     * get read-only map/records of the data set, each read from off-heap memory
+     *
+     * @return list of map/records
+     */
+    public List<Map<String, String>> getDataSet() {
+        this.checkOpen();
+        return this.records;
+    }//end getDataSet
+
+    /**
+     * get off-heap typed column of an attribute
+     *
+     * @param attrName the attribute name (header)
+     * @return DataSetColumn over direct buffers
+     */
+    public DataSetColumn getColumn(final String attrName) {
+
+        this.checkOpen();
+
+        DataSetColumn column = this.columnMap.get(attrName);
+
+        if (column == null) {
+            throw new RuntimeException(String.format("OffHeapColumnStore.getColumn: '%s' is not an attribute of the data set!", attrName));
+        }//end if
+
+        return column;
+
+    }//end getColumn
+
+    //typed column of each attribute
+    public Map<String, DataSetColumn> getColumns() {
+        this.checkOpen();
+        return Collections.unmodifiableMap(this.columnMap);
+    }//end getColumns
+
+    //bytes of off-heap memory held by the store
+    public long getOffHeapBytes() {
+        return this.offHeapBytes;
+    }//end getOffHeapBytes
+
+    public boolean isClosed() {
+        return this.closed;
+    }//end isClosed
+
+    /**
+     * release the store, its records cannot be read after; the memory is
+     * returned when no column or record refers to it
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.records.release();
+    }//end close
+
+}//end class OffHeapColumnStore
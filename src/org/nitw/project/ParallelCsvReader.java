@@ -0,0 +1,359 @@
+/**
+ *
+ * Title:        ParallelCsvReader.java - Parse large CSV files on all cores.
+ *
+ * Description:  Split a CSV file into byte ranges that start on a record, and
+ *               parse the ranges in parallel, each into a fragment of
+ *               map/records and statistics of each attribute. The fragments are
+ *               joined in order of the ranges, so the map/records are in the
+ *               same order as read by DataEngine.readCSV.
+ *
+ *               A range ends after a newline outside quotes, so a quoted value
+ *               with a comma or newline, such as "Autauga County, Alabama", is
+ *               never split. The header and the quote character are read from
+ *               the start of the file once, and every range is parsed with them.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//univocity-parsers is a collection of extremely fast and reliable parsers for Java. https://github.com/uniVocity/univocity-parsers
+import com.univocity.parsers.csv.CsvFormat;
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+//standard Java input-output
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+//standard Java new input-output
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//standard Java concurrency
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//standard Java streams
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+final class ParallelCsvReader {
+
+    static final long DEFAULT_MIN_BYTES = 64L * 1024L * 1024L;  //smaller files are parsed in one pass
+    static final long CHUNK_BYTES = 16L * 1024L * 1024L;        //bytes of a range, about
+
+    private static final int SCAN_BYTES = 1024 * 1024;  //bytes scanned at once for record boundaries
+
+    //map/records and statistics of one range
+    private static final class Fragment {
+        final List<Map<String, String>> records = new ArrayList<>();
+        final Map<String, ColumnStatistics> statistics = new HashMap<>();
+    }//end class Fragment
+
+    private ParallelCsvReader() {
+    }//end constructor
+
+    /**
+     * read CSV file with a range of the file parsed on each core
+     *
+     * @param file the CSV file
+     * @param statistics map to put statistics of each attribute in, or null
+     * @param progress progress of the import
+     * @param spec attributes and records to load, the fields of other attributes are not decoded
+     * @return list of map/record in order of the file
+     * @throws IOException if the file cannot be read
+     */
+    static List<Map<String, String>> read(final Path file, final Map<String, ColumnStatistics> statistics, final ImportProgress progress,
+            final LoadSpec.DataSetSpec spec) throws IOException {
+
+        final long size = Files.size(file);
+        progress.opened(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            //header and quote character from the start of the file
+            CsvParserSettings settings = new CsvParserSettings();
+            settings.setQuoteDetectionEnabled(true);
+
+            CsvParser headerParser = new CsvParser(settings);
+            headerParser.beginParsing(new InputStreamReader(new RangeInputStream(channel, 0L, size, null), StandardCharsets.UTF_8));
+            final String[] fileHeaders = headerParser.parseNext();
+            final CsvFormat format = (headerParser.getDetectedFormat() != null) ? headerParser.getDetectedFormat() : settings.getFormat();
+            headerParser.stopParsing();
+
+            if (fileHeaders == null) {
+                throw new IOException("CSV file has no header");
+            }//end if
+
+            //indexes of the fields of the attributes to load or filter, null for every field
+            final int[] selected = spec.isAll() ? null : IntStream.range(0, fileHeaders.length).filter(idx -> spec.decodes(fileHeaders[idx])).toArray();
+            final List<String> rowHeaders = (selected == null) ? Arrays.asList(fileHeaders)
+                    : Arrays.stream(selected).mapToObj(idx -> fileHeaders[idx]).collect(Collectors.toList());
+            final String[] headers = spec.project(rowHeaders);  //null for a field only filtered
+            final int[] filterIndexes = spec.filterIndexes(rowHeaders);
+
+            final int parallelism = Runtime.getRuntime().availableProcessors();
+            long start = ParallelCsvReader.recordEnd(channel, 0L, size, format.getQuote());
+            int chunkCount = (int) Math.max(parallelism, (size - start + CHUNK_BYTES - 1) / CHUNK_BYTES);
+            long[] bounds = ParallelCsvReader.split(channel, start, size, format.getQuote(), chunkCount);
+
+            List<Callable<Fragment>> tasks = new ArrayList<>(chunkCount);
+            for (int idx = 0; idx < chunkCount; idx++) {
+                final long from = bounds[idx], to = bounds[idx + 1];
+                tasks.add(() -> ParallelCsvReader.parse(channel, from, to, headers, selected, spec, filterIndexes, format, progress));
+            }//end for
+
+            ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+                Thread thread = new Thread(runnable, "ParallelCsvReader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            try {
+
+                List<Map<String, String>> list = new ArrayList<>();
+
+                //join fragments in order of the ranges
+                for (Future<Fragment> future : pool.invokeAll(tasks)) {
+
+                    Fragment fragment = future.get();
+                    list.addAll(fragment.records);
+
+                    if (statistics != null) {
+                        for (Map.Entry<String, ColumnStatistics> entry : fragment.statistics.entrySet()) {
+                            statistics.merge(entry.getKey(), entry.getValue(), ColumnStatistics::merge);
+                        }//end for
+                    }//end if
+
+                }//end for
+
+                return list;
+
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("parse of CSV ranges interrupted", ex);
+            } catch (ExecutionException ex) {
+                throw (ex.getCause() instanceof IOException) ? (IOException) ex.getCause() : new IOException(ex.getCause());
+            } finally {
+                pool.shutdownNow();
+            }//end try
+
+        }//end try
+
+    }//end read
+
+    /**
+     * find end of the record that starts at a position, after its newline
+     * outside quotes
+     *
+     * @return position of the next record, or size if none
+     */
+    private static long recordEnd(final FileChannel channel, final long from, final long size, final char quote) throws IOException {
+
+        ByteBuffer buf = ByteBuffer.allocate(SCAN_BYTES);
+        boolean inQuotes = false;
+
+        for (long pos = from; pos < size;) {
+
+            buf.clear();
+            int count = channel.read(buf, pos);
+
+            if (count <= 0) {
+                break;
+            }//end if
+
+            for (int idx = 0; idx < count; idx++) {
+                byte val = buf.get(idx);
+                if (val == quote) {
+                    inQuotes = !inQuotes;  //doubled quote inside quotes toggles twice
+                } else if (val == '\n' && !inQuotes) {
+                    return pos + idx + 1;
+                }//end if
+            }//end for
+
+            pos += count;
+
+        }//end for
+
+        return size;
+
+    }//end recordEnd
+
+    /**
+     * split file from start to size into ranges of about the same size, each
+     * range ends after a newline outside quotes
+     *
+     * @return chunkCount + 1 bounds, range idx is [bounds[idx], bounds[idx + 1])
+     */
+    private static long[] split(final FileChannel channel, final long start, final long size, final char quote, final int chunkCount) throws IOException {
+
+        long[] bounds = new long[chunkCount + 1];
+        bounds[0] = start;
+
+        ByteBuffer buf = ByteBuffer.allocate(SCAN_BYTES);
+        boolean inQuotes = false;
+        int next = 1;
+        long target = start + (size - start) / chunkCount;
+
+        for (long pos = start; pos < size && next < chunkCount;) {
+
+            buf.clear();
+            int count = channel.read(buf, pos);
+
+            if (count <= 0) {
+                break;
+            }//end if
+
+            for (int idx = 0; idx < count && next < chunkCount; idx++) {
+                byte val = buf.get(idx);
+                if (val == quote) {
+                    inQuotes = !inQuotes;
+                } else if (val == '\n' && !inQuotes && pos + idx >= target) {
+                    bounds[next] = pos + idx + 1;
+                    next++;
+                    target = start + (size - start) * next / chunkCount;
+                }//end if
+            }//end for
+
+            pos += count;
+
+        }//end for
+
+        //ranges not found are empty at end of file
+        for (; next <= chunkCount; next++) {
+            bounds[next] = size;
+        }//end for
+
+        return bounds;
+
+    }//end split
+
+    //parse one range into map/records of the rows accepted and statistics
+    private static Fragment parse(final FileChannel channel, final long from, final long to, final String[] headers, final int[] selected,
+            final LoadSpec.DataSetSpec spec, final int[] filterIndexes, final CsvFormat format, final ImportProgress progress) {
+
+        Fragment fragment = new Fragment();
+
+        if (from >= to) {
+            return fragment;
+        }//end if
+
+        CsvParserSettings settings = new CsvParserSettings();
+        settings.setFormat(format.clone());
+
+        if (selected != null) {
+            settings.selectIndexes(Arrays.stream(selected).boxed().toArray(Integer[]::new));
+        }//end if
+
+        CsvParser parser = new CsvParser(settings);
+        parser.beginParsing(new InputStreamReader(new RangeInputStream(channel, from, to, progress), StandardCharsets.UTF_8));
+
+        for (String[] row = parser.parseNext(); row != null; row = parser.parseNext()) {
+
+            if (!spec.accepts(Arrays.asList(row), filterIndexes)) {
+                continue;  //rejected by a filter, not built
+            }//end if
+
+            Map<String, String> map = new HashMap<>(row.length);
+            for (int y = 0; y < row.length; y++) {
+                if (headers[y] != null) {
+                    map.put(headers[y], row[y]);
+                }//end if
+            }//end for
+
+            fragment.records.add(map);
+            ColumnStatistics.update(fragment.statistics, map);
+
+        }//end for
+
+        parser.stopParsing();
+        progress.recordsDecoded(fragment.records.size());
+
+        return fragment;
+
+    }//end parse
+
+    //bytes [from, to) of the file, read with positional reads so ranges share the channel
+    private static final class RangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private final ImportProgress progress;
+        private long pos;
+
+        RangeInputStream(FileChannel channel, long from, long to, ImportProgress progress) {
+            this.channel = channel;
+            this.pos = from;
+            this.end = to;
+            this.progress = progress;
+        }//end constructor
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return (this.read(one, 0, 1) == 1) ? (one[0] & 0xFF) : -1;
+        }//end read
+
+        @Override
+        public int read(final byte[] buf, final int off, final int len) throws IOException {
+
+            if (this.pos >= this.end) {
+                return -1;
+            }//end if
+
+            int count = this.channel.read(ByteBuffer.wrap(buf, off, (int) Math.min(len, this.end - this.pos)), this.pos);
+
+            if (count <= 0) {
+                return -1;
+            }//end if
+
+            this.pos += count;
+
+            if (this.progress != null) {
+                this.progress.bytesRead(count);
+            }//end if
+
+            return count;
+
+        }//end read
+
+    }//end class RangeInputStream
+
+}//end class ParallelCsvReader
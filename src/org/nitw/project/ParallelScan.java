@@ -0,0 +1,152 @@
+/**
+ *
+ * Title:        ParallelScan.java - Fork/join scan over rows of a data set.
+ *
+ * Description:  Scan the rows [0, size) of a data set or typed column on all
+ *               cores with the fork/join common pool. The rows are split in
+ *               half until a part is no larger than the grain size, each part
+ *               is scanned by a RangeScanner, and the results of the parts are
+ *               combined in row order.
+ *
+ *               The grain size is the tuning knob: too small and the cost of
+ *               tasks is larger than the work, too large and some cores are
+ *               idle at the end. Splits are on a multiple of 64 rows, so each
+ *               part writes its own long words of a selection bitmap.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java concurrency
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+public final class ParallelScan {
+
+    //default smallest number of rows in one task
+    public static final int DEFAULT_GRAIN_SIZE = 16 * 1024;
+
+    //scan rows [from, to) and return a partial result
+    @FunctionalInterface
+    public interface RangeScanner<R> {
+        R scan(int from, int to);
+    }//end interface RangeScanner
+
+    //work on rows [from, to), no result
+    @FunctionalInterface
+    public interface RangeAction {
+        void apply(int from, int to);
+    }//end interface RangeAction
+
+    private ParallelScan() {
+    }//end constructor
+
+    //fork/join task that splits the rows in half until grain size
+    private static final class ScanTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to, grainSize;
+        private final RangeScanner<R> scanner;
+        private final BinaryOperator<R> combiner;
+
+        ScanTask(int from, int to, int grainSize, RangeScanner<R> scanner, BinaryOperator<R> combiner) {
+            this.from = from;
+            this.to = to;
+            this.grainSize = grainSize;
+            this.scanner = scanner;
+            this.combiner = combiner;
+        }//end constructor
+
+        @Override
+        protected R compute() {
+
+            int mid = ((this.from + this.to) >>> 1) & ~63;  //split on 64-row boundary
+
+            if (this.to - this.from <= this.grainSize || mid <= this.from) {
+                return this.scanner.scan(this.from, this.to);
+            }//end if
+
+            ScanTask<R> left = new ScanTask<>(this.from, mid, this.grainSize, this.scanner, this.combiner);
+            ScanTask<R> right = new ScanTask<>(mid, this.to, this.grainSize, this.scanner, this.combiner);
+
+            left.fork();
+            R rightResult = right.compute();
+            R leftResult = left.join();
+
+            return this.combiner.apply(leftResult, rightResult);
+
+        }//end compute
+
+    }//end class ScanTask
+
+    /**
+     * scan rows [0, size) in parallel and combine the partial results
+     *
+     * @param size the number of rows
+     * @param grainSize the smallest number of rows in one task
+     * @param scanner scans a range of rows into a partial result
+     * @param combiner combines partial results, left rows then right rows
+     * @return the combined result of all rows
+     */
+    public static <R> R scan(final int size, final int grainSize, final RangeScanner<R> scanner, final BinaryOperator<R> combiner) {
+
+        if (size <= grainSize) {
+            return scanner.scan(0, size);
+        }//end if
+
+        return ForkJoinPool.commonPool().invoke(new ScanTask<>(0, size, Math.max(64, grainSize), scanner, combiner));
+
+    }//end scan
+
+    /**
+     * scan rows [0, size) in parallel with the default grain size
+     *
+     * @param size the number of rows
+     * @param scanner scans a range of rows into a partial result
+     * @param combiner combines partial results, left rows then right rows
+     * @return the combined result of all rows
+     */
+    public static <R> R scan(final int size, final RangeScanner<R> scanner, final BinaryOperator<R> combiner) {
+        return ParallelScan.scan(size, DEFAULT_GRAIN_SIZE, scanner, combiner);
+    }//end scan
+
+    /**
+     * apply action to rows [0, size) in parallel
+     *
+     * @param size the number of rows
+     * @param grainSize the smallest number of rows in one task
+     * @param action the work on a range of rows
+     */
+    public static void forEach(final int size, final int grainSize, final RangeAction action) {
+
+        ParallelScan.<Void>scan(size, grainSize, (from, to) -> {
+            action.apply(from, to);
+            return null;
+        }, (left, right) -> null);
+
+    }//end forEach
+
+}//end class ParallelScan
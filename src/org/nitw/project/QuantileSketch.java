@@ -0,0 +1,353 @@
+/**
+ *
+ * Title:        QuantileSketch.java - Streaming approximate quantiles (KLL sketch).
+ *
+ * Description:  A QuantileSketch answers quantile questions (median, 90th
+ *               percentile, rank of a value) over a stream of numbers without
+ *               keeping or sorting all the numbers. It is the KLL sketch of
+ *               Karnin, Lang and Liberty: numbers are kept in levels, and when
+ *               a level is full it is sorted and every other number is moved
+ *               up one level with twice the weight. Memory is about 3k numbers
+ *               and the rank error is about 1.7/k, so k = 200 is within 1%.
+ *
+ *               Two sketches can be merged, so parts of a data set can be
+ *               sketched apart and then combined.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java input-output
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+//standard Java new input-output
+import java.nio.ByteBuffer;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class QuantileSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    private final int k;
+    private final List<double[]> levels = new ArrayList<>();  //items of each level, weight 2^level
+    private final List<Integer> sizes = new ArrayList<>();    //number of items in each level
+
+    private long count = 0L;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long coin = 0x9E3779B97F4A7C15L;  //xorshift state to pick odd or even items
+
+    public QuantileSketch(final int k) {
+        this.k = Math.max(8, k);
+        this.addLevel();
+    }//end constructor
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }//end constructor
+
+    private void addLevel() {
+        this.levels.add(new double[8]);
+        this.sizes.add(0);
+    }//end addLevel
+
+    //capacity of level, smaller for the lower levels
+    private int capacity(final int level) {
+        int depth = this.levels.size() - 1 - level;
+        return Math.max(2, (int) Math.ceil(this.k * Math.pow(2.0 / 3.0, depth)));
+    }//end capacity
+
+    private void append(final int level, final double val) {
+        double[] items = this.levels.get(level);
+        int size = this.sizes.get(level);
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            this.levels.set(level, items);
+        }//end if
+        items[size] = val;
+        this.sizes.set(level, size + 1);
+    }//end append
+
+    /**
+     * add a number to the sketch
+     *
+     * @param val the number, NaN is ignored
+     */
+    public void update(final double val) {
+
+        if (Double.isNaN(val)) {
+            return;
+        }//end if
+
+        if (this.count == 0 || val < this.min) {
+            this.min = val;
+        }//end if
+        if (this.count == 0 || val > this.max) {
+            this.max = val;
+        }//end if
+
+        this.count++;
+        this.append(0, val);
+        this.compress();
+
+    }//end update
+
+    //compact the lowest level that is full until every level fits
+    private void compress() {
+
+        for (int level = 0; level < this.levels.size(); level++) {
+
+            int size = this.sizes.get(level);
+
+            if (size < this.capacity(level)) {
+                continue;
+            }//end if
+
+            if (level + 1 == this.levels.size()) {
+                this.addLevel();
+            }//end if
+
+            double[] items = this.levels.get(level);
+            Arrays.sort(items, 0, size);
+
+            //odd size keeps the last item at this level
+            int pairs = size & ~1;
+
+            this.coin ^= this.coin << 13;
+            this.coin ^= this.coin >>> 7;
+            this.coin ^= this.coin << 17;
+            int offset = (int) (this.coin & 1L);
+
+            for (int idx = offset; idx < pairs; idx += 2) {
+                this.append(level + 1, items[idx]);
+            }//end for
+
+            if (pairs < size) {
+                items[0] = items[size - 1];
+            }//end if
+            this.sizes.set(level, size - pairs);
+
+        }//end for
+
+    }//end compress
+
+    /**
+     * merge other sketch into this sketch
+     *
+     * @param other the sketch to merge
+     * @return this sketch
+     */
+    public QuantileSketch merge(final QuantileSketch other) {
+
+        if (other.count == 0) {
+            return this;
+        }//end if
+
+        while (this.levels.size() < other.levels.size()) {
+            this.addLevel();
+        }//end while
+
+        for (int level = 0; level < other.levels.size(); level++) {
+            double[] items = other.levels.get(level);
+            for (int idx = 0; idx < other.sizes.get(level); idx++) {
+                this.append(level, items[idx]);
+            }//end for
+        }//end for
+
+        this.min = (this.count == 0) ? other.min : Math.min(this.min, other.min);
+        this.max = (this.count == 0) ? other.max : Math.max(this.max, other.max);
+        this.count += other.count;
+
+        this.compress();
+
+        return this;
+
+    }//end merge
+
+    //all items sorted by value with cumulative weight
+    private double[][] sortedItems() {
+
+        int total = 0;
+        for (int level = 0; level < this.levels.size(); level++) {
+            total += this.sizes.get(level);
+        }//end for
+
+        double[][] pairs = new double[total][];
+        int idx = 0;
+
+        for (int level = 0; level < this.levels.size(); level++) {
+            double[] items = this.levels.get(level);
+            for (int pos = 0; pos < this.sizes.get(level); pos++) {
+                pairs[idx++] = new double[]{items[pos], 1L << level};
+            }//end for
+        }//end for
+
+        Arrays.sort(pairs, (a, b) -> Double.compare(a[0], b[0]));
+
+        return pairs;
+
+    }//end sortedItems
+
+    /**
+     * get approximate value at quantile, 0.5 for median
+     *
+     * @param quantile the quantile from 0.0 to 1.0
+     * @return approximate value, NaN if sketch is empty
+     */
+    public double getQuantile(final double quantile) {
+
+        if (this.count == 0) {
+            return Double.NaN;
+        }//end if
+        if (quantile <= 0.0) {
+            return this.min;
+        }//end if
+        if (quantile >= 1.0) {
+            return this.max;
+        }//end if
+
+        double[][] pairs = this.sortedItems();
+        double totalWeight = 0.0;
+        for (double[] pair : pairs) {
+            totalWeight += pair[1];
+        }//end for
+
+        double target = quantile * totalWeight, cumulative = 0.0;
+
+        for (double[] pair : pairs) {
+            cumulative += pair[1];
+            if (cumulative >= target) {
+                return pair[0];
+            }//end if
+        }//end for
+
+        return this.max;
+
+    }//end getQuantile
+
+    /**
+     * get approximate fraction of numbers less than or equal to value
+     *
+     * @param val the value
+     * @return fraction from 0.0 to 1.0
+     */
+    public double getRank(final double val) {
+
+        if (this.count == 0) {
+            return 0.0;
+        }//end if
+
+        double below = 0.0, totalWeight = 0.0;
+
+        for (int level = 0; level < this.levels.size(); level++) {
+            double[] items = this.levels.get(level);
+            double weight = 1L << level;
+            for (int pos = 0; pos < this.sizes.get(level); pos++) {
+                totalWeight += weight;
+                if (items[pos] <= val) {
+                    below += weight;
+                }//end if
+            }//end for
+        }//end for
+
+        return below / totalWeight;
+
+    }//end getRank
+
+    public long getCount() {
+        return this.count;
+    }//end getCount
+
+    public double getMin() {
+        return this.min;
+    }//end getMin
+
+    public double getMax() {
+        return this.max;
+    }//end getMax
+
+    /**
+     * write sketch to a snapshot
+     *
+     * @param out the snapshot output
+     * @throws IOException if the sketch cannot be written
+     */
+    void writeTo(final DataOutputStream out) throws IOException {
+
+        out.writeInt(this.k);
+        out.writeLong(this.count);
+        out.writeDouble(this.min);
+        out.writeDouble(this.max);
+        out.writeLong(this.coin);
+        out.writeInt(this.levels.size());
+
+        for (int level = 0; level < this.levels.size(); level++) {
+            double[] items = this.levels.get(level);
+            int size = this.sizes.get(level);
+            out.writeInt(size);
+            for (int idx = 0; idx < size; idx++) {
+                out.writeDouble(items[idx]);
+            }//end for
+        }//end for
+
+    }//end writeTo
+
+    /**
+     * read sketch written by writeTo
+     *
+     * @param buffer the snapshot buffer at the sketch
+     * @return the sketch
+     */
+    static QuantileSketch readFrom(final ByteBuffer buffer) {
+
+        QuantileSketch sketch = new QuantileSketch(buffer.getInt());
+        sketch.count = buffer.getLong();
+        sketch.min = buffer.getDouble();
+        sketch.max = buffer.getDouble();
+        sketch.coin = buffer.getLong();
+
+        int levelCount = buffer.getInt();
+        sketch.levels.clear();
+        sketch.sizes.clear();
+
+        for (int level = 0; level < levelCount; level++) {
+            int size = buffer.getInt();
+            double[] items = new double[Math.max(8, size)];
+            for (int idx = 0; idx < size; idx++) {
+                items[idx] = buffer.getDouble();
+            }//end for
+            sketch.levels.add(items);
+            sketch.sizes.add(size);
+        }//end for
+
+        return sketch;
+
+    }//end readFrom
+
+}//end class QuantileSketch
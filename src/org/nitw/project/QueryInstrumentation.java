@@ -0,0 +1,240 @@
+/**
+ *
+ * Title:        QueryInstrumentation.java - Counters and latency of queries.
+ *
+ * Description:  Count the queries of the data engine by comparison operator,
+ *               with the rows returned and a latency histogram of each operator
+ *               measured with System.nanoTime. The histogram has a bucket for
+ *               each power of two nanoseconds, so percentiles are within a
+ *               factor of two without keeping each latency. A query slower than
+ *               the slow query threshold is written to the slow query log.
+ *
+ *               When disabled (the default) a query only reads one volatile
+ *               flag, no clock is read and nothing is counted.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java data structures/collections
+import java.util.ArrayList;
+import java.util.List;
+
+//standard Java concurrency
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public final class QueryInstrumentation {
+
+    private static final int BUCKETS = 64;  //bucket i has latency 2^i...2^(i+1)-1 nanoseconds
+
+    //counters of the queries of one operator
+    private static final class OperatorCounters {
+
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        void reset() {
+            this.count.reset();
+            this.errors.reset();
+            this.rows.reset();
+            this.nanos.reset();
+            for (int idx = 0; idx < BUCKETS; idx++) {
+                this.histogram.set(idx, 0L);
+            }//end for
+        }//end reset
+
+    }//end class OperatorCounters
+
+    /**
+     * snapshot of the counters of one operator
+     */
+    public static final class OperatorStatistics {
+
+        public final String operator;
+        public final long count;
+        public final long errors;
+        public final long rows;
+        public final long totalNanos;
+        private final long[] histogram;
+
+        OperatorStatistics(String operator, OperatorCounters counters) {
+            this.operator = operator;
+            this.count = counters.count.sum();
+            this.errors = counters.errors.sum();
+            this.rows = counters.rows.sum();
+            this.totalNanos = counters.nanos.sum();
+            this.histogram = new long[BUCKETS];
+            for (int idx = 0; idx < BUCKETS; idx++) {
+                this.histogram[idx] = counters.histogram.get(idx);
+            }//end for
+        }//end constructor
+
+        public double getMeanNanos() {
+            return (this.count == 0) ? 0.0 : (double) this.totalNanos / this.count;
+        }//end getMeanNanos
+
+        /**
+         * get upper bound of the latency at percentile of the histogram
+         *
+         * @param percentile the percentile from 0.0 to 1.0
+         * @return latency in nanoseconds, within a factor of two
+         */
+        public long getPercentileNanos(final double percentile) {
+
+            long total = 0L;
+            for (long bucket : this.histogram) {
+                total += bucket;
+            }//end for
+
+            if (total == 0L) {
+                return 0L;
+            }//end if
+
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0L;
+
+            for (int idx = 0; idx < BUCKETS; idx++) {
+                seen += this.histogram[idx];
+                if (seen >= rank && this.histogram[idx] > 0) {
+                    return (idx >= 62) ? Long.MAX_VALUE : (1L << (idx + 1)) - 1;
+                }//end if
+            }//end for
+
+            return Long.MAX_VALUE;
+
+        }//end getPercentileNanos
+
+        @Override
+        public String toString() {
+            return String.format("%-3s count=%d errors=%d rows=%d mean=%.1fus p50<=%.1fus p99<=%.1fus",
+                    this.operator, this.count, this.errors, this.rows, this.getMeanNanos() / 1e3,
+                    this.getPercentileNanos(0.5) / 1e3, this.getPercentileNanos(0.99) / 1e3);
+        }//end toString
+
+    }//end class OperatorStatistics
+
+    private volatile boolean enabled = false;
+
+    //one slot for each operator and last slot for all values (operator null)
+    private final OperatorCounters[] counters;
+
+    private volatile long slowQueryNanos = Long.MAX_VALUE;
+    private volatile Consumer<String> slowQueryLog = System.err::println;
+
+    public QueryInstrumentation() {
+        this.counters = new OperatorCounters[QueryOperator.values().length + 1];
+        for (int idx = 0; idx < this.counters.length; idx++) {
+            this.counters[idx] = new OperatorCounters();
+        }//end for
+    }//end constructor
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }//end isEnabled
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }//end setEnabled
+
+    /**
+     * set threshold of the slow query log
+     *
+     * @param thresholdNanos latency in nanoseconds a query is logged over, Long.MAX_VALUE for none
+     * @param log where the slow queries are written, e.g. System.err::println
+     */
+    public void setSlowQueryLog(final long thresholdNanos, final Consumer<String> log) {
+        this.slowQueryLog = log;
+        this.slowQueryNanos = thresholdNanos;
+    }//end setSlowQueryLog
+
+    //slot of operator, null for all values
+    private OperatorCounters countersOf(final QueryOperator op) {
+        return this.counters[(op == null) ? this.counters.length - 1 : op.ordinal()];
+    }//end countersOf
+
+    /**
+     * count a query that completed
+     *
+     * @param query the query
+     * @param nanos the latency in nanoseconds
+     * @param rows number of rows returned
+     */
+    public void record(final DataSetQuery query, final long nanos, final int rows) {
+
+        OperatorCounters opCounters = this.countersOf(query.getOperator());
+
+        opCounters.count.increment();
+        opCounters.rows.add(rows);
+        opCounters.nanos.add(nanos);
+        opCounters.histogram.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(1L, nanos)));
+
+        if (nanos >= this.slowQueryNanos) {
+            this.slowQueryLog.accept(String.format("Slow query: %s rows=%d time=%.3fms", query, rows, nanos / 1e6));
+        }//end if
+
+    }//end record
+
+    /**
+     * count a query that failed
+     *
+     * @param query the query
+     */
+    public void recordError(final DataSetQuery query) {
+        this.countersOf(query.getOperator()).errors.increment();
+    }//end recordError
+
+    /**
+     * get snapshot of the counters of each operator that had a query
+     *
+     * @return list of OperatorStatistics, all values (no operator) as "ALL"
+     */
+    public List<OperatorStatistics> getStatistics() {
+
+        List<OperatorStatistics> list = new ArrayList<>();
+        QueryOperator[] ops = QueryOperator.values();
+
+        for (int idx = 0; idx < this.counters.length; idx++) {
+            OperatorStatistics stats = new OperatorStatistics((idx < ops.length) ? ops[idx].name() : "ALL", this.counters[idx]);
+            if (stats.count > 0 || stats.errors > 0) {
+                list.add(stats);
+            }//end if
+        }//end for
+
+        return list;
+
+    }//end getStatistics
+
+    //set every counter to zero
+    public void reset() {
+        for (OperatorCounters opCounters : this.counters) {
+            opCounters.reset();
+        }//end for
+    }//end reset
+
+}//end class QueryInstrumentation
@@ -0,0 +1,61 @@
+/**
+ *
+ * Title:        QueryOperator.java - Comparison operators for data set queries.
+ *
+ * Description:  The comparison operators used to query an attribute of a data
+ *               set against a value: equal, not equal, greater than, greater
+ *               than or equal, less than, less than or equal.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+public enum QueryOperator {
+
+    EQ, NE, GT, GE, LT, LE;
+
+    /**
+     * check result of compareTo against the operator
+     *
+     * @param cmp result of compareTo of attribute value to query value
+     * @return true if the comparison matches the operator
+     */
+    public boolean matches(final int cmp) {
+        switch (this) {
+            case EQ:
+                return cmp == 0;
+            case NE:
+                return cmp != 0;
+            case GT:
+                return cmp > 0;
+            case GE:
+                return cmp >= 0;
+            case LT:
+                return cmp < 0;
+            default:
+                return cmp <= 0;
+        }//end switch
+    }//end matches
+
+}//end enum QueryOperator
@@ -0,0 +1,246 @@
+/**
+ *
+ * Title:        QueryResultCache.java - Size-bounded LRU cache of query results.
+ *
+ * Description:  Cache the result of each DataSetQuery, so the same query asked
+ *               again is answered without a scan of the data set. The cache has
+ *               a memory budget in bytes; when the estimated size of the cached
+ *               results is over the budget, the least recently used results
+ *               are evicted. A query result larger than the budget is not
+ *               cached. The results of a data set are invalidated when the data
+ *               set is reloaded.
+ *
+ *               Hits, misses and evictions are counted for tuning the budget.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java data structures/collections
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class QueryResultCache {
+
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    //estimated bytes of one Object[]{String, Integer} in a result, the String is shared with the data set
+    private static final long BYTES_PER_RESULT_ROW = 56L;
+    private static final long BYTES_PER_ENTRY = 128L;
+
+    //a cached result with its estimated size
+    private static final class Entry {
+
+        final List<Object[]> result;
+        final long bytes;
+
+        Entry(List<Object[]> result, long bytes) {
+            this.result = result;
+            this.bytes = bytes;
+        }//end constructor
+
+    }//end class Entry
+
+    /**
+     * snapshot of the cache statistics
+     */
+    public static final class Statistics {
+
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int entries;
+        public final long bytes;
+        public final long budgetBytes;
+
+        Statistics(long hits, long misses, long evictions, int entries, long bytes, long budgetBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.budgetBytes = budgetBytes;
+        }//end constructor
+
+        public double hitRate() {
+            long total = this.hits + this.misses;
+            return (total == 0) ? 0.0 : (double) this.hits / total;
+        }//end hitRate
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d hitRate=%.3f evictions=%d entries=%d bytes=%d/%d",
+                    this.hits, this.misses, this.hitRate(), this.evictions, this.entries, this.bytes, this.budgetBytes);
+        }//end toString
+
+    }//end class Statistics
+
+    //access order, so first entry is least recently used
+    private final LinkedHashMap<DataSetQuery, Entry> entryMap = new LinkedHashMap<>(64, 0.75f, true);
+
+    //incremented when data set is invalidated, so a result computed before is not cached
+    private final Map<String, Long> generationMap = new HashMap<>();
+    private long epoch = 0L;  //incremented when every data set is invalidated
+
+    private long budgetBytes;
+    private long bytes = 0L;
+    private long hits = 0L, misses = 0L, evictions = 0L;
+
+    public QueryResultCache(final long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }//end constructor
+
+    public QueryResultCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }//end constructor
+
+    /**
+     * estimated bytes of a query result in memory
+     *
+     * @param result the query result
+     * @return estimated size in bytes
+     */
+    static long estimateBytes(final List<Object[]> result) {
+        return BYTES_PER_ENTRY + BYTES_PER_RESULT_ROW * result.size();
+    }//end estimateBytes
+
+    /**
+     * get cached result of query
+     *
+     * @param query the query
+     * @return the cached result, or null if not cached
+     */
+    public synchronized List<Object[]> get(final DataSetQuery query) {
+
+        Entry entry = this.entryMap.get(query);
+
+        if (entry == null) {
+            this.misses++;
+            return null;
+        }//end if
+
+        this.hits++;
+        return entry.result;
+
+    }//end get
+
+    /**
+     * get generation of data set, to be read before a query result is computed
+     *
+     * @param dataSetName the data set name
+     * @return generation, changed when the data set is invalidated
+     */
+    public synchronized long getGeneration(final String dataSetName) {
+        return (this.epoch << 32) + this.generationMap.getOrDefault(dataSetName, 0L);
+    }//end getGeneration
+
+    /**
+     * cache result of query, evicting least recently used results over budget;
+     * not cached if data set was invalidated since generation was read
+     *
+     * @param query the query
+     * @param result the query result, not changed after it is cached
+     * @param generation the generation of the data set when query was computed
+     */
+    public synchronized void put(final DataSetQuery query, final List<Object[]> result, final long generation) {
+
+        if (generation != this.getGeneration(query.getDataSetName())) {
+            return;  //data set reloaded while result computed
+        }//end if
+
+        long size = QueryResultCache.estimateBytes(result);
+
+        if (size > this.budgetBytes) {
+            return;  //larger than whole cache
+        }//end if
+
+        Entry previous = this.entryMap.put(query, new Entry(result, size));
+        if (previous != null) {
+            this.bytes -= previous.bytes;
+        }//end if
+
+        this.bytes += size;
+        this.evict();
+
+    }//end put
+
+    //remove least recently used entries until within budget
+    private void evict() {
+
+        Iterator<Map.Entry<DataSetQuery, Entry>> iter = this.entryMap.entrySet().iterator();
+
+        while (this.bytes > this.budgetBytes && iter.hasNext()) {
+            this.bytes -= iter.next().getValue().bytes;
+            iter.remove();
+            this.evictions++;
+        }//end while
+
+    }//end evict
+
+    /**
+     * remove cached results of queries of a data set
+     *
+     * @param dataSetName the data set name
+     */
+    public synchronized void invalidate(final String dataSetName) {
+
+        this.generationMap.merge(dataSetName, 1L, Long::sum);
+
+        Iterator<Map.Entry<DataSetQuery, Entry>> iter = this.entryMap.entrySet().iterator();
+
+        while (iter.hasNext()) {
+            Map.Entry<DataSetQuery, Entry> entry = iter.next();
+            if (entry.getKey().getDataSetName().equals(dataSetName)) {
+                this.bytes -= entry.getValue().bytes;
+                iter.remove();
+            }//end if
+        }//end while
+
+    }//end invalidate
+
+    //remove every cached result
+    public synchronized void clear() {
+        this.epoch++;
+        this.entryMap.clear();
+        this.bytes = 0L;
+    }//end clear
+
+    /**
+     * set memory budget, evicting results over the new budget
+     *
+     * @param budgetBytes the memory budget in bytes, 0 to turn off caching
+     */
+    public synchronized void setBudgetBytes(final long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        this.evict();
+    }//end setBudgetBytes
+
+    public synchronized Statistics getStatistics() {
+        return new Statistics(this.hits, this.misses, this.evictions, this.entryMap.size(), this.bytes, this.budgetBytes);
+    }//end getStatistics
+
+}//end class QueryResultCache
@@ -0,0 +1,217 @@
+/**
+ *
+ * Title:        SingleFlight.java - Coalesce identical computations in flight.
+ *
+ * Description:  When many callers ask for the same expensive computation (the
+ *               same query, the same scoring) at the same time, only the first
+ *               caller computes it; the later callers attach to the computation
+ *               in flight and get the same result, or the same exception. Once
+ *               the computation is done it is removed, so a later call computes
+ *               again (a result cache sits in front if results are to be kept).
+ *
+ *               An attached caller can cancel its own future without changing
+ *               the result for the other callers. When every caller attached to
+ *               a computation has cancelled, the computation is cancelled too,
+ *               so it does not start if it is still waiting to run.
+ *
+ * Copyright:    Copyright © (c) 2020 Neurodiversity In The Workplace (NITW)
+ *
+ * Development:  Developed and written by the contributions from Sean Gill,
+ *               Joseph Riddle, and Christine P. Chai, Ph.D.
+ *
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.nitw.project;
+
+//standard Java concurrency
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public final class SingleFlight<K, V> {
+
+    //a computation in flight with the number of callers attached
+    private static final class Flight<V> {
+
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final AtomicInteger callers = new AtomicInteger(1);
+
+    }//end class Flight
+
+    private final ConcurrentHashMap<K, Flight<V>> flightMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong computed = new AtomicLong();   //computations started
+    private final AtomicLong coalesced = new AtomicLong();  //callers attached to a computation
+
+    /**
+     * run computation for key on the caller thread, or wait for the same
+     * computation already in flight
+     *
+     * @param key the key that identifies the computation
+     * @param supplier the computation
+     * @return the result of the computation
+     */
+    public V execute(final K key, final Supplier<V> supplier) {
+
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = this.attach(key, flight);
+
+        if (existing != null) {
+            return SingleFlight.join(existing.future);
+        }//end if
+
+        this.computed.incrementAndGet();
+
+        try {
+            V result = supplier.get();
+            flight.future.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            flight.future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            this.flightMap.remove(key, flight);
+        }//end try
+
+    }//end execute
+
+    /**
+     * run computation for key with executor, or attach to the same computation
+     * already in flight
+     *
+     * @param key the key that identifies the computation
+     * @param supplier the computation
+     * @param executor the executor to run the computation
+     * @return future of this caller, cancel does not change other callers
+     */
+    public CompletableFuture<V> submit(final K key, final Supplier<V> supplier, final Executor executor) {
+
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = this.attach(key, flight);
+
+        if (existing != null) {
+            return this.view(key, existing);
+        }//end if
+
+        this.computed.incrementAndGet();
+
+        CompletableFuture<V> view = this.view(key, flight);
+
+        executor.execute(() -> {
+            if (flight.future.isDone()) {
+                return;  //every caller cancelled before it started
+            }//end if
+            try {
+                flight.future.complete(supplier.get());
+            } catch (Throwable ex) {
+                flight.future.completeExceptionally(ex);
+            } finally {
+                this.flightMap.remove(key, flight);
+            }//end try
+        });
+
+        return view;
+
+    }//end submit
+
+    //put flight for key, or attach to flight in map; null if flight was put
+    private Flight<V> attach(final K key, final Flight<V> flight) {
+
+        for (;;) {
+
+            Flight<V> existing = this.flightMap.putIfAbsent(key, flight);
+
+            if (existing == null) {
+                return null;
+            }//end if
+
+            //attach unless every caller of the existing flight has cancelled
+            int callers = existing.callers.get();
+            if (callers > 0 && existing.callers.compareAndSet(callers, callers + 1)) {
+                this.coalesced.incrementAndGet();
+                return existing;
+            }//end if
+
+            this.flightMap.remove(key, existing);
+
+        }//end for
+
+    }//end attach
+
+    //future of one caller, cancel only detaches this caller
+    private CompletableFuture<V> view(final K key, final Flight<V> flight) {
+
+        CompletableFuture<V> view = new CompletableFuture<>();
+
+        flight.future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                view.completeExceptionally((ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex);
+            } else {
+                view.complete(result);
+            }//end if
+        });
+
+        view.whenComplete((result, ex) -> {
+            if (view.isCancelled() && flight.callers.decrementAndGet() == 0) {
+                flight.future.cancel(false);
+                this.flightMap.remove(key, flight);
+            }//end if
+        });
+
+        return view;
+
+    }//end view
+
+    //wait for future, rethrow the exception of the computation as is
+    private static <V> V join(final CompletableFuture<V> future) {
+
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }//end if
+            throw ex;
+        }//end try
+
+    }//end join
+
+    //number of computations in flight now
+    public int getInFlightCount() {
+        return this.flightMap.size();
+    }//end getInFlightCount
+
+    //number of computations started
+    public long getComputedCount() {
+        return this.computed.get();
+    }//end getComputedCount
+
+    //number of callers that attached to a computation in flight instead of computing
+    public long getCoalescedCount() {
+        return this.coalesced.get();
+    }//end getCoalescedCount
+
+}//end class SingleFlight